@@ -1,5 +1,6 @@
 package suite;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -27,9 +28,16 @@ public class AnalysisRunner {
 	private ConfigurationDao config;
 	private AnalysisBuilder factory;
 
+	/**
+	 * @param args
+	 *            optionally the directory of an embedded database, to use instead of the database
+	 *            of dist.ini.
+	 */
 	public static void main(String[] args) {
-		AnalysisRunner ar = Guice.createInjector(new TestingSuiteModule(NAMESPACE))
-		        .getInstance(AnalysisRunner.class);
+		File embeddedDatabase = args.length > 0 ? new File(args[0]) : null;
+		AnalysisRunner ar =
+		        Guice.createInjector(new TestingSuiteModule(NAMESPACE, null, embeddedDatabase))
+		                .getInstance(AnalysisRunner.class);
 		ar.run();
 	}
 
@@ -1,24 +1,39 @@
 package suite;
 
 import java.io.File;
-import java.net.URL;
-import java.util.ArrayList;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.commons.cli.*;
 
 import suite.crawljax.CrawlManager;
+import suite.crawljax.OutputStore;
 import suite.distributed.DatabaseUtils;
+import suite.distributed.SqlStatement;
 import suite.distributed.configuration.ConfigurationDao;
+import suite.distributed.results.AsyncResultUploader;
+import suite.distributed.results.CrawlProfile;
+import suite.distributed.results.AsyncResultUploader.UploadListener;
 import suite.distributed.results.ResultProcessor;
-import suite.distributed.results.ResultProcessorException;
+import suite.distributed.results.ResultUpload;
+import suite.distributed.results.StateStreamer;
+import suite.distributed.workload.BackoffIdleStrategy;
+import suite.distributed.workload.HostPolicy;
+import suite.distributed.workload.LeaseHeartbeat;
+import suite.distributed.workload.PrefetchedWork;
+import suite.distributed.workload.RetryPolicy;
+import suite.distributed.workload.WorkPrefetcher;
 import suite.distributed.workload.WorkTask;
 import suite.distributed.workload.WorkloadDao;
 
+import com.crawljax.core.state.duplicatedetection.HashGenerator;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
@@ -28,12 +43,23 @@ public class CrawlRunner {
 	private static String NAMESPACE;
 	private static final String APPLICATION_NAME = "Crawljax Calibration Tool";
 	private static final long WAIT_INTERVAL = 1000 * 10;
+	private static final long MEMORY_PER_SLOT = 1024L * 1024 * 1024;
+	private static final int DEFAULT_PREFETCH = 1;
+	private static final int DEFAULT_UPLOAD_QUEUE = 4;
+	private static final long BYTES_PER_MEGABYTE = 1024L * 1024;
 
 	private DatabaseUtils dbUtils;
 	private ResultProcessor resultProcessor;
 	private WorkloadDao workload;
 	private CrawlManager crawlManager;
 	private ConfigurationDao config;
+	private RetryPolicy retryPolicy = new RetryPolicy();
+	private long outputBudget = OutputStore.UNLIMITED;
+	private boolean archiveOutput = false;
+	private boolean streamResults = false;
+	private ResultUpload resultUpload;
+	private HashGenerator hasher;
+	private HostPolicy hostPolicy;
 
 	public static void main(String[] args) {
 		try {
@@ -46,9 +72,18 @@ public class CrawlRunner {
 			NAMESPACE = cmd.getOptionValue("n");
 
 			// Setup Crawlrunner
+			HostPolicy hostPolicy = null;
+			if (cmd.hasOption("hostSlots") || cmd.hasOption("hostInterval")) {
+				hostPolicy =
+				        new HostPolicy(parseCount(cmd.getOptionValue("hostSlots"), 0), parseCount(
+				                cmd.getOptionValue("hostInterval"), 0));
+			}
+			File embeddedDatabase =
+			        cmd.hasOption("embedded") ? new File(cmd.getOptionValue("embedded")) : null;
 			CrawlRunner cr =
-			        Guice.createInjector(new TestingSuiteModule(NAMESPACE)).getInstance(
-			                CrawlRunner.class);
+			        Guice.createInjector(
+			                new TestingSuiteModule(NAMESPACE, hostPolicy, embeddedDatabase))
+			                .getInstance(CrawlRunner.class);
 			cr.actOnArgs(cmd);
 
 			// Finish up.
@@ -75,6 +110,38 @@ public class CrawlRunner {
 		        "Sets a custom NAMESPACE for the instance. This enables multiple crawl-sessions on a single database");
 		options.addOption("noWaiting", false,
 		        "Prevents a worker-instance from waiting on new tasks. If no tasks are left, the worker stops.");
+		options.addOption("slots", true,
+		        "Number of crawls a worker or local run runs concurrently. For a worker it "
+		                + "defaults to the number of cores, limited by the free memory. For a "
+		                + "local run it defaults to 1.");
+		options.addOption("prefetch", true,
+		        "Number of worktasks a worker claims and configures ahead, while crawling. "
+		                + "Defaults to " + DEFAULT_PREFETCH + ".");
+		options.addOption("uploadQueue", true,
+		        "Number of finished crawls a worker queues for uploading in the background, "
+		                + "before it waits for the uploads. Defaults to " + DEFAULT_UPLOAD_QUEUE
+		                + ".");
+		options.addOption("hostSlots", true,
+		        "Maximum number of concurrent crawls of a single host, across all workers. "
+		                + "By default there is no maximum.");
+		options.addOption("hostInterval", true,
+		        "Minimum number of seconds between the start of two crawls of a single host. "
+		                + "By default crawls are not spaced out.");
+		options.addOption("maxAttempts", true,
+		        "Number of times a worktask is attempted before it is quarantined. "
+		                + "Defaults to " + RetryPolicy.DEFAULT_MAX_ATTEMPTS + ".");
+		options.addOption("outputBudget", true,
+		        "Maximum size in megabytes of the output a worker keeps on disk. The least "
+		                + "recently used uploaded output is removed first. Defaults to 0, which "
+		                + "keeps all output.");
+		options.addOption("archiveOutput", false,
+		        "Packs the output of a worker into a compressed archive once it has been "
+		                + "uploaded.");
+		options.addOption("streamResults", false,
+		        "Uploads each state while it is being crawled, instead of after the crawl.");
+		options.addOption("embedded", true,
+		        "Uses an embedded database in the provided directory instead of the database "
+		                + "of dist.ini. The tables are created if missing.");
 		return options;
 	}
 
@@ -87,15 +154,47 @@ public class CrawlRunner {
 		this.config = config;
 	}
 
+	/**
+	 * @param hostPolicy
+	 *            the policy limiting the crawls per host, which also caps the idle time of a worker
+	 */
+	@Inject(optional = true)
+	public void setHostPolicy(HostPolicy hostPolicy) {
+		this.hostPolicy = hostPolicy;
+	}
+
+	/**
+	 * @param resultUpload
+	 *            used to upload the states of a crawl while it is running
+	 * @param hasher
+	 *            the hash-function used to recognize equal stripped DOMs
+	 */
+	@Inject(optional = true)
+	public void setStreaming(ResultUpload resultUpload, HashGenerator hasher) {
+		this.resultUpload = resultUpload;
+		this.hasher = hasher;
+	}
+
 	public void actOnArgs(CommandLine cmd) {
 		if (cmd.hasOption("worker")) {
-			actionWorker(NAMESPACE, cmd.hasOption("noWaiting"));
+			retryPolicy =
+			        new RetryPolicy(Math.max(1, parseCount(cmd.getOptionValue("maxAttempts"),
+			                RetryPolicy.DEFAULT_MAX_ATTEMPTS)));
+			outputBudget =
+			        parseCount(cmd.getOptionValue("outputBudget"), 0) * BYTES_PER_MEGABYTE;
+			archiveOutput = cmd.hasOption("archiveOutput");
+			streamResults = cmd.hasOption("streamResults");
+			actionWorker(NAMESPACE, cmd.hasOption("noWaiting"),
+			        parseSlots(cmd.getOptionValue("slots")),
+			        parseCount(cmd.getOptionValue("prefetch"), DEFAULT_PREFETCH),
+			        parseCount(cmd.getOptionValue("uploadQueue"), DEFAULT_UPLOAD_QUEUE));
 		} else if (cmd.hasOption("flush")) {
 			dbUtils.actionFlushWebsitesFile(new File(cmd.getOptionValue("flush")));
 		} else if (cmd.hasOption("settings")) {
 			dbUtils.actionFlushSettingsFile(new File(cmd.getOptionValue("settings")));
 		} else if (cmd.hasOption("local")) {
-			actionLocalCrawler(new File(cmd.getOptionValue("local")));
+			actionLocalCrawler(new File(cmd.getOptionValue("local")),
+			        cmd.hasOption("slots") ? parseSlots(cmd.getOptionValue("slots")) : 1);
 		} else {
 			actionHelp();
 		}
@@ -107,64 +206,233 @@ public class CrawlRunner {
 	}
 
 	public void actionWorker(String namespace, boolean noWaiting) {
-		while (true) {
-			WorkTask task = getWorkTask(noWaiting);
-			if (task == null)
-				return;
-			Map<String, String> args = getConfigurationForUrl(task.getURL(), namespace);
-			crawlWorkTask(task, args);
-			workload.checkoutWork(task);
-			log.info("crawl: {} completed", task.getURL());
+		actionWorker(namespace, noWaiting, 1, DEFAULT_PREFETCH, DEFAULT_UPLOAD_QUEUE);
+	}
+
+	/**
+	 * Runs the worker, crawling up to slots worktasks concurrently. While crawling, the next
+	 * worktasks are claimed and configured ahead. Finished crawls are uploaded in the background,
+	 * after which their worktasks are checked out. Failures are registered by their slot.
+	 * 
+	 * @param namespace
+	 *            the namespace of the worktasks and configuration
+	 * @param noWaiting
+	 *            if true, stop claiming work once no worktasks are left
+	 * @param slots
+	 *            the maximum number of concurrent crawls
+	 * @param prefetch
+	 *            the number of worktasks to claim ahead
+	 * @param uploadQueue
+	 *            the number of finished crawls to queue for uploading
+	 */
+	public void actionWorker(String namespace, boolean noWaiting, int slots, int prefetch,
+	        int uploadQueue) {
+		assert slots > 0;
+		log.info("Worker started with {} slot(s).", slots);
+		crawlManager.setConcurrentCrawls(slots);
+		ExecutorService executor = Executors.newFixedThreadPool(slots);
+		final Semaphore freeSlots = new Semaphore(slots);
+		final WorkPrefetcher prefetcher =
+		        new WorkPrefetcher(workload, config, namespace, prefetch, noWaiting,
+		                new BackoffIdleStrategy(workload, hostPolicy));
+		final AsyncResultUploader uploader =
+		        new AsyncResultUploader(resultProcessor, workload, uploadQueue, retryPolicy);
+		LeaseHeartbeat heartbeat = new LeaseHeartbeat(workload, prefetcher.getClaimed());
+		final OutputStore outputStore =
+		        new OutputStore(crawlManager.getOutputRoot(), outputBudget, archiveOutput,
+		                AsyncResultUploader.PENDING_FILE);
+		uploader.setListener(new UploadListener() {
+			@Override
+			public void uploaded(WorkTask task, boolean success) {
+				prefetcher.finished(task);
+			}
+		});
+		Thread releaseOnShutdown = new Thread() {
+			@Override
+			public void run() {
+				prefetcher.close();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(releaseOnShutdown);
+		try {
+			uploader.start();
+			for (WorkTask recovered : uploader.recover(crawlManager.getOutputRoot())) {
+				prefetcher.claimed(recovered);
+			}
+			outputStore.open();
+			prefetcher.start();
+			heartbeat.start();
+			boolean warmedUp = false;
+			while (true) {
+				freeSlots.acquire();
+				final PrefetchedWork work = prefetcher.take();
+				if (work == null) {
+					freeSlots.release();
+					break;
+				}
+				if (!warmedUp) {
+					crawlManager.warmUpBrowsers(work.getConfiguration(), slots);
+					warmedUp = true;
+				}
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							if (!runSlot(work, uploader, outputStore)) {
+								prefetcher.finished(work.getTask());
+							}
+						} finally {
+							freeSlots.release();
+						}
+					}
+				});
+			}
+		} catch (InterruptedException e) {
+			log.error("Worker interrupted while waiting for work: {}", e.getMessage());
+		} finally {
+			prefetcher.close();
+			executor.shutdown();
+			awaitSlots(executor);
+			uploader.close();
+			heartbeat.stop();
+			SqlStatement.logMetrics();
+			outputStore.compact();
+			crawlManager.closeBrowsers();
+			removeShutdownHook(releaseOnShutdown);
 		}
 	}
 
-	private void actionLocalCrawler(File websitePath) {
-		crawlManager.websitesFromFileToQueue(websitePath);
-		crawlManager.crawlWebsitesFromQueue();
+	/**
+	 * Crawls a worktask and hands its output to the uploader. If the crawl fails, the failure is
+	 * registered so the worktask is retried later, or quarantined once the retry-policy is
+	 * exhausted. If the slot is interrupted, the worktask is reverted. The output-dir is kept in
+	 * the output store until it has been uploaded. When streaming, the states are uploaded during
+	 * the crawl and removed again if it fails.
+	 * 
+	 * @return true if the worktask was handed to the uploader, else false.
+	 */
+	private boolean runSlot(PrefetchedWork work, AsyncResultUploader uploader,
+	        OutputStore outputStore) {
+		WorkTask task = work.getTask();
+		File dir = crawlManager.generateOutputDir(task.getURL());
+		outputStore.crawling(dir);
+		StateStreamer streamer = null;
+		if (streamResults && resultUpload != null) {
+			streamer = new StateStreamer(resultUpload, task.getId(), dir, hasher);
+			streamer.start();
+		}
+		try {
+			CrawlProfile profile = new CrawlProfile();
+			profile.setConfigurationTime(work.getConfigurationTime());
+			long timeStart = new Date().getTime();
+			boolean success =
+			        streamer != null ? crawlManager.runCrawler(task.getURL(), dir,
+			                work.getConfiguration(), profile, streamer) : crawlManager
+			                .runCrawler(task.getURL(), dir, work.getConfiguration(), profile);
+			if (!success) {
+				log.info("Crawljax returned an error code.");
+				discard(streamer);
+				workload.failWork(task.getId(), "Crawljax returned an error code.", retryPolicy);
+				return false;
+			}
+			long duration = new Date().getTime() - timeStart;
+			if (streamer != null) {
+				streamer.close();
+			}
+			uploader.submit(task, dir, duration);
+			return true;
+		} catch (RuntimeException e) {
+			log.error("Slot failed while crawling {}: {}", task.getURL(), e.getMessage());
+			discard(streamer);
+			workload.failWork(task.getId(), e.toString(), retryPolicy);
+			return false;
+		} catch (InterruptedException e) {
+			log.error("Slot interrupted while crawling {}: {}", task.getURL(), e.getMessage());
+			discard(streamer);
+			workload.revertWork(task.getId());
+			return false;
+		} finally {
+			outputStore.finished(dir);
+		}
 	}
 
-	private Map<String, String> getConfigurationForUrl(URL url, String namespace) {
-		List<String> sections = new ArrayList<String>();
-		sections.add(url.getHost());
-		if (namespace != null) {
-			sections.add(namespace);
-		} else {
-			sections.add(ConfigurationDao.SECTION_COMMON);
+	private void discard(StateStreamer streamer) {
+		if (streamer != null) {
+			streamer.discard();
 		}
-		return config.getConfiguration(sections);
 	}
 
-	public WorkTask getWorkTask(boolean noWaiting) {
-		List<WorkTask> workTasks = workload.retrieveWork(1);
-		while (workTasks.size() == 0) {
-			if (noWaiting)
-				return null;
+	private void removeShutdownHook(Thread hook) {
+		try {
+			Runtime.getRuntime().removeShutdownHook(hook);
+		} catch (IllegalStateException e) {
+			log.debug("Shutdown already in progress: {}", e.getMessage());
+		}
+	}
+
+	private void awaitSlots(ExecutorService executor) {
+		try {
+			while (!executor.awaitTermination(WAIT_INTERVAL, TimeUnit.MILLISECONDS)) {
+				log.info("Waiting for the running crawls to finish...");
+			}
+		} catch (InterruptedException e) {
+			log.error("Interrupted while waiting for the running crawls: {}", e.getMessage());
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The default number of slots: one per core, as long as each slot has enough free memory for a
+	 * browser and crawl.
+	 * 
+	 * @return the default number of slots, at least 1.
+	 */
+	@VisibleForTesting
+	static int defaultSlotCount() {
+		int cores = Runtime.getRuntime().availableProcessors();
+		long freeMemory = Runtime.getRuntime().maxMemory();
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			freeMemory =
+			        ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize();
+		}
+		return (int) Math.max(1, Math.min(cores, freeMemory / MEMORY_PER_SLOT));
+	}
+
+	private static int parseCount(String value, int defaultValue) {
+		if (value != null) {
 			try {
-				log.info("This worker will sleep for {}ms to wait for a worktask.", WAIT_INTERVAL);
-				Thread.sleep(WAIT_INTERVAL);
-			} catch (InterruptedException e) {
-				System.out.println("Sleep interrupted; worker stopped.");
-				log.error("Session interupted, reason: {}", e.getMessage());
+				int count = Integer.parseInt(value);
+				if (count >= 0)
+					return count;
+			} catch (NumberFormatException e) {
+				log.debug("Count is not a number: {}", e.getMessage());
 			}
-			workTasks = workload.retrieveWork(1);
+			log.warn("Invalid count: {}. Using the default {} instead.", value, defaultValue);
 		}
-		return workTasks.get(0);
+		return defaultValue;
 	}
 
-	private void crawlWorkTask(WorkTask task, Map<String, String> args) {
-		File dir = crawlManager.generateOutputDir(task.getURL());
-		long timeStart = new Date().getTime();
-		boolean hasNoError = crawlManager.runCrawler(task.getURL(), dir, args);
-		try {
-			if (!hasNoError) {
-				log.info("Crawljax returned an error code.");
-				workload.revertWork(task.getId());
+	private int parseSlots(String value) {
+		if (value != null) {
+			try {
+				int slots = Integer.parseInt(value);
+				if (slots > 0)
+					return slots;
+			} catch (NumberFormatException e) {
+				log.debug("Slots is not a number: {}", e.getMessage());
 			}
-			long duration = new Date().getTime() - timeStart;
-			resultProcessor.uploadResults(task.getId(), dir, duration);
-		} catch (ResultProcessorException e) {
-			System.out.println(e.getMessage());
-			workload.revertWork(task.getId());
+			log.warn("Invalid number of slots: {}. Using the default instead.", value);
+		}
+		return defaultSlotCount();
+	}
+
+	private void actionLocalCrawler(File websitePath, int parallel) {
+		crawlManager.websitesFromFileToQueue(websitePath);
+		try {
+			crawlManager.crawlWebsitesFromQueue(parallel);
+		} finally {
+			crawlManager.closeBrowsers();
 		}
 	}
 }
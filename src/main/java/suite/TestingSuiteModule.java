@@ -1,5 +1,6 @@
 package suite;
 
+import java.io.File;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
@@ -9,12 +10,13 @@ import suite.analysis.AnalysisBuilder;
 import suite.analysis.AnalysisBuilderImpl;
 import suite.distributed.ConnectionManager;
 import suite.distributed.ConnectionManagerOrm;
-import suite.distributed.ConnectionManagerOrmImpl;
+import suite.distributed.PooledConnectionManager;
 import suite.distributed.configuration.ConfigurationDao;
 import suite.distributed.configuration.ConfigurationDaoImpl;
 import suite.distributed.results.ResultProcessor;
 import suite.distributed.results.ResultProcessorImpl;
 import suite.distributed.results.WebsiteResult;
+import suite.distributed.workload.HostPolicy;
 import suite.distributed.workload.WorkloadDao;
 import suite.distributed.workload.WorkloadDaoImpl;
 
@@ -35,12 +37,44 @@ import com.j256.ormlite.dao.DaoManager;
 public class TestingSuiteModule extends AbstractModule {
 
 	private String namespace;
+	private HostPolicy hostPolicy;
+	private File embeddedDatabase;
 
 	public TestingSuiteModule(String namespace) {
+		this(namespace, null);
+	}
+
+	/**
+	 * @param namespace
+	 *            the namespace of the workload and configuration
+	 * @param hostPolicy
+	 *            the policy limiting the crawls per host, if null the crawls per host are not
+	 *            limited.
+	 */
+	public TestingSuiteModule(String namespace, HostPolicy hostPolicy) {
 		this.namespace = (namespace != null) ? namespace : "";
+		this.hostPolicy = hostPolicy;
 		log.info("Namespace used: \"" + namespace + "\"");
 	}
 
+	/**
+	 * @param namespace
+	 *            the namespace of the workload and configuration
+	 * @param hostPolicy
+	 *            the policy limiting the crawls per host, if null the crawls per host are not
+	 *            limited.
+	 * @param embeddedDatabase
+	 *            the directory of the embedded database to use, if null the database of dist.ini
+	 *            is used.
+	 */
+	public TestingSuiteModule(String namespace, HostPolicy hostPolicy, File embeddedDatabase) {
+		this(namespace, hostPolicy);
+		this.embeddedDatabase = embeddedDatabase;
+		if (embeddedDatabase != null) {
+			log.info("Embedded database used: " + embeddedDatabase.getAbsolutePath());
+		}
+	}
+
 	@Override
 	protected void configure() {
 		// Use Near-duplicate Detection instance
@@ -55,8 +89,14 @@ public class TestingSuiteModule extends AbstractModule {
 		bind(AnalysisBuilder.class).to(AnalysisBuilderImpl.class);
 
 		// Distributed
-		bind(ConnectionManager.class).to(ConnectionManagerOrmImpl.class);
-		bind(ConnectionManagerOrm.class).to(ConnectionManagerOrmImpl.class);
+		if (embeddedDatabase != null) {
+			PooledConnectionManager embedded = new PooledConnectionManager(embeddedDatabase);
+			bind(ConnectionManager.class).toInstance(embedded);
+			bind(ConnectionManagerOrm.class).toInstance(embedded);
+		} else {
+			bind(ConnectionManager.class).to(PooledConnectionManager.class);
+			bind(ConnectionManagerOrm.class).to(PooledConnectionManager.class);
+		}
 
 		// Configuration
 		bind(ConfigurationDao.class).to(ConfigurationDaoImpl.class);
@@ -66,6 +106,9 @@ public class TestingSuiteModule extends AbstractModule {
 
 		// Workload
 		bind(WorkloadDao.class).to(WorkloadDaoImpl.class);
+		if (hostPolicy != null) {
+			bind(HostPolicy.class).toInstance(hostPolicy);
+		}
 
 		// Namespace binding (used in WorkLoad)
 		bind(String.class).annotatedWith(Names.named("namespace")).toInstance(namespace);
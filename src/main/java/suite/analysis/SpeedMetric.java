@@ -2,11 +2,16 @@ package suite.analysis;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import suite.distributed.results.WebsiteResult;
 
 /**
- * This metric measures the speed difference between two crawls.
+ * This metric measures the speed difference between two crawls. The number of browsers used by the
+ * crawls is reported along with it, since crawls with more browsers are not comparable to crawls
+ * with fewer.
  */
 public class SpeedMetric implements Metric {
 
@@ -32,11 +37,28 @@ public class SpeedMetric implements Metric {
 
 		float res = ((difference * -1) / benchmarkDuration) * TOTAL_PERCENTAGE;
 		String result = String.valueOf(res);
+		Set<Integer> benchmarkBrowsers = browserCounts(benchmarkWebsites);
+		Set<Integer> testBrowsers = browserCounts(testWebsitesResults);
+		List<String> details = new ArrayList<String>();
+		details.add("Browsers used by the benchmark: " + benchmarkBrowsers + ", by the test: "
+		        + testBrowsers);
+		if (benchmarkBrowsers.size() > 1 || !benchmarkBrowsers.equals(testBrowsers)) {
+			details.add("Warning: the crawls used different numbers of browsers, "
+			        + "so the speed increase includes the effect of the browser count.");
+		}
 		Collection<Statistic> ret = new ArrayList<Statistic>();
-		ret.add(new Statistic(SPEED_INCREASE, result + "%"));
+		ret.add(new Statistic(SPEED_INCREASE, result + "%", details));
 		return ret;
 	}
 
+	private static Set<Integer> browserCounts(Collection<WebsiteResult> websites) {
+		Set<Integer> counts = new TreeSet<Integer>();
+		for (WebsiteResult website : websites) {
+			counts.add(website.getBrowsers());
+		}
+		return counts;
+	}
+
 	public String getName() {
 		return NAME;
 	}
@@ -4,12 +4,14 @@ import java.net.URL;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import suite.distributed.DatabaseUtils;
+import suite.distributed.results.StateFingerprint;
 import suite.distributed.results.StateResult;
 import suite.distributed.results.WebsiteResult;
 
@@ -42,6 +44,12 @@ public class StateAnalysisMetric implements Metric {
 
 	private DatabaseUtils databaseUtils;
 
+	/**
+	 * The fingerprints of the states compared during apply, so each is decoded or computed once.
+	 */
+	private final Map<StateResult, Fingerprint> fingerprints =
+	        new IdentityHashMap<StateResult, Fingerprint>();
+
 	@Inject
 	public StateAnalysisMetric(DatabaseUtils databaseUtils, NearDuplicateDetection npd) {
 		// Configure a NearestDuplicateDetection for comparing the states
@@ -54,6 +62,15 @@ public class StateAnalysisMetric implements Metric {
 	 * StateResult of the benchmark-results to one of the
 	 */
 	public Collection<Statistic> apply(Collection<WebsiteResult> bw, Collection<WebsiteResult> tr) {
+		try {
+			return compare(bw, tr);
+		} finally {
+			fingerprints.clear();
+		}
+	}
+
+	private Collection<Statistic> compare(Collection<WebsiteResult> bw,
+	        Collection<WebsiteResult> tr) {
 		// Initialize needed variables
 		Collection<Statistic> result = new ArrayList<Statistic>();
 		int missedStates = 0, duplicateStates = 0, missedUniqueStates = 0, totalBenchmarkStates =
@@ -207,9 +224,7 @@ public class StateAnalysisMetric implements Metric {
 		for (StateResult state : states) {
 			try {
 				// For each state, calculate the distance from the source to the state.
-				double distance =
-				        nearDuplicateDetection.generateFingerprint(source.getDom()).getDistance(
-				                nearDuplicateDetection.generateFingerprint(state.getDom()));
+				double distance = fingerprintOf(source).getDistance(fingerprintOf(state));
 				// If the distance is better than the previous distance, hold current state.
 				if (distance <= nearDuplicateDetection.getDefaultThreshold()
 				        && distance < minDistance) {
@@ -223,6 +238,22 @@ public class StateAnalysisMetric implements Metric {
 		return result;
 	}
 
+	/**
+	 * Returns the fingerprint of a state: the one stored when the state was captured if it was made
+	 * by an equally configured detection, else it is computed from the DOM.
+	 */
+	private Fingerprint fingerprintOf(StateResult state) throws FeatureException {
+		Fingerprint fingerprint = fingerprints.get(state);
+		if (fingerprint == null) {
+			fingerprint = StateFingerprint.decode(nearDuplicateDetection, state.getFingerprint());
+			if (fingerprint == null) {
+				fingerprint = nearDuplicateDetection.generateFingerprint(state.getDom());
+			}
+			fingerprints.put(state, fingerprint);
+		}
+		return fingerprint;
+	}
+
 	/**
 	 * Removes relevant state for a given id
 	 * 
@@ -1,14 +1,23 @@
 package suite.crawljax;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import suite.crawljax.browser.BrowserPool;
+import suite.crawljax.browser.PooledBrowserProvider;
+import suite.crawljax.plugins.CpuTimePlugin;
+import suite.crawljax.plugins.FingerprintPlugin;
 import suite.crawljax.plugins.StoreDomPlugin;
+import suite.crawljax.plugins.StreamStatePlugin;
+import suite.distributed.results.CrawlProfile;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
@@ -17,13 +26,14 @@ import com.crawljax.core.configuration.BrowserConfiguration;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
 import com.crawljax.core.configuration.CrawljaxConfiguration.CrawljaxConfigurationBuilder;
 import com.crawljax.core.state.NDDStateVertexFactory;
-import com.crawljax.core.state.duplicatedetection.*;
+import com.crawljax.core.state.duplicatedetection.FeatureType;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetection;
+import com.crawljax.core.state.duplicatedetection.XxHashGenerator;
 import com.crawljax.domcomparators.AttributesStripper;
 import com.crawljax.domcomparators.DomStructureStripper;
 import com.crawljax.domcomparators.HeadStripper;
 import com.crawljax.domcomparators.RedundantWhiteSpaceStripper;
 import com.crawljax.plugins.crawloverview.CrawlOverview;
-import com.google.common.collect.ImmutableList;
 
 /**
  * Maps key-value entries to a Crawljax-configuration
@@ -31,14 +41,51 @@ import com.google.common.collect.ImmutableList;
 @Slf4j
 public class ConfigurationMapper {
 
-	private static final int FEATURE_SYNTAX_SIZE = 3;
-	private static final int FEATURE_INDEX_TYPE = 0;
-	private static final int FEATURE_INDEX_SIZE = 1;
-	private static final int FEATURE_INDEX_SUBTYPE = 2;
+	static final String BROWSERS_AUTO = "auto";
+	private static final long MEMORY_PER_BROWSER = 512L * 1024 * 1024;
 
 	private double threshold = -1;
-	private List<FeatureType> features;
+	private List<String> features;
 	private String ndd = "";
+	private BrowserType browserType = BrowserType.FIREFOX;
+	private int browsers = 1;
+	private boolean headless = false;
+	private Set<FusedDomStripper.Rule> stripperRules = null;
+	private final BrowserPool browserPool;
+	private final int concurrentCrawls;
+
+	/**
+	 * Maps configurations to crawls which launch their own browser.
+	 */
+	public ConfigurationMapper() {
+		this(null);
+	}
+
+	/**
+	 * Maps configurations to crawls which borrow their browser from a pool.
+	 * 
+	 * @param browserPool
+	 *            the pool to borrow browsers from, if null each crawl launches its own browser.
+	 */
+	public ConfigurationMapper(BrowserPool browserPool) {
+		this(browserPool, 1);
+	}
+
+	/**
+	 * Maps configurations to crawls which borrow their browser from a pool, while other crawls run
+	 * next to them.
+	 * 
+	 * @param browserPool
+	 *            the pool to borrow browsers from, if null each crawl launches its own browser.
+	 * @param concurrentCrawls
+	 *            the number of crawls running at the same time, which share the cores and memory
+	 *            when the number of browsers is auto.
+	 */
+	public ConfigurationMapper(BrowserPool browserPool, int concurrentCrawls) {
+		assert concurrentCrawls > 0;
+		this.browserPool = browserPool;
+		this.concurrentCrawls = concurrentCrawls;
+	}
 
 	/**
 	 * Sets up the crawljax-configuration for a given website, outputDir and additional args
@@ -52,16 +99,66 @@ public class ConfigurationMapper {
 	 * @return a crawljaxConfiguration for website, outputDir and additional args.
 	 */
 	public CrawljaxConfiguration convert(URL website, File outputDir, Map<String, String> args) {
+		return convert(website, outputDir, args, null);
+	}
 
-		features = new ArrayList<FeatureType>();
+	/**
+	 * Sets up the crawljax-configuration for a given website, outputDir and additional args, which
+	 * records the time spent in its phases in a profile.
+	 * 
+	 * @param website
+	 *            the website to be crawled
+	 * @param outputDir
+	 *            the output-folder
+	 * @param args
+	 *            the additional args
+	 * @param profile
+	 *            the profile of the crawl, if null nothing is measured.
+	 * @return a crawljaxConfiguration for website, outputDir and additional args.
+	 */
+	public CrawljaxConfiguration convert(URL website, File outputDir, Map<String, String> args,
+	        CrawlProfile profile) {
+		return convert(website, outputDir, args, profile, null);
+	}
+
+	/**
+	 * Sets up the crawljax-configuration for a given website, outputDir and additional args, which
+	 * records the time spent in its phases in a profile and streams its states to the database.
+	 * 
+	 * @param website
+	 *            the website to be crawled
+	 * @param outputDir
+	 *            the output-folder
+	 * @param args
+	 *            the additional args
+	 * @param profile
+	 *            the profile of the crawl, if null nothing is measured.
+	 * @param stream
+	 *            the plugin streaming the states, if null the states are uploaded after the crawl.
+	 * @return a crawljaxConfiguration for website, outputDir and additional args.
+	 */
+	public CrawljaxConfiguration convert(URL website, File outputDir, Map<String, String> args,
+	        CrawlProfile profile, StreamStatePlugin stream) {
+
+		features = new ArrayList<String>();
+		browserType = BrowserType.FIREFOX;
+		browsers = 1;
+		headless = false;
+		stripperRules = null;
 		CrawljaxConfigurationBuilder builder =
 		        CrawljaxConfiguration.builderFor(website.toString());
 		builder.setOutputDirectory(outputDir);
 
 		// Add plugins
 		builder.addPlugin(new CrawlOverview());
-		builder.addPlugin(new StoreDomPlugin());
-		builder.setBrowserConfig(new BrowserConfiguration(BrowserType.FIREFOX, 1));
+		builder.addPlugin(new StoreDomPlugin(profile));
+		if (profile != null) {
+			builder.addPlugin(new CpuTimePlugin(profile));
+		}
+		// after CrawlOverview, which saves the screenshots
+		if (stream != null) {
+			builder.addPlugin(stream);
+		}
 		builder.setStateVertexFactory(new NDDStateVertexFactory());
 
 		// arguments
@@ -74,27 +171,58 @@ public class ConfigurationMapper {
 				        e.getMessage());
 			}
 		}
+		NearDuplicateDetection detection = null;
 		if (!features.isEmpty() && threshold >= 0) {
-			builder.setNearDuplicateDetectionFactory(buildNearDuplicateDetectionFactory());
-			builder.addDomStripper(new HeadStripper());
-			builder.addDomStripper(new DomStructureStripper());
-			builder.addDomStripper(new AttributesStripper());
-			builder.addDomStripper(new RedundantWhiteSpaceStripper());
+			detection = buildNearDuplicateDetectionFactory();
+			if (profile != null) {
+				builder.setNearDuplicateDetectionFactory(ProfiledNearDuplicateDetection.wrap(
+				        detection, profile));
+			} else {
+				builder.setNearDuplicateDetectionFactory(detection);
+			}
+			if (stripperRules != null) {
+				builder.addDomStripper(new FusedDomStripper(stripperRules));
+			} else {
+				builder.addDomStripper(new HeadStripper());
+				builder.addDomStripper(new DomStructureStripper());
+				builder.addDomStripper(new AttributesStripper());
+				builder.addDomStripper(new RedundantWhiteSpaceStripper());
+			}
+		}
+		if (detection != null) {
+			builder.addPlugin(new FingerprintPlugin(detection, new XxHashGenerator()));
+		}
+		if (headless && browserType != BrowserType.PHANTOMJS) {
+			log.info("Crawling headless: using PhantomJS instead of {}", browserType);
+			browserType = BrowserType.PHANTOMJS;
 		}
-		return builder.build();
+		if (profile != null) {
+			profile.setBrowsers(browsers);
+		}
+		PooledBrowserProvider browserProvider = null;
+		if (browserPool != null && browserPool.supports(browserType)) {
+			browserProvider = new PooledBrowserProvider(browserPool, browserType);
+			browserProvider.setProfile(profile);
+			builder.setBrowserConfig(new BrowserConfiguration(browserType, browsers,
+			        browserProvider));
+		} else {
+			builder.setBrowserConfig(new BrowserConfiguration(browserType, browsers));
+		}
+		CrawljaxConfiguration config = builder.build();
+		if (browserProvider != null) {
+			browserProvider.setConfiguration(config);
+		}
+		return config;
 	}
 
+	/**
+	 * The detection is shared with all other crawls using the same settings.
+	 */
 	private NearDuplicateDetection buildNearDuplicateDetectionFactory() {
 		if (threshold < 0 || features == null)
 			throw new RuntimeException(
 			        "Failed to convert settings to valid NDD. Not all parameters where provided.");
-		if (ndd.equalsIgnoreCase("broder")) {
-			log.info("Build Broder NDD using parametes: {} and {}", threshold, features);
-			return new NearDuplicateDetectionBroder(threshold, ImmutableList.copyOf(features));
-		} else {
-			log.info("Build Crawlhash NDD using parametes: {} and {}", threshold, features);
-			return new NearDuplicateDetectionCrawlhash(threshold, ImmutableList.copyOf(features));
-		}
+		return NearDuplicateDetectionRegistry.getInstance().getDetection(ndd, threshold, features);
 	}
 
 	/**
@@ -129,29 +257,85 @@ public class ConfigurationMapper {
 			builder.crawlRules().waitAfterEvent(Long.parseLong(value), TimeUnit.MILLISECONDS);
 		} else if (key.equalsIgnoreCase("feature")) {
 			addFeature(value);
+		} else if (key.equalsIgnoreCase("browsers")) {
+			browsers = parseBrowsers(value);
+		} else if (key.equalsIgnoreCase("strippers")) {
+			stripperRules = FusedDomStripper.parseRules(value);
+		} else if (key.equalsIgnoreCase("headless")) {
+			headless = Boolean.parseBoolean(value.trim());
 		} else if (key.equalsIgnoreCase("b") || key.equalsIgnoreCase("browser")) {
-			for (BrowserType b : BrowserType.values()) {
-				if (b.name().equalsIgnoreCase(value)) {
-					builder.setBrowserConfig(new BrowserConfiguration(b, 1));
-				}
-			}
+			browserType = parseBrowserType(value, browserType);
 		} else {
 			log.warn("Undefined key in configuration: {}", key);
 		}
 	}
 
-	private void addFeature(String feature) {
-		String[] parts = feature.split(";");
-		if (parts.length < FEATURE_SYNTAX_SIZE) {
-			log.warn("Invalid syntax for feature {}. Syntax should be: FeatureType;size;type");
-			return;
+	/**
+	 * Resolves the browser-type of a crawl with the given settings, the same way as
+	 * {@link #convert(URL, File, Map)}: the browser-setting, or PhantomJS when crawling headless.
+	 * 
+	 * @param args
+	 *            the settings of the crawl
+	 * @return the browser-type used by the crawl
+	 */
+	public static BrowserType resolveBrowserType(Map<String, String> args) {
+		BrowserType type = BrowserType.FIREFOX;
+		boolean headless = false;
+		for (Entry<String, String> entry : args.entrySet()) {
+			String key = entry.getKey();
+			if (key.equalsIgnoreCase("b") || key.equalsIgnoreCase("browser")) {
+				type = parseBrowserType(entry.getValue(), type);
+			} else if (key.equalsIgnoreCase("headless")) {
+				headless = Boolean.parseBoolean(entry.getValue().trim());
+			}
+		}
+		return headless ? BrowserType.PHANTOMJS : type;
+	}
+
+	private static BrowserType parseBrowserType(String value, BrowserType current) {
+		for (BrowserType b : BrowserType.values()) {
+			if (b.name().equalsIgnoreCase(value)) {
+				return b;
+			}
 		}
-		if (parts[FEATURE_INDEX_TYPE].equalsIgnoreCase("FeatureShingles")) {
-			int index = Integer.valueOf(parts[FEATURE_INDEX_SUBTYPE]);
-			FeatureShingles.ShingleType fst = FeatureShingles.ShingleType.values()[index];
-			FeatureShingles ft =
-			        FeatureShingles.withSize(Integer.valueOf(parts[FEATURE_INDEX_SIZE]), fst);
-			features.add(ft);
+		return current;
+	}
+
+	/**
+	 * Parses the number of browsers of a crawl: a positive number, or auto to use a browser per
+	 * core of its share of the machine, as long as each browser has enough free memory.
+	 */
+	private int parseBrowsers(String value) {
+		if (value.trim().equalsIgnoreCase(BROWSERS_AUTO)) {
+			return autoBrowserCount(concurrentCrawls);
+		}
+		int count = Integer.parseInt(value.trim());
+		if (count < 1)
+			throw new IllegalArgumentException("The number of browsers should be at least 1.");
+		return count;
+	}
+
+	/**
+	 * @param concurrentCrawls
+	 *            the number of crawls dividing the cores and free memory among them
+	 * @return the number of browsers of a crawl, at least 1.
+	 */
+	static int autoBrowserCount(int concurrentCrawls) {
+		int cores = Runtime.getRuntime().availableProcessors() / concurrentCrawls;
+		long freeMemory = Runtime.getRuntime().maxMemory();
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			freeMemory =
+			        ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize();
+		}
+		long memory = freeMemory / concurrentCrawls;
+		return (int) Math.max(1, Math.min(cores, memory / MEMORY_PER_BROWSER));
+	}
+
+	private void addFeature(String feature) {
+		FeatureType ft = NearDuplicateDetectionRegistry.getInstance().getFeature(feature);
+		if (ft != null) {
+			features.add(feature);
 			log.info("Feature added: {}", ft);
 		}
 	}
@@ -0,0 +1,118 @@
+package suite.crawljax;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The CrawlHistory remembers how long the crawls of each website took in earlier local runs, so the
+ * websites expected to take longest can be crawled first. Starting the long crawls first shortens
+ * the total duration of a parallel run. The expected duration is a moving average of the durations
+ * of earlier crawls.
+ */
+@Slf4j
+public class CrawlHistory {
+
+	static final String HISTORY_FILE = "durations.properties";
+	private static final double WEIGHT_LATEST = 0.5;
+
+	private final File file;
+	private final Properties durations = new Properties();
+
+	/**
+	 * @param file
+	 *            the file in which the history is stored. If it does not exist, the history is
+	 *            empty.
+	 */
+	public CrawlHistory(File file) {
+		this.file = file;
+		if (file.isFile()) {
+			try (InputStream in = new FileInputStream(file)) {
+				durations.load(in);
+			} catch (IOException e) {
+				log.warn("Could not load the crawl-history {}: {}", file, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * @param url
+	 *            the website
+	 * @return the expected duration of a crawl of url in milliseconds, or -1 if it was never
+	 *         crawled.
+	 */
+	public synchronized long expectedDuration(String url) {
+		String duration = durations.getProperty(url);
+		if (duration == null)
+			return -1;
+		try {
+			return Long.parseLong(duration);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Registers the duration of a finished crawl.
+	 * 
+	 * @param url
+	 *            the crawled website
+	 * @param duration
+	 *            the duration of the crawl in milliseconds
+	 */
+	public synchronized void record(String url, long duration) {
+		long expected = expectedDuration(url);
+		long average =
+		        expected < 0 ? duration : Math.round(WEIGHT_LATEST * duration
+		                + (1 - WEIGHT_LATEST) * expected);
+		durations.setProperty(url, String.valueOf(average));
+	}
+
+	/**
+	 * Orders websites longest-expected first. Websites which were never crawled keep their order,
+	 * after the websites with a history.
+	 * 
+	 * @param urls
+	 *            the websites in their original order
+	 * @return the ordered websites
+	 */
+	public List<String> order(Collection<String> urls) {
+		List<String> ordered = new ArrayList<String>(urls);
+		// Collections.sort is stable, so websites with equal expectations keep their order
+		Collections.sort(ordered, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return Long.compare(expectedDuration(b), expectedDuration(a));
+			}
+		});
+		return ordered;
+	}
+
+	/**
+	 * Stores the history in its file.
+	 */
+	public synchronized void store() {
+		file.getParentFile().mkdirs();
+		try (OutputStream out = new FileOutputStream(file)) {
+			durations.store(out, "Expected crawl-durations in milliseconds");
+		} catch (IOException e) {
+			log.warn("Could not store the crawl-history {}: {}", file, e.getMessage());
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "CrawlHistory [file=" + file + ", websites=" + durations.size() + "]";
+	}
+}
@@ -4,22 +4,39 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.commons.validator.routines.UrlValidator;
 
+import suite.crawljax.browser.BrowserPool;
+import suite.crawljax.plugins.StreamStatePlugin;
+import suite.distributed.configuration.ConfigurationCache;
 import suite.distributed.configuration.ConfigurationDao;
 import suite.distributed.configuration.ConfigurationIni;
+import suite.distributed.results.CrawlProfile;
+import suite.distributed.results.StateStreamer;
 
+import com.crawljax.browser.EmbeddedBrowser.BrowserType;
 import com.crawljax.core.CrawljaxRunner;
 import com.crawljax.core.ExitNotifier.ExitStatus;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.google.inject.Inject;
 
 /**
  * SuiteManager is responsible for running the actual crawler. Therefore it deals with the arguments
@@ -31,8 +48,31 @@ public class CrawlManager {
 	static final File DEFAULT_OUTPUT_DIR = new File(System.getProperty("user.dir") + "/output");
 	static final String ARG_WEBSITE = "website";
 	static final String ARG_OUTPUTDIR = "outputdir";
+	private static final AtomicLong LAST_TIMESTAMP = new AtomicLong();
+	private static final AtomicInteger RUNNING_CRAWLS = new AtomicInteger();
 
-	private Queue<String> websiteQueue = new PriorityQueue<String>();
+	private Queue<String> websiteQueue = new LinkedList<String>();
+	private final BrowserPool browserPool;
+	private ConfigurationCache configurations;
+	private int concurrentCrawls = 1;
+
+	/**
+	 * CrawlManager which launches a new browser for each crawl.
+	 */
+	public CrawlManager() {
+		this(null);
+	}
+
+	/**
+	 * CrawlManager which reuses the browsers of a pool between crawls.
+	 * 
+	 * @param browserPool
+	 *            the pool to borrow browsers from, if null each crawl launches its own browser.
+	 */
+	@Inject
+	public CrawlManager(BrowserPool browserPool) {
+		this.browserPool = browserPool;
+	}
 
 	/**
 	 * Reads a file containing website (1 website per line) and adds them to the queue.
@@ -64,24 +104,104 @@ public class CrawlManager {
 	 * @return the outputdirs of the crawled websites
 	 */
 	public List<File> crawlWebsitesFromQueue() {
-		List<File> outputdirs = new ArrayList<File>(websiteQueue.size());
-		ConfigurationDao config = new ConfigurationIni();
+		return crawlWebsitesFromQueue(1);
+	}
+
+	/**
+	 * Crawl all websites in the queue, running up to parallel crawls at the same time. Each crawl
+	 * gets its own output-dir and browser, and the settings of the common section overridden by
+	 * those of its host. The resolved settings of a host are reused until the configuration
+	 * changes. The websites expected to take longest, according to
+	 * the durations of earlier runs, are crawled first; others in the order of the queue. The
+	 * progress is logged while crawling, and a timing-table of all sites once finished.
+	 * 
+	 * @param parallel
+	 *            the maximum number of concurrent crawls
+	 * @return the outputdirs of the crawled websites, in the order they were started.
+	 */
+	public List<File> crawlWebsitesFromQueue(int parallel) {
+		assert parallel > 0;
+		setConcurrentCrawls(parallel);
+		List<Future<File>> crawls = new ArrayList<Future<File>>(websiteQueue.size());
+		List<URL> started = new ArrayList<URL>(websiteQueue.size());
+		final CrawlSummary summary = new CrawlSummary(websiteQueue.size());
+		final CrawlHistory history =
+		        new CrawlHistory(new File(getOutputRoot(), CrawlHistory.HISTORY_FILE));
+		List<String> websites = new ArrayList<String>(websiteQueue.size());
 		while (!websiteQueue.isEmpty()) {
-			String rawUrl = websiteQueue.poll();
+			websites.add(websiteQueue.poll());
+		}
+		if (configurations == null) {
+			setConfiguration(new ConfigurationIni());
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(parallel);
+		for (String rawUrl : history.order(websites)) {
 			try {
-				URL website = new URL(rawUrl);
-				Map<String, String> args = config.getConfiguration(website.toString());
-				File outputDir = generateOutputDir(website);
-				runCrawler(website, outputDir, args);
-				outputdirs.add(outputDir);
+				final URL website = new URL(rawUrl);
+				final CrawlProfile profile = new CrawlProfile();
+				long start = System.currentTimeMillis();
+				final Map<String, String> args =
+				        configurations.resolve(website.getHost(), null).getSettings();
+				profile.setConfigurationTime(System.currentTimeMillis() - start);
+				final File outputDir = generateOutputDir(website);
+				if (crawls.isEmpty()) {
+					warmUpBrowsers(args, parallel);
+				}
+				started.add(website);
+				crawls.add(executor.submit(new Callable<File>() {
+					@Override
+					public File call() {
+						return crawlWebsite(website, outputDir, args, profile, summary, history);
+					}
+				}));
 			} catch (MalformedURLException e) {
 				log.error("Invalid URL provided: {}. Continuing with the next url. ", rawUrl);
 				log.debug("Exception caught while reading URL: {}", e.getMessage());
 			}
 		}
+		executor.shutdown();
+		List<File> outputdirs = new ArrayList<File>(crawls.size());
+		try {
+			for (int i = 0; i < crawls.size(); i++) {
+				try {
+					File outputDir = crawls.get(i).get();
+					if (outputDir != null) {
+						outputdirs.add(outputDir);
+					}
+				} catch (ExecutionException e) {
+					log.error("Unexpected failure of the crawl of {}: {}", started.get(i),
+					        e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			log.warn("Interrupted while crawling, cancelling the remaining crawls.");
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		history.store();
+		log.info("Summary of the crawled websites:{}{}", System.lineSeparator(), summary.toTable());
 		return outputdirs;
 	}
 
+	private File crawlWebsite(URL website, File outputDir, Map<String, String> args,
+	        CrawlProfile profile, CrawlSummary summary, CrawlHistory history) {
+		long start = System.currentTimeMillis();
+		boolean success = false;
+		try {
+			success = runCrawler(website, outputDir, args, profile);
+			return outputDir;
+		} catch (RuntimeException e) {
+			log.error("Crawl of {} failed: {}", website, e.getMessage());
+			return null;
+		} finally {
+			long duration = System.currentTimeMillis() - start;
+			summary.finished(website, outputDir, duration, success);
+			if (success) {
+				history.record(website.toString(), duration);
+			}
+		}
+	}
+
 	/**
 	 * Generate a unique outputdir-name for a website
 	 * 
@@ -90,9 +210,50 @@ public class CrawlManager {
 	 * @return unique name for the dir
 	 */
 	public File generateOutputDir(URL website) {
-		Date date = new Date();
-		Timestamp timestamp = new Timestamp(date.getTime());
-		return new File(DEFAULT_OUTPUT_DIR + "/" + website.getHost() + "-" + timestamp.getTime());
+		return new File(DEFAULT_OUTPUT_DIR + "/" + website.getHost() + "-" + uniqueTimestamp());
+	}
+
+	/**
+	 * Concurrent crawls of the same host could be started within the same millisecond, so the
+	 * timestamp is bumped past the last one handed out.
+	 */
+	private static long uniqueTimestamp() {
+		long now = new Date().getTime();
+		long last = LAST_TIMESTAMP.get();
+		while (!LAST_TIMESTAMP.compareAndSet(last, Math.max(now, last + 1))) {
+			last = LAST_TIMESTAMP.get();
+		}
+		return Math.max(now, last + 1);
+	}
+
+	/**
+	 * Sets the configuration from which the settings of the local crawls are resolved. By default
+	 * the local INI-file is used.
+	 * 
+	 * @param config
+	 *            the configuration of the local crawls
+	 */
+	public void setConfiguration(ConfigurationDao config) {
+		this.configurations = new ConfigurationCache(config);
+	}
+
+	/**
+	 * Sets the number of crawls running at the same time, among which the cores and memory are
+	 * divided when a crawl sets its number of browsers to auto. By default 1.
+	 * 
+	 * @param concurrentCrawls
+	 *            the number of concurrent crawls
+	 */
+	public void setConcurrentCrawls(int concurrentCrawls) {
+		assert concurrentCrawls > 0;
+		this.concurrentCrawls = concurrentCrawls;
+	}
+
+	/**
+	 * @return the directory in which the output-dirs are generated.
+	 */
+	public File getOutputRoot() {
+		return DEFAULT_OUTPUT_DIR;
 	}
 
 	/**
@@ -107,16 +268,135 @@ public class CrawlManager {
 	 * @return true if the crawl finished succesfull
 	 */
 	public boolean runCrawler(URL website, File outputdir, Map<String, String> args) {
+		return runCrawler(website, outputdir, args, new CrawlProfile());
+	}
+
+	/**
+	 * Run CrawlJax for a given set of args, recording the time and resources spent in a profile.
+	 * The profile is stored in the outputdir once the crawl has finished.
+	 * 
+	 * @param website
+	 *            The website to crawl
+	 * @param outputdir
+	 *            The location to store the results
+	 * @param args
+	 *            arguments which need to be send to crawljax.
+	 * @param profile
+	 *            the profile of the crawl
+	 * @return true if the crawl finished succesfull
+	 */
+	public boolean runCrawler(URL website, File outputdir, Map<String, String> args,
+	        CrawlProfile profile) {
+		return runCrawler(website, outputdir, args, profile, null);
+	}
+
+	/**
+	 * Run CrawlJax for a given set of args like {@link #runCrawler(URL, File, Map, CrawlProfile)},
+	 * handing each new state to a streamer.
+	 * 
+	 * @param website
+	 *            The website to crawl
+	 * @param outputdir
+	 *            The location to store the results
+	 * @param args
+	 *            arguments which need to be send to crawljax.
+	 * @param profile
+	 *            the profile of the crawl
+	 * @param streamer
+	 *            the started streamer uploading the states, if null nothing is streamed.
+	 * @return true if the crawl finished succesfull
+	 */
+	public boolean runCrawler(URL website, File outputdir, Map<String, String> args,
+	        CrawlProfile profile, StateStreamer streamer) {
 		CrawljaxConfiguration config =
-		        new ConfigurationMapper().convert(website, outputdir, args);
+		        new ConfigurationMapper(browserPool, concurrentCrawls).convert(website, outputdir,
+		                args, profile, streamer != null ? new StreamStatePlugin(streamer) : null);
 
 		CrawljaxRunner runner = new CrawljaxRunner(config);
-		runner.call();
+		long cpuStart = threadCpuTime();
+		// the peak of the JVM is shared, so it is only reset when no other crawl is measuring it
+		if (RUNNING_CRAWLS.incrementAndGet() == 1) {
+			resetPeakHeap();
+		}
+		long start = System.currentTimeMillis();
+		try {
+			runner.call();
+		} finally {
+			RUNNING_CRAWLS.decrementAndGet();
+		}
+		profile.setCrawlTime(System.currentTimeMillis() - start);
+		// the crawler-threads add their own CPU-time through the CpuTimePlugin
+		profile.addCpuNanos(threadCpuTime() - cpuStart);
+		profile.setPeakHeap(peakHeap());
+		profile.store(outputdir);
 		ExitStatus reason = runner.getReason();
 		log.debug("Finished crawling {}. Reason: {}", args.get(ARG_WEBSITE), reason.toString());
+		log.info("Profile of {}: {}", website, profile);
 		return !reason.equals(ExitStatus.ERROR);
 	}
 
+	/**
+	 * @return the CPU-time used by the current thread in nanoseconds, or 0 if not supported.
+	 */
+	private static long threadCpuTime() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads.isCurrentThreadCpuTimeSupported()) {
+			return Math.max(0, threads.getCurrentThreadCpuTime());
+		}
+		return 0;
+	}
+
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * Launches browsers ahead of the crawls, if a browser pool is used. The browsers are of the
+	 * type the settings resolve to, which is PhantomJS when crawling headless.
+	 * 
+	 * @param settings
+	 *            the settings of the first crawl
+	 * @param count
+	 *            the number of browsers to launch
+	 */
+	public void warmUpBrowsers(Map<String, String> settings, int count) {
+		if (browserPool != null) {
+			BrowserType type = ConfigurationMapper.resolveBrowserType(settings);
+			if (!browserPool.supports(type)) {
+				log.info("Browsers of type {} are not pooled, so not launched ahead.", type);
+				return;
+			}
+			try {
+				browserPool.warmUp(type, count);
+			} catch (RuntimeException e) {
+				log.error("Failed to launch browsers ahead: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Quits the browsers of the pool, if a browser pool is used.
+	 */
+	public void closeBrowsers() {
+		if (browserPool != null) {
+			browserPool.close();
+		}
+	}
+
 	/**
 	 * Get website-queue.
 	 * 
@@ -0,0 +1,104 @@
+package suite.crawljax;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps track of the progress of a local run, and summarizes the crawled sites in a timing-table
+ * once the run has finished. Crawls may finish concurrently.
+ */
+@Slf4j
+public class CrawlSummary {
+
+	private static final String ROW_FORMAT = "%-50s %-8s %10s  %s%n";
+
+	private final int total;
+	private final long start = System.currentTimeMillis();
+	private final List<SiteResult> results = new ArrayList<SiteResult>();
+	private int failed = 0;
+
+	/**
+	 * @param total
+	 *            the number of sites to crawl
+	 */
+	public CrawlSummary(int total) {
+		this.total = total;
+	}
+
+	/**
+	 * Registers a finished crawl and logs the progress of the run.
+	 * 
+	 * @param website
+	 *            the crawled website
+	 * @param outputDir
+	 *            the output-dir of the crawl
+	 * @param duration
+	 *            the duration of the crawl in milliseconds
+	 * @param success
+	 *            true if the crawl finished successfully
+	 */
+	public synchronized void finished(URL website, File outputDir, long duration, boolean success) {
+		results.add(new SiteResult(website, outputDir, duration, success));
+		if (!success) {
+			failed++;
+		}
+		log.info("Progress: {}/{} sites crawled ({} failed), {} seconds elapsed.", results.size(),
+		        total, failed, (System.currentTimeMillis() - start) / 1000);
+	}
+
+	/**
+	 * @return the number of finished crawls.
+	 */
+	public synchronized int getFinished() {
+		return results.size();
+	}
+
+	/**
+	 * @return the number of failed crawls.
+	 */
+	public synchronized int getFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return a table with the result and duration of each crawl, in the order they finished.
+	 */
+	public synchronized String toTable() {
+		StringBuilder table = new StringBuilder();
+		table.append(String.format(ROW_FORMAT, "Website", "Result", "Duration", "Output"));
+		long crawlTime = 0;
+		for (SiteResult result : results) {
+			crawlTime += result.getDuration();
+			table.append(String.format(ROW_FORMAT, result.getWebsite(), result.isSuccess() ? "OK"
+			        : "FAILED", seconds(result.getDuration()), result.getOutputDir()));
+		}
+		table.append(String.format("%d/%d sites crawled (%d failed) in %s, total crawl-time %s%n",
+		        results.size(), total, failed, seconds(System.currentTimeMillis() - start),
+		        seconds(crawlTime)));
+		return table.toString();
+	}
+
+	private static String seconds(long millis) {
+		return String.format(Locale.ROOT, "%.1fs", millis / 1000.0);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "CrawlSummary [finished=" + results.size() + ", total=" + total + ", failed="
+		        + failed + "]";
+	}
+
+	@Data
+	private static class SiteResult {
+		private final URL website;
+		private final File outputDir;
+		private final long duration;
+		private final boolean success;
+	}
+}
@@ -0,0 +1,241 @@
+package suite.crawljax;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+import com.crawljax.domcomparators.DomStripper;
+
+/**
+ * Strips a DOM in a single pass, instead of a pass per stripper. The rules mirror the HeadStripper,
+ * DomStructureStripper, AttributesStripper and RedundantWhiteSpaceStripper of Crawljax, and can be
+ * selected separately:
+ * <ul>
+ * <li>HEAD removes the head-element and its contents.</li>
+ * <li>STRUCTURE removes text and comments, keeping only the elements.</li>
+ * <li>ATTRIBUTES removes the attributes of all elements.</li>
+ * <li>WHITESPACE collapses whitespace into a single space, and removes it between elements.</li>
+ * </ul>
+ * The contents of script- and style-elements are treated as text. The output is not guaranteed to
+ * be identical to the chain of Crawljax-strippers, so crawls only use it when the strippers-setting
+ * selects its rules; see DomStripperBenchmark for a comparison.
+ */
+public class FusedDomStripper implements DomStripper {
+
+	/**
+	 * The transformations applied by the stripper.
+	 */
+	public enum Rule {
+		HEAD, STRUCTURE, ATTRIBUTES, WHITESPACE
+	}
+
+	private static final String COMMENT_START = "<!--";
+	private static final String COMMENT_END = "-->";
+
+	private final boolean head;
+	private final boolean structure;
+	private final boolean attributes;
+	private final boolean whitespace;
+
+	/**
+	 * Strips the DOM using all rules.
+	 */
+	public FusedDomStripper() {
+		this(EnumSet.allOf(Rule.class));
+	}
+
+	/**
+	 * @param rules
+	 *            the rules to apply
+	 */
+	public FusedDomStripper(Set<Rule> rules) {
+		this.head = rules.contains(Rule.HEAD);
+		this.structure = rules.contains(Rule.STRUCTURE);
+		this.attributes = rules.contains(Rule.ATTRIBUTES);
+		this.whitespace = rules.contains(Rule.WHITESPACE);
+	}
+
+	/**
+	 * Parses a comma-separated list of rules, such as "head,attributes".
+	 * 
+	 * @param value
+	 *            the names of the rules, case-insensitive
+	 * @return the rules
+	 * @throws IllegalArgumentException
+	 *             one of the names is not a rule
+	 */
+	public static Set<Rule> parseRules(String value) {
+		Set<Rule> rules = EnumSet.noneOf(Rule.class);
+		for (String name : value.split(",")) {
+			if (!name.trim().isEmpty()) {
+				rules.add(Rule.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+			}
+		}
+		return rules;
+	}
+
+	@Override
+	public String strip(String dom) {
+		if (dom == null)
+			return null;
+		StringBuilder out = new StringBuilder(dom.length());
+		int length = dom.length();
+		int i = 0;
+		while (i < length) {
+			if (dom.charAt(i) != '<') {
+				int end = dom.indexOf('<', i);
+				end = end < 0 ? length : end;
+				appendText(out, dom, i, end);
+				i = end;
+			} else if (dom.startsWith(COMMENT_START, i)) {
+				int end = dom.indexOf(COMMENT_END, i + COMMENT_START.length());
+				end = end < 0 ? length : end + COMMENT_END.length();
+				if (!structure) {
+					appendMarkup(out, dom, i, end);
+				}
+				i = end;
+			} else {
+				i = appendTag(out, dom, i);
+			}
+		}
+		return whitespace ? out.toString().trim() : out.toString();
+	}
+
+	/**
+	 * Appends the tag starting at start, and skips the contents of head-, script- and
+	 * style-elements where needed.
+	 * 
+	 * @return the index after the tag, or after the skipped contents.
+	 */
+	private int appendTag(StringBuilder out, String dom, int start) {
+		int end = tagEnd(dom, start);
+		if (end < 0) {
+			appendText(out, dom, start, dom.length());
+			return dom.length();
+		}
+		boolean closing = start + 1 < end && dom.charAt(start + 1) == '/';
+		int nameStart = closing ? start + 2 : start + 1;
+		int nameEnd = nameStart;
+		while (nameEnd < end && isNameChar(dom.charAt(nameEnd))) {
+			nameEnd++;
+		}
+		String name = dom.substring(nameStart, nameEnd).toLowerCase(Locale.ROOT);
+		boolean selfClosing = dom.charAt(end - 1) == '/';
+		if (head && !closing && name.equals("head")) {
+			int close = indexOfIgnoreCase(dom, "</head", end);
+			return close < 0 ? dom.length() : skipTag(dom, close);
+		}
+		if (whitespace) {
+			trimTrailingSpace(out);
+		}
+		// declarations such as <!DOCTYPE html> have no attributes to strip
+		if (attributes && !name.isEmpty() && Character.isLetter(name.charAt(0))) {
+			out.append(closing ? "</" : "<").append(name).append(selfClosing ? "/>" : ">");
+		} else {
+			appendMarkup(out, dom, start, end + 1);
+		}
+		if (!closing && !selfClosing && (name.equals("script") || name.equals("style"))) {
+			int close = indexOfIgnoreCase(dom, "</" + name, end + 1);
+			close = close < 0 ? dom.length() : close;
+			appendText(out, dom, end + 1, close);
+			return close;
+		}
+		return end + 1;
+	}
+
+	private void appendText(StringBuilder out, String dom, int start, int end) {
+		if (structure)
+			return;
+		if (!whitespace) {
+			out.append(dom, start, end);
+			return;
+		}
+		boolean space = false;
+		for (int i = start; i < end; i++) {
+			char c = dom.charAt(i);
+			if (Character.isWhitespace(c)) {
+				space = true;
+			} else {
+				if (space && out.length() > 0 && out.charAt(out.length() - 1) != '>') {
+					out.append(' ');
+				}
+				space = false;
+				out.append(c);
+			}
+		}
+	}
+
+	private void appendMarkup(StringBuilder out, String dom, int start, int end) {
+		if (!whitespace) {
+			out.append(dom, start, end);
+			return;
+		}
+		boolean space = false;
+		for (int i = start; i < end; i++) {
+			char c = dom.charAt(i);
+			if (Character.isWhitespace(c)) {
+				space = true;
+			} else {
+				if (space) {
+					out.append(' ');
+				}
+				space = false;
+				out.append(c);
+			}
+		}
+	}
+
+	private static void trimTrailingSpace(StringBuilder out) {
+		int length = out.length();
+		while (length > 0 && Character.isWhitespace(out.charAt(length - 1))) {
+			length--;
+		}
+		out.setLength(length);
+	}
+
+	/**
+	 * @return the index of the closing '&gt;' of the tag starting at start, ignoring quoted
+	 *         attribute values, or -1 if the tag is not closed.
+	 */
+	private static int tagEnd(String dom, int start) {
+		char quote = 0;
+		for (int i = start + 1; i < dom.length(); i++) {
+			char c = dom.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == '>') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int skipTag(String dom, int start) {
+		int end = tagEnd(dom, start);
+		return end < 0 ? dom.length() : end + 1;
+	}
+
+	private static boolean isNameChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '-' || c == ':' || c == '_' || c == '!'
+		        || c == '?';
+	}
+
+	private static int indexOfIgnoreCase(String dom, String search, int from) {
+		for (int i = from; i <= dom.length() - search.length(); i++) {
+			if (dom.regionMatches(true, i, search, 0, search.length())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return "FusedDomStripper [head=" + head + ", structure=" + structure + ", attributes="
+		        + attributes + ", whitespace=" + whitespace + "]";
+	}
+}
@@ -0,0 +1,153 @@
+package suite.crawljax;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.crawljax.core.state.duplicatedetection.FeatureShingles;
+import com.crawljax.core.state.duplicatedetection.FeatureType;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetection;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetectionBroder;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetectionCrawlhash;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The NearDuplicateDetectionRegistry interns near-duplicate detections and their features, so a
+ * detection with the same algorithm, threshold and features is built once per JVM and shared by
+ * all crawls. Sharing is safe because Crawljax already calls one detection from all crawler-threads
+ * of a crawl: its threshold and features are fixed when it is built, and a fingerprint only depends
+ * on the DOM passed in. The registry never changes a detection after building it. Only the most
+ * recently used detections are kept, so sweeping over many thresholds does not grow the registry.
+ */
+@Slf4j
+public final class NearDuplicateDetectionRegistry {
+
+	static final String ALGORITHM_BRODER = "broder";
+	static final String ALGORITHM_CRAWLHASH = "crawlhash";
+	private static final int FEATURE_SYNTAX_SIZE = 3;
+	private static final int FEATURE_INDEX_TYPE = 0;
+	private static final int FEATURE_INDEX_SIZE = 1;
+	private static final int FEATURE_INDEX_SUBTYPE = 2;
+	static final int MAX_DETECTIONS = 32;
+	private static final NearDuplicateDetectionRegistry INSTANCE =
+	        new NearDuplicateDetectionRegistry();
+
+	private final ConcurrentMap<String, FeatureType> features =
+	        new ConcurrentHashMap<String, FeatureType>();
+	private final LoadingCache<List<Object>, NearDuplicateDetection> detections;
+
+	NearDuplicateDetectionRegistry() {
+		detections =
+		        CacheBuilder.newBuilder().maximumSize(MAX_DETECTIONS).build(new DetectionLoader());
+	}
+
+	/**
+	 * @return the registry shared by all crawls in this JVM.
+	 */
+	public static NearDuplicateDetectionRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Parses a feature with the syntax FeatureType;size;type, such as FeatureShingles;1;0.
+	 * 
+	 * @param feature
+	 *            the feature to parse
+	 * @return the feature, or null if the feature-type is not supported.
+	 * @throws IllegalArgumentException
+	 *             the syntax of the feature is invalid
+	 */
+	public FeatureType getFeature(String feature) {
+		FeatureType featureType = features.get(feature);
+		if (featureType == null) {
+			featureType = parseFeature(feature);
+			if (featureType != null) {
+				FeatureType interned = features.putIfAbsent(feature, featureType);
+				featureType = interned != null ? interned : featureType;
+			}
+		}
+		return featureType;
+	}
+
+	/**
+	 * Returns the near-duplicate detection for the algorithm, threshold and features, building it
+	 * only if it was not requested before.
+	 * 
+	 * @param algorithm
+	 *            broder, or else crawlhash is used
+	 * @param threshold
+	 *            the threshold of the detection
+	 * @param featureList
+	 *            the features, as accepted by getFeature
+	 * @return the shared near-duplicate detection
+	 */
+	public NearDuplicateDetection getDetection(String algorithm, double threshold,
+	        List<String> featureList) {
+		String name =
+		        ALGORITHM_BRODER.equalsIgnoreCase(algorithm) ? ALGORITHM_BRODER
+		                : ALGORITHM_CRAWLHASH;
+		List<Object> key =
+		        ImmutableList.<Object> of(name, threshold, ImmutableList.copyOf(featureList));
+		return detections.getUnchecked(key);
+	}
+
+	/**
+	 * @return the number of distinct detections kept.
+	 */
+	public int size() {
+		return (int) detections.size();
+	}
+
+	private NearDuplicateDetection build(String name, double threshold, List<String> featureList) {
+		ImmutableList.Builder<FeatureType> featureTypes = ImmutableList.builder();
+		for (String feature : featureList) {
+			FeatureType featureType = getFeature(feature);
+			if (featureType != null) {
+				featureTypes.add(featureType);
+			}
+		}
+		if (name.equals(ALGORITHM_BRODER)) {
+			log.info("Build Broder NDD using parametes: {} and {}", threshold, featureList);
+			return new NearDuplicateDetectionBroder(threshold, featureTypes.build());
+		} else {
+			log.info("Build Crawlhash NDD using parametes: {} and {}", threshold, featureList);
+			return new NearDuplicateDetectionCrawlhash(threshold, featureTypes.build());
+		}
+	}
+
+	private static FeatureType parseFeature(String feature) {
+		String[] parts = feature.split(";");
+		if (parts.length < FEATURE_SYNTAX_SIZE) {
+			throw new IllegalArgumentException("Invalid syntax for feature " + feature
+			        + ". Syntax should be: FeatureType;size;type");
+		}
+		if (parts[FEATURE_INDEX_TYPE].equalsIgnoreCase("FeatureShingles")) {
+			int index = Integer.valueOf(parts[FEATURE_INDEX_SUBTYPE]);
+			FeatureShingles.ShingleType fst = FeatureShingles.ShingleType.values()[index];
+			return FeatureShingles.withSize(Integer.valueOf(parts[FEATURE_INDEX_SIZE]), fst);
+		}
+		return null;
+	}
+
+	/**
+	 * Builds a detection from its key of algorithm, threshold and features.
+	 */
+	private class DetectionLoader extends CacheLoader<List<Object>, NearDuplicateDetection> {
+		@Override
+		@SuppressWarnings("unchecked")
+		public NearDuplicateDetection load(List<Object> key) {
+			return build((String) key.get(0), (Double) key.get(1), (List<String>) key.get(2));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "NearDuplicateDetectionRegistry [features=" + features.size() + ", detections="
+		        + detections.size() + "]";
+	}
+}
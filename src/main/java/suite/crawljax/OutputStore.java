@@ -0,0 +1,299 @@
+package suite.crawljax;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The OutputStore keeps the output-dirs of a worker within a size budget. The output root is
+ * scanned once on open(); afterwards the store keeps its own index of the output and its size.
+ * Output which is still being crawled, or of which the upload is pending, is kept. All other output
+ * is released: it is packed into a compressed archive if archiving is enabled, and the least
+ * recently used output is removed once the budget is exceeded.
+ */
+@Slf4j
+public class OutputStore {
+
+	/**
+	 * A budget of 0 bytes means the output is never removed.
+	 */
+	public static final long UNLIMITED = 0;
+	static final String ARCHIVE_EXTENSION = ".zip";
+	private static final String ARCHIVE_TEMP_EXTENSION = ".zip.tmp";
+
+	private final File root;
+	@Getter
+	private final long budget;
+	private final boolean archive;
+	private final String pinFile;
+
+	private final Map<File, Output> index = new HashMap<File, Output>();
+	private final Set<File> active = new HashSet<File>();
+	private final Set<File> packing = new HashSet<File>();
+	@Getter
+	private long size = 0;
+
+	/**
+	 * @param root
+	 *            the directory containing the output-dirs
+	 * @param budget
+	 *            the maximum size of the output in bytes, or UNLIMITED.
+	 * @param archive
+	 *            if true, released output-dirs are packed into a compressed archive
+	 * @param pinFile
+	 *            the name of the file marking an output-dir which has to be kept, such as a pending
+	 *            upload
+	 */
+	public OutputStore(File root, long budget, boolean archive, String pinFile) {
+		assert budget >= 0;
+		this.root = root;
+		this.budget = budget;
+		this.archive = archive;
+		this.pinFile = pinFile;
+	}
+
+	/**
+	 * Indexes the output already present in the root, and releases what is no longer needed.
+	 */
+	public void open() {
+		synchronized (this) {
+			index.clear();
+			size = 0;
+			File[] files = root != null ? root.listFiles() : null;
+			if (files != null) {
+				for (File file : files) {
+					if (file.isDirectory() || file.getName().endsWith(ARCHIVE_EXTENSION)) {
+						add(file, file.lastModified());
+					} else if (file.getName().endsWith(ARCHIVE_TEMP_EXTENSION)) {
+						file.delete();
+					}
+				}
+			}
+			log.info("Indexed {} output(s) of {} bytes in {}", index.size(), size, root);
+		}
+		compact();
+	}
+
+	/**
+	 * Registers an output-dir which is being crawled, so it is kept until the crawl has finished.
+	 * 
+	 * @param dir
+	 *            the output-dir of the crawl
+	 */
+	public synchronized void crawling(File dir) {
+		active.add(dir);
+	}
+
+	/**
+	 * Registers an output-dir of which the crawl has finished, and releases the output which is no
+	 * longer needed. The output-dir itself is kept as long as its upload is pending.
+	 * 
+	 * @param dir
+	 *            the output-dir of the crawl
+	 */
+	public void finished(File dir) {
+		synchronized (this) {
+			active.remove(dir);
+			remove(dir);
+			if (dir.exists()) {
+				add(dir, System.currentTimeMillis());
+			}
+		}
+		compact();
+	}
+
+	/**
+	 * Archives the released output-dirs if archiving is enabled, and removes the least recently
+	 * used released output until the size is within the budget. The output-dirs are packed without
+	 * holding the lock, so crawls can register their output meanwhile.
+	 */
+	public void compact() {
+		Map<File, File> archives = new HashMap<File, File>();
+		for (File dir : startPacking()) {
+			archives.put(dir, pack(dir));
+		}
+		for (File dir : finishPacking(archives)) {
+			try {
+				FileUtils.deleteDirectory(dir);
+			} catch (IOException e) {
+				log.warn("Could not remove archived output-dir {}: {}", dir, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * @return the released output-dirs to pack, which are marked as being packed.
+	 */
+	private synchronized List<File> startPacking() {
+		List<File> dirs = new ArrayList<File>();
+		if (!archive)
+			return dirs;
+		for (File file : index.keySet()) {
+			if (file.isDirectory() && !packing.contains(file) && isReleased(file)) {
+				dirs.add(file);
+			}
+		}
+		packing.addAll(dirs);
+		return dirs;
+	}
+
+	/**
+	 * Indexes the archives in place of their output-dirs, and evicts output over the budget. An
+	 * archive is dropped if its output-dir was taken into use again while it was packed.
+	 * 
+	 * @param archives
+	 *            the archive of each packed output-dir, or null if it could not be packed
+	 * @return the archived output-dirs, which can be removed.
+	 */
+	private synchronized List<File> finishPacking(Map<File, File> archives) {
+		List<File> archived = new ArrayList<File>();
+		for (Map.Entry<File, File> entry : archives.entrySet()) {
+			File dir = entry.getKey();
+			File packed = entry.getValue();
+			packing.remove(dir);
+			if (packed == null)
+				continue;
+			Output output = index.get(dir);
+			if (output == null || !isReleased(dir)) {
+				packed.delete();
+				continue;
+			}
+			remove(dir);
+			add(packed, output.getLastUsed());
+			archived.add(dir);
+			log.debug("Archived {} into {}", dir, packed);
+		}
+		evict();
+		return archived;
+	}
+
+	private void evict() {
+		if (budget == UNLIMITED || size <= budget)
+			return;
+		List<Output> released = new ArrayList<Output>();
+		for (Output output : index.values()) {
+			if (!packing.contains(output.getFile()) && isReleased(output.getFile())) {
+				released.add(output);
+			}
+		}
+		Collections.sort(released, new Comparator<Output>() {
+			@Override
+			public int compare(Output a, Output b) {
+				return Long.compare(a.getLastUsed(), b.getLastUsed());
+			}
+		});
+		for (Output output : released) {
+			if (size <= budget)
+				break;
+			try {
+				FileUtils.forceDelete(output.getFile());
+				remove(output.getFile());
+				log.info("Removed {} to stay within the output budget.", output.getFile());
+			} catch (IOException e) {
+				log.warn("Could not remove {}: {}", output.getFile(), e.getMessage());
+			}
+		}
+		if (size > budget) {
+			log.warn("Output of {} bytes exceeds the budget of {} bytes; the rest is in use.",
+			        size, budget);
+		}
+	}
+
+	/**
+	 * @return the number of indexed output-dirs and archives.
+	 */
+	public synchronized int getCount() {
+		return index.size();
+	}
+
+	private boolean isReleased(File file) {
+		return !active.contains(file) && !new File(file, pinFile).exists();
+	}
+
+	/**
+	 * Packs an output-dir into an archive next to it. The output-dir itself is left in place.
+	 * 
+	 * @return the archive, or null if the output-dir could not be packed.
+	 */
+	private File pack(File dir) {
+		File temp = new File(root, dir.getName() + ARCHIVE_TEMP_EXTENSION);
+		File packed = new File(root, dir.getName() + ARCHIVE_EXTENSION);
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(temp))) {
+			addToArchive(zip, dir, dir.getName() + "/");
+		} catch (IOException e) {
+			log.warn("Could not archive {}: {}", dir, e.getMessage());
+			temp.delete();
+			return null;
+		}
+		if (!temp.renameTo(packed)) {
+			log.warn("Could not move the archive of {} in place.", dir);
+			temp.delete();
+			return null;
+		}
+		return packed;
+	}
+
+	private static void addToArchive(ZipOutputStream zip, File dir, String path)
+	        throws IOException {
+		File[] files = dir.listFiles();
+		if (files == null)
+			return;
+		for (File file : files) {
+			if (file.isDirectory()) {
+				addToArchive(zip, file, path + file.getName() + "/");
+			} else {
+				zip.putNextEntry(new ZipEntry(path + file.getName()));
+				try (InputStream in = new FileInputStream(file)) {
+					IOUtils.copy(in, zip);
+				}
+				zip.closeEntry();
+			}
+		}
+	}
+
+	private Output add(File file, long lastUsed) {
+		Output output = new Output(file, FileUtils.sizeOf(file), lastUsed);
+		index.put(file, output);
+		size += output.getSize();
+		return output;
+	}
+
+	private void remove(File file) {
+		Output output = index.remove(file);
+		if (output != null) {
+			size -= output.getSize();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "OutputStore [root=" + root + ", budget=" + budget + ", archive=" + archive
+		        + ", outputs=" + index.size() + ", size=" + size + "]";
+	}
+
+	@Data
+	private static class Output {
+		private final File file;
+		private final long size;
+		private final long lastUsed;
+	}
+}
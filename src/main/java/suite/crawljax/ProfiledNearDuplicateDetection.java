@@ -0,0 +1,51 @@
+package suite.crawljax;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import suite.distributed.results.CrawlProfile;
+
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetection;
+
+/**
+ * Adds the time spent in a near-duplicate-detection to the profile of the crawl, by wrapping it in
+ * a proxy which times every call.
+ */
+public class ProfiledNearDuplicateDetection implements InvocationHandler {
+
+	private final NearDuplicateDetection ndd;
+	private final CrawlProfile profile;
+
+	private ProfiledNearDuplicateDetection(NearDuplicateDetection ndd, CrawlProfile profile) {
+		this.ndd = ndd;
+		this.profile = profile;
+	}
+
+	/**
+	 * @param ndd
+	 *            the near-duplicate-detection to time
+	 * @param profile
+	 *            the profile to add the time to
+	 * @return a near-duplicate-detection which behaves the same as ndd.
+	 */
+	public static NearDuplicateDetection wrap(NearDuplicateDetection ndd, CrawlProfile profile) {
+		return (NearDuplicateDetection) Proxy.newProxyInstance(
+		        NearDuplicateDetection.class.getClassLoader(),
+		        new Class<?>[] { NearDuplicateDetection.class },
+		        new ProfiledNearDuplicateDetection(ndd, profile));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		long start = System.nanoTime();
+		try {
+			return method.invoke(ndd, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			profile.addNearDuplicateDetectionNanos(System.nanoTime() - start);
+		}
+	}
+}
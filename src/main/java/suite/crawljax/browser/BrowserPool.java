@@ -0,0 +1,257 @@
+package suite.crawljax.browser;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.ie.InternetExplorerDriver;
+import org.openqa.selenium.phantomjs.PhantomJSDriver;
+
+import com.crawljax.browser.EmbeddedBrowser.BrowserType;
+import com.google.inject.Singleton;
+
+/**
+ * Worker-level pool of launched browsers, keyed by BrowserType. Borrowed browsers are returned to
+ * the pool when Crawljax quits them. On return, cookies and storage are cleared; browsers which
+ * fail the health-check or reached their maximum number of uses are recycled.
+ */
+@Slf4j
+@Singleton
+public class BrowserPool {
+
+	private static final int DEFAULT_MAX_USES = 10;
+	private static final String BLANK_PAGE = "about:blank";
+	private static final String CLEAR_STORAGE =
+	        "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}";
+
+	private final Map<BrowserType, BlockingDeque<PooledDriver>> idle =
+	        new ConcurrentHashMap<BrowserType, BlockingDeque<PooledDriver>>();
+
+	@Getter
+	@Setter
+	private int maxUses = DEFAULT_MAX_USES;
+	private volatile boolean closed = false;
+
+	/**
+	 * @param type
+	 *            the browser-type
+	 * @return true if browsers of the type can be pooled.
+	 */
+	public boolean supports(BrowserType type) {
+		switch (type) {
+			case FIREFOX:
+			case CHROME:
+			case INTERNET_EXPLORER:
+			case PHANTOMJS:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Launches browsers ahead, until count browsers of the type are idle.
+	 * 
+	 * @param type
+	 *            the browser-type to launch
+	 * @param count
+	 *            the number of idle browsers wanted
+	 */
+	public void warmUp(BrowserType type, int count) {
+		BlockingDeque<PooledDriver> drivers = idle(type);
+		while (drivers.size() < count) {
+			drivers.offerLast(new PooledDriver(type, createDriver(type)));
+		}
+		log.info("Browser pool warmed up: {} idle {} browser(s).", drivers.size(), type);
+	}
+
+	/**
+	 * Borrows a healthy browser, launching a new one if none is idle. The browser is returned to
+	 * the pool by calling quit() on the returned driver.
+	 * 
+	 * @param type
+	 *            the browser-type
+	 * @return a driver for the browser
+	 */
+	public WebDriver borrow(BrowserType type) {
+		PooledDriver pooled = idle(type).pollFirst();
+		while (pooled != null && !isHealthy(pooled.getDriver())) {
+			log.info("Recycling unhealthy {} browser.", type);
+			quit(pooled);
+			pooled = idle(type).pollFirst();
+		}
+		if (pooled == null) {
+			pooled = new PooledDriver(type, createDriver(type));
+		}
+		pooled.uses++;
+		return borrowed(pooled);
+	}
+
+	/**
+	 * @param type
+	 *            the browser-type
+	 * @return the number of idle browsers of the type.
+	 */
+	public int idleCount(BrowserType type) {
+		return idle(type).size();
+	}
+
+	/**
+	 * Quits all idle browsers. Browsers still borrowed are quit once returned.
+	 */
+	public void close() {
+		closed = true;
+		for (BlockingDeque<PooledDriver> drivers : idle.values()) {
+			PooledDriver pooled = drivers.pollFirst();
+			while (pooled != null) {
+				quit(pooled);
+				pooled = drivers.pollFirst();
+			}
+		}
+	}
+
+	/**
+	 * Launches a new browser of the given type.
+	 */
+	protected WebDriver createDriver(BrowserType type) {
+		log.debug("Launching new {} browser for the pool.", type);
+		switch (type) {
+			case FIREFOX:
+				return new FirefoxDriver();
+			case CHROME:
+				return new ChromeDriver();
+			case INTERNET_EXPLORER:
+				return new InternetExplorerDriver();
+			case PHANTOMJS:
+				return new PhantomJSDriver();
+			default:
+				throw new IllegalArgumentException("Browser-type cannot be pooled: " + type);
+		}
+	}
+
+	private void release(PooledDriver pooled) {
+		if (closed || pooled.uses >= maxUses || !reset(pooled.getDriver())) {
+			log.debug("Recycling {} browser after {} use(s).", pooled.getType(), pooled.uses);
+			quit(pooled);
+		} else {
+			idle(pooled.getType()).offerFirst(pooled);
+		}
+	}
+
+	/**
+	 * Clears the cookies and storage of the last visited site and leaves the browser on a blank
+	 * page.
+	 */
+	private boolean reset(WebDriver driver) {
+		try {
+			driver.manage().deleteAllCookies();
+			if (driver instanceof JavascriptExecutor) {
+				((JavascriptExecutor) driver).executeScript(CLEAR_STORAGE);
+			}
+			driver.get(BLANK_PAGE);
+			return true;
+		} catch (WebDriverException e) {
+			log.debug("Browser could not be reset: {}", e.getMessage());
+			return false;
+		}
+	}
+
+	private boolean isHealthy(WebDriver driver) {
+		try {
+			return !driver.getWindowHandles().isEmpty();
+		} catch (WebDriverException e) {
+			log.debug("Browser failed health-check: {}", e.getMessage());
+			return false;
+		}
+	}
+
+	private void quit(PooledDriver pooled) {
+		try {
+			pooled.getDriver().quit();
+		} catch (WebDriverException e) {
+			log.debug("Browser could not be quit: {}", e.getMessage());
+		}
+	}
+
+	private BlockingDeque<PooledDriver> idle(BrowserType type) {
+		synchronized (idle) {
+			BlockingDeque<PooledDriver> drivers = idle.get(type);
+			if (drivers == null) {
+				drivers = new LinkedBlockingDeque<PooledDriver>();
+				idle.put(type, drivers);
+			}
+			return drivers;
+		}
+	}
+
+	/**
+	 * Wraps the driver in a proxy implementing the same interfaces, which returns the driver to the
+	 * pool on quit().
+	 */
+	private WebDriver borrowed(final PooledDriver pooled) {
+		Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+		for (Class<?> c = pooled.getDriver().getClass(); c != null; c = c.getSuperclass()) {
+			for (Class<?> i : c.getInterfaces()) {
+				interfaces.add(i);
+			}
+		}
+		interfaces.add(WebDriver.class);
+		return (WebDriver) Proxy.newProxyInstance(pooled.getDriver().getClass().getClassLoader(),
+		        interfaces.toArray(new Class<?>[interfaces.size()]), new InvocationHandler() {
+			        private boolean returned = false;
+
+			        @Override
+			        public synchronized Object invoke(Object proxy, Method method, Object[] args)
+			                throws Throwable {
+				        if (method.getName().equals("quit") && method.getParameterTypes().length == 0) {
+					        if (!returned) {
+						        returned = true;
+						        release(pooled);
+					        }
+					        return null;
+				        }
+				        if (returned) {
+					        throw new WebDriverException("Browser has been returned to the pool.");
+				        }
+				        try {
+					        return method.invoke(pooled.getDriver(), args);
+				        } catch (InvocationTargetException e) {
+					        throw e.getCause();
+				        }
+			        }
+		        });
+	}
+
+	@Override
+	public String toString() {
+		return "BrowserPool [idle=" + idle + ", maxUses=" + maxUses + "]";
+	}
+
+	@Getter
+	private static class PooledDriver {
+		private final BrowserType type;
+		private final WebDriver driver;
+		private int uses = 0;
+
+		PooledDriver(BrowserType type, WebDriver driver) {
+			this.type = type;
+			this.driver = driver;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package suite.crawljax.browser;
+
+import javax.inject.Provider;
+
+import lombok.Setter;
+
+import org.openqa.selenium.WebDriver;
+
+import suite.distributed.results.CrawlProfile;
+
+import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.EmbeddedBrowser.BrowserType;
+import com.crawljax.browser.WebDriverBackedEmbeddedBrowser;
+import com.crawljax.core.configuration.CrawlRules;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+
+/**
+ * Provides Crawljax with browsers borrowed from the BrowserPool, instead of launching a new browser
+ * for each crawl.
+ */
+public class PooledBrowserProvider implements Provider<EmbeddedBrowser> {
+
+	private final BrowserPool pool;
+	private final BrowserType type;
+
+	/**
+	 * The configuration of the crawl, used for the wait-times and filtered attributes of the
+	 * browser. Should be set once the configuration has been built.
+	 */
+	@Setter
+	private CrawljaxConfiguration configuration;
+
+	/**
+	 * The profile of the crawl, to which the time spent starting browsers is added.
+	 */
+	@Setter
+	private CrawlProfile profile;
+
+	public PooledBrowserProvider(BrowserPool pool, BrowserType type) {
+		this.pool = pool;
+		this.type = type;
+	}
+
+	@Override
+	public EmbeddedBrowser get() {
+		long start = System.nanoTime();
+		WebDriver driver = pool.borrow(type);
+		EmbeddedBrowser browser;
+		if (configuration == null) {
+			browser = WebDriverBackedEmbeddedBrowser.withDriver(driver);
+		} else {
+			CrawlRules rules = configuration.getCrawlRules();
+			browser =
+			        WebDriverBackedEmbeddedBrowser.withDriver(driver, rules.getPreCrawlConfig()
+			                .getFilterAttributeNames(), rules.getWaitAfterEvent(), rules
+			                .getWaitAfterReloadUrl());
+		}
+		if (profile != null) {
+			profile.addBrowserStartNanos(System.nanoTime() - start);
+		}
+		return browser;
+	}
+
+	@Override
+	public String toString() {
+		return "PooledBrowserProvider [type=" + type + "]";
+	}
+}
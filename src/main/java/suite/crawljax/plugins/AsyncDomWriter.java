@@ -0,0 +1,166 @@
+package suite.crawljax.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import suite.distributed.results.DomStore;
+
+import com.crawljax.core.state.duplicatedetection.HashGenerator;
+
+/**
+ * The AsyncDomWriter writes DOMs to a DomStore on a background thread, so the threads of the crawl
+ * do not wait on hashing, compression or the disk. The directory is created once, when the writer
+ * starts. Queued DOMs are written in batches. Submitting only blocks when the queue is full.
+ */
+@Slf4j
+public class AsyncDomWriter {
+
+	public static final int DEFAULT_CAPACITY = 256;
+	private static final int BATCH_SIZE = 32;
+	private static final PendingDom STOP = new PendingDom(null, null);
+
+	private final File dir;
+	private final BlockingQueue<PendingDom> queue;
+	private final DomStore store;
+	private Thread thread;
+	private int written = 0;
+	private int failed = 0;
+
+	public AsyncDomWriter(File dir, HashGenerator hasher) {
+		this(dir, hasher, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param dir
+	 *            the directory to write the DOMs to
+	 * @param hasher
+	 *            the hash-function used to address the DOMs in the store
+	 * @param capacity
+	 *            the maximum number of DOMs waiting to be written
+	 */
+	public AsyncDomWriter(File dir, HashGenerator hasher, int capacity) {
+		assert capacity > 0;
+		this.dir = dir;
+		this.store = new DomStore(dir, hasher);
+		this.queue = new ArrayBlockingQueue<PendingDom>(capacity);
+	}
+
+	/**
+	 * Creates the directory and starts writing in the background.
+	 */
+	public synchronized void start() {
+		if (thread != null)
+			return;
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			log.error("Could not create {}; DOMs will not be stored.", dir);
+		}
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeQueued();
+			}
+		}, "AsyncDomWriter");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues the DOM of a state to be written. Blocks while the queue is full.
+	 * 
+	 * @param state
+	 *            the name of the state
+	 * @param dom
+	 *            the DOM to write
+	 * @throws InterruptedException
+	 *             interrupted while waiting for room in the queue
+	 */
+	public void submit(String state, String dom) throws InterruptedException {
+		PendingDom pending = new PendingDom(state, dom);
+		if (!queue.offer(pending)) {
+			log.debug("DOM queue is full; waiting for the writer.");
+			queue.put(pending);
+		}
+	}
+
+	/**
+	 * Writes all queued DOMs and the index of the store, and stops the background thread.
+	 */
+	public synchronized void close() {
+		if (thread == null)
+			return;
+		try {
+			queue.put(STOP);
+			thread.join();
+		} catch (InterruptedException e) {
+			log.warn("Interrupted while writing the DOMs; {} were not written.", queue.size());
+		}
+		thread = null;
+		try {
+			store.close();
+		} catch (IOException e) {
+			log.error("Could not write the index of {}: {}", dir, e.getMessage());
+		}
+		log.debug("Wrote {} DOM(s) to {}, {} distinct, {} failed.", written, dir,
+		        store.getStoredCount(), failed);
+	}
+
+	/**
+	 * @return the number of DOMs written, including the ones equal to a DOM written earlier
+	 */
+	public int getWritten() {
+		return written;
+	}
+
+	/**
+	 * @return the number of DOMs which could not be written
+	 */
+	public int getFailed() {
+		return failed;
+	}
+
+	private void writeQueued() {
+		List<PendingDom> batch = new ArrayList<PendingDom>(BATCH_SIZE);
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch, BATCH_SIZE - 1);
+				for (PendingDom pending : batch) {
+					if (pending == STOP)
+						return;
+					write(pending);
+				}
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			log.warn("DOM writer interrupted: {}", e.getMessage());
+		}
+	}
+
+	private void write(PendingDom pending) {
+		try {
+			store.put(pending.getState(), pending.getDom());
+			written++;
+		} catch (IOException e) {
+			failed++;
+			log.error("Could not write the DOM of {} to {}: {}", pending.getState(), dir,
+			        e.getMessage());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "AsyncDomWriter [dir=" + dir + ", queued=" + queue.size() + "]";
+	}
+
+	@Data
+	private static class PendingDom {
+		private final String state;
+		private final String dom;
+	}
+}
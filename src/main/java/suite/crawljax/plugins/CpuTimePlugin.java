@@ -0,0 +1,102 @@
+package suite.crawljax.plugins;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+import suite.distributed.results.CrawlProfile;
+
+import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.core.CandidateElement;
+import com.crawljax.core.CrawlerContext;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.plugin.OnBrowserCreatedPlugin;
+import com.crawljax.core.plugin.OnNewStatePlugin;
+import com.crawljax.core.plugin.OnRevisitStatePlugin;
+import com.crawljax.core.plugin.OnUrlLoadPlugin;
+import com.crawljax.core.plugin.PreCrawlingPlugin;
+import com.crawljax.core.plugin.PreStateCrawlingPlugin;
+import com.crawljax.core.state.StateVertex;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Plugin for measuring the CPU-time of the threads crawling a website, so crawls running next to
+ * each other in the same JVM are measured separately. Each time a crawler-thread calls the plugin,
+ * the CPU-time the thread used since its previous call is added to the profile. Crawljax starts
+ * new crawler-threads for each crawl, so the first call of a thread adds all CPU-time it used.
+ * <p>
+ * Browsers launched by Crawljax itself, instead of borrowed from a pool, report their creation to
+ * the plugin. The time from the start of the crawl until then is added as browser start-time.
+ */
+public class CpuTimePlugin implements PreCrawlingPlugin, OnBrowserCreatedPlugin, OnUrlLoadPlugin,
+        PreStateCrawlingPlugin, OnNewStatePlugin, OnRevisitStatePlugin {
+
+	private static final String PLUGIN_NAME = "CpuTime plugin";
+
+	private final CrawlProfile profile;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private final Map<Long, Long> lastCpuTime = new HashMap<Long, Long>();
+	private volatile Long crawlStart;
+
+	/**
+	 * @param profile
+	 *            the profile to add the CPU-time of the crawler-threads to
+	 */
+	public CpuTimePlugin(CrawlProfile profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * Returns the name of the plugin.
+	 */
+	public String toString() {
+		return PLUGIN_NAME;
+	}
+
+	public void preCrawling(CrawljaxConfiguration config) {
+		crawlStart = System.nanoTime();
+	}
+
+	public void onBrowserCreated(EmbeddedBrowser newBrowser) {
+		Long start = crawlStart;
+		if (start != null) {
+			profile.addBrowserStartNanos(System.nanoTime() - start);
+		}
+	}
+
+	public void onUrlLoad(CrawlerContext context) {
+		sample();
+	}
+
+	public void preStateCrawling(CrawlerContext context,
+	        ImmutableList<CandidateElement> candidateElements, StateVertex state) {
+		sample();
+	}
+
+	public void onNewState(CrawlerContext context, StateVertex state) {
+		sample();
+	}
+
+	public void onRevisitState(CrawlerContext context, StateVertex currentState) {
+		sample();
+	}
+
+	/**
+	 * Adds the CPU-time used by the current thread since its previous sample to the profile.
+	 */
+	void sample() {
+		if (!threads.isCurrentThreadCpuTimeSupported())
+			return;
+		long now = threads.getCurrentThreadCpuTime();
+		if (now < 0)
+			return;
+		Long thread = Thread.currentThread().getId();
+		long last;
+		synchronized (lastCpuTime) {
+			Long previous = lastCpuTime.put(thread, now);
+			last = previous != null ? previous : 0;
+		}
+		profile.addCpuNanos(now - last);
+	}
+}
@@ -0,0 +1,86 @@
+package suite.crawljax.plugins;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+import suite.distributed.results.DomStore;
+import suite.distributed.results.StateFingerprint;
+
+import com.crawljax.core.CrawlSession;
+import com.crawljax.core.CrawlerContext;
+import com.crawljax.core.ExitNotifier.ExitStatus;
+import com.crawljax.core.plugin.OnNewStatePlugin;
+import com.crawljax.core.plugin.PostCrawlingPlugin;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.duplicatedetection.FeatureException;
+import com.crawljax.core.state.duplicatedetection.HashGenerator;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetection;
+
+/**
+ * Plugin for fingerprinting each state once, when it is captured. The hash of the stripped DOM and
+ * the near-duplicate fingerprint of the DOM are stored in the output-dir after the crawl, to be
+ * uploaded with the states.
+ */
+@Slf4j
+public class FingerprintPlugin implements OnNewStatePlugin, PostCrawlingPlugin {
+
+	private static final String PLUGIN_NAME = "Fingerprint plugin";
+
+	private final NearDuplicateDetection detection;
+	private final HashGenerator hasher;
+	private final Map<String, StateFingerprint> fingerprints =
+	        new ConcurrentHashMap<String, StateFingerprint>();
+	private File outputDir;
+
+	/**
+	 * @param detection
+	 *            the detection of the crawl, if null only the hash of the stripped DOM is stored.
+	 * @param hasher
+	 *            the hash-function used to hash the stripped DOMs
+	 */
+	public FingerprintPlugin(NearDuplicateDetection detection, HashGenerator hasher) {
+		this.detection = detection;
+		this.hasher = hasher;
+	}
+
+	/**
+	 * Returns the name of the plugin.
+	 */
+	public String toString() {
+		return PLUGIN_NAME;
+	}
+
+	/**
+	 * On each new state, compute its hash and fingerprint.
+	 */
+	public void onNewState(CrawlerContext context, StateVertex state) {
+		synchronized (this) {
+			if (outputDir == null) {
+				outputDir = context.getConfig().getOutputDir();
+			}
+		}
+		String fingerprint = null;
+		if (detection != null) {
+			try {
+				fingerprint =
+				        StateFingerprint.encode(detection,
+				                detection.generateFingerprint(state.getDom()));
+			} catch (FeatureException e) {
+				log.warn("Could not fingerprint state {}: {}", state.getName(), e.getMessage());
+			}
+		}
+		fingerprints.put(state.getName(),
+		        new StateFingerprint(DomStore.keyOf(hasher, state.getStrippedDom()), fingerprint));
+	}
+
+	/**
+	 * After the crawl, store the fingerprints in the output-dir.
+	 */
+	public synchronized void postCrawling(CrawlSession session, ExitStatus exitReason) {
+		if (outputDir != null) {
+			StateFingerprint.store(outputDir, fingerprints);
+		}
+	}
+}
@@ -1,25 +1,64 @@
 package suite.crawljax.plugins;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
 
 import lombok.extern.slf4j.Slf4j;
+import suite.distributed.results.CrawlProfile;
 
+import com.crawljax.core.CrawlSession;
 import com.crawljax.core.CrawlerContext;
+import com.crawljax.core.ExitNotifier.ExitStatus;
 import com.crawljax.core.plugin.OnNewStatePlugin;
+import com.crawljax.core.plugin.PostCrawlingPlugin;
 import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.duplicatedetection.HashGenerator;
+import com.crawljax.core.state.duplicatedetection.XxHashGenerator;
 
 /**
- * Plugin for storing the stripped DOM, next to the original DOM.
+ * Plugin for storing the stripped DOM, next to the original DOM. The DOMs are handed to an
+ * AsyncDomWriter, which writes them in the background to a DomStore; states with equal stripped
+ * DOMs share a single compressed file. All DOMs are written once the crawl finishes.
  */
 @Slf4j
-public class StoreDomPlugin implements OnNewStatePlugin {
+public class StoreDomPlugin implements OnNewStatePlugin, PostCrawlingPlugin {
 
-	private static final String OUTPUT_SUBDIR = "/strippedDOM/";
-	private static final String FILE_EXTENSION = ".html";
+	private static final String OUTPUT_SUBDIR = "strippedDOM";
 	private static final String PLUGIN_NAME = "StrippedDom plugin";
 
+	private final CrawlProfile profile;
+	private final HashGenerator hasher;
+	private final int capacity;
+	private AsyncDomWriter writer;
+
+	public StoreDomPlugin() {
+		this(null);
+	}
+
+	/**
+	 * @param profile
+	 *            the profile to add the time spent handing over DOMs to, if null nothing is
+	 *            measured.
+	 */
+	public StoreDomPlugin(CrawlProfile profile) {
+		this(profile, new XxHashGenerator(), AsyncDomWriter.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param profile
+	 *            the profile to add the time spent handing over DOMs to, if null nothing is
+	 *            measured.
+	 * @param hasher
+	 *            the hash-function used to address the DOMs
+	 * @param capacity
+	 *            the maximum number of DOMs waiting to be written, before new states block the
+	 *            crawl.
+	 */
+	public StoreDomPlugin(CrawlProfile profile, HashGenerator hasher, int capacity) {
+		this.profile = profile;
+		this.hasher = hasher;
+		this.capacity = capacity;
+	}
+
 	/**
 	 * Returns the name of the metric.
 	 */
@@ -28,15 +67,38 @@ public class StoreDomPlugin implements OnNewStatePlugin {
 	}
 
 	/**
-	 * On each new state, store the strippedDOM as {state}.html in the predefined subdir of output.
+	 * On each new state, queue the strippedDOM to be stored in the predefined subdir of output.
 	 */
 	public void onNewState(CrawlerContext context, StateVertex state) {
-		File domFile = new File(context.getConfig().getOutputDir() + OUTPUT_SUBDIR);
-		domFile.mkdirs();
-		try (PrintWriter out = new PrintWriter(domFile + "/" + state.getName() + FILE_EXTENSION)) {
-			out.print(state.getStrippedDom());
-		} catch (FileNotFoundException e) {
-			log.error("File could not be found while storing the strippedDOM: {}", e.getMessage());
+		long start = System.nanoTime();
+		try {
+			getWriter(context).submit(state.getName(), state.getStrippedDom());
+		} catch (InterruptedException e) {
+			log.error("Interrupted while storing the strippedDOM of {}", state.getName());
+			Thread.currentThread().interrupt();
+		}
+		if (profile != null) {
+			profile.addDomWriteNanos(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * After the crawl, wait until all strippedDOMs are written.
+	 */
+	public synchronized void postCrawling(CrawlSession session, ExitStatus exitReason) {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	private synchronized AsyncDomWriter getWriter(CrawlerContext context) {
+		if (writer == null) {
+			writer =
+			        new AsyncDomWriter(new File(context.getConfig().getOutputDir(), OUTPUT_SUBDIR),
+			                hasher, capacity);
+			writer.start();
 		}
+		return writer;
 	}
 }
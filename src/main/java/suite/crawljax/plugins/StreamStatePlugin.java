@@ -0,0 +1,48 @@
+package suite.crawljax.plugins;
+
+import lombok.extern.slf4j.Slf4j;
+import suite.distributed.results.StateStreamer;
+
+import com.crawljax.core.CrawlerContext;
+import com.crawljax.core.plugin.OnNewStatePlugin;
+import com.crawljax.core.state.StateVertex;
+
+/**
+ * Plugin for uploading each state as soon as it is discovered. The DOM, stripped DOM and
+ * screenshot of the state are handed to a StateStreamer, which uploads them in the background. It
+ * should be added after the CrawlOverview plugin, which saves the screenshot of the state.
+ */
+@Slf4j
+public class StreamStatePlugin implements OnNewStatePlugin {
+
+	private static final String PLUGIN_NAME = "StreamState plugin";
+
+	private final StateStreamer streamer;
+
+	/**
+	 * @param streamer
+	 *            the streamer uploading the states, which is started and closed by its owner.
+	 */
+	public StreamStatePlugin(StateStreamer streamer) {
+		this.streamer = streamer;
+	}
+
+	/**
+	 * Returns the name of the plugin.
+	 */
+	public String toString() {
+		return PLUGIN_NAME;
+	}
+
+	/**
+	 * On each new state, queue the state for uploading.
+	 */
+	public void onNewState(CrawlerContext context, StateVertex state) {
+		try {
+			streamer.submit(state.getName(), state.getDom(), state.getStrippedDom());
+		} catch (InterruptedException e) {
+			log.error("Interrupted while streaming state {}", state.getName());
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -12,13 +12,14 @@ import com.google.inject.Singleton;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * ConnectionManagerImpl manages a single connection resource to the database.
+ * ConnectionManagerImpl manages a single connection resource to the database for each thread, so
+ * concurrent worker-slots do not close each other's connection.
  */
 @Slf4j
 @Singleton
 public class ConnectionManagerImpl implements ConnectionManager {
 
-	private Connection connection;
+	private final ThreadLocal<Connection> connection = new ThreadLocal<Connection>();
 	private Properties settings;
 	private String url;
 	private String database;
@@ -69,15 +70,15 @@ public class ConnectionManagerImpl implements ConnectionManager {
 	 */
 	public Connection getConnection() {
 		try {
-			if (connection == null || connection.isClosed()) {
+			if (connection.get() == null || connection.get().isClosed()) {
 				// Setup connection
-				connection = DriverManager.getConnection(url + database, username, password);
+				connection.set(DriverManager.getConnection(url + database, username, password));
 				log.debug("Connection established with: " + url + database);
 			}
 		} catch (SQLException e) {
 			log.error(e.getMessage());
 		}
-		return connection;
+		return connection.get();
 	}
 
 	/**
@@ -85,7 +86,7 @@ public class ConnectionManagerImpl implements ConnectionManager {
 	 */
 	public void closeConnection() {
 		try {
-			connection.close();
+			connection.get().close();
 			log.debug("Connection with: " + url + database + " closed.");
 		} catch (NullPointerException e) {
 			log.warn("Connection was already closed");
@@ -93,12 +94,12 @@ public class ConnectionManagerImpl implements ConnectionManager {
 		} catch (SQLException e) {
 			log.error(e.getMessage());
 		}
-		connection = null;
+		connection.remove();
 	}
 
 	@Override
 	public String toString() {
-		return "ConnectionManagerImpl [connection=" + connection + ", url=" + url + ":"
+		return "ConnectionManagerImpl [connection=" + connection.get() + ", url=" + url + ":"
 		        + database + "]";
 	}
 }
@@ -0,0 +1,547 @@
+package suite.distributed;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The ConnectionPool keeps a bounded number of connections to the database open, so they can be
+ * reused instead of connecting for every call. A connection which has been idle for longer than
+ * the validation-interval is validated before it is handed out, and a connection is closed once it
+ * reaches its maximum lifetime. The borrowed connections are returned to the pool when they are
+ * closed; connections borrowed by a thread which has died are reclaimed when the pool is
+ * exhausted. As a DataSource, the pool can be shared with ORMLite.
+ * <p>
+ * Each connection keeps its most recently used prepared statements, so a statement prepared again
+ * on the same connection is not parsed again by the database. A cached statement is handed out
+ * again on the next prepare of the same SQL, which closes the results of its previous execution.
+ * Other statements are closed when the connection is returned.
+ * </p>
+ */
+@Slf4j
+public class ConnectionPool implements DataSource {
+
+	/**
+	 * Opens the physical connections of the pool.
+	 */
+	public interface ConnectionFactory {
+
+		/**
+		 * @return a new connection to the database
+		 * @throws SQLException
+		 *             the connection could not be made
+		 */
+		Connection create() throws SQLException;
+	}
+
+	public static final int DEFAULT_SIZE = 8;
+	public static final long DEFAULT_VALIDATION_INTERVAL = 1000 * 30;
+	public static final long DEFAULT_MAX_LIFETIME = 1000 * 60 * 30;
+	public static final long DEFAULT_BORROW_TIMEOUT = 1000 * 60;
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+	private final ConnectionFactory factory;
+	private final int maxSize;
+	private final long validationInterval;
+	private final long maxLifetime;
+	private final Deque<PooledConnection> idle = new ArrayDeque<PooledConnection>();
+	private final Set<PooledConnection> borrowed = new HashSet<PooledConnection>();
+	private final AtomicLong statementCacheHits = new AtomicLong();
+	private final AtomicLong statementCacheMisses = new AtomicLong();
+	private long borrowTimeout = DEFAULT_BORROW_TIMEOUT;
+	private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+	private boolean closed = false;
+
+	public ConnectionPool(ConnectionFactory factory) {
+		this(factory, DEFAULT_SIZE, DEFAULT_VALIDATION_INTERVAL, DEFAULT_MAX_LIFETIME);
+	}
+
+	/**
+	 * @param factory
+	 *            opens the connections of the pool
+	 * @param maxSize
+	 *            the maximum number of open connections
+	 * @param validationInterval
+	 *            the time in milliseconds a connection may be idle before it is validated again
+	 * @param maxLifetime
+	 *            the time in milliseconds after which a connection is closed, if 0 connections
+	 *            are kept open.
+	 */
+	public ConnectionPool(ConnectionFactory factory, int maxSize, long validationInterval,
+	        long maxLifetime) {
+		assert maxSize > 0;
+		this.factory = factory;
+		this.maxSize = maxSize;
+		this.validationInterval = validationInterval;
+		this.maxLifetime = maxLifetime;
+	}
+
+	/**
+	 * @param borrowTimeout
+	 *            the time in milliseconds to wait for a connection when the pool is exhausted
+	 */
+	public void setBorrowTimeout(long borrowTimeout) {
+		this.borrowTimeout = borrowTimeout;
+	}
+
+	/**
+	 * @param statementCacheSize
+	 *            the number of prepared statements kept by each connection, if 0 statements are
+	 *            not cached.
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Borrows a connection, waiting while all connections are borrowed. The connection is returned
+	 * to the pool by closing it.
+	 * 
+	 * @return a valid connection
+	 * @throws SQLException
+	 *             no connection could be made, or none was returned in time
+	 */
+	public Connection borrow() throws SQLException {
+		long deadline = System.currentTimeMillis() + borrowTimeout;
+		PooledConnection pooled = null;
+		boolean create = false;
+		synchronized (this) {
+			while (pooled == null && !create) {
+				if (closed)
+					throw new SQLException("The connection pool is closed");
+				pooled = takeIdle();
+				if (pooled == null) {
+					if (size() < maxSize || reclaimAbandoned()) {
+						create = borrowed.size() + idle.size() < maxSize;
+						if (!create)
+							pooled = takeIdle();
+					} else {
+						long remaining = deadline - System.currentTimeMillis();
+						if (remaining <= 0)
+							throw new SQLException("No connection available after "
+							        + borrowTimeout + " ms; " + maxSize + " are borrowed");
+						try {
+							wait(remaining);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new SQLException("Interrupted while waiting for a connection");
+						}
+					}
+				}
+			}
+			if (create) {
+				// reserve the slot while connecting outside of the lock
+				pooled = new PooledConnection(null);
+				borrowed.add(pooled);
+			}
+		}
+		if (create) {
+			try {
+				pooled.connection = factory.create();
+				pooled.created = System.currentTimeMillis();
+			} catch (SQLException | RuntimeException e) {
+				synchronized (this) {
+					borrowed.remove(pooled);
+					notifyAll();
+				}
+				throw e;
+			}
+		}
+		return pooled.lend();
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return borrow();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("The pool uses its own credentials");
+	}
+
+	/**
+	 * Closes all idle connections. Borrowed connections are closed once they are returned.
+	 */
+	public void close() {
+		List<PooledConnection> toClose;
+		synchronized (this) {
+			closed = true;
+			toClose = new ArrayList<PooledConnection>(idle);
+			idle.clear();
+			notifyAll();
+		}
+		for (PooledConnection pooled : toClose) {
+			pooled.closePhysical();
+		}
+	}
+
+	/**
+	 * @return the number of open connections, both idle and borrowed
+	 */
+	public synchronized int size() {
+		return idle.size() + borrowed.size();
+	}
+
+	/**
+	 * @return the number of idle connections
+	 */
+	public synchronized int getIdleCount() {
+		return idle.size();
+	}
+
+	/**
+	 * @return the number of prepares served by a cached statement
+	 */
+	public long getStatementCacheHits() {
+		return statementCacheHits.get();
+	}
+
+	/**
+	 * @return the number of prepares of a statement which was not cached by the connection
+	 */
+	public long getStatementCacheMisses() {
+		return statementCacheMisses.get();
+	}
+
+	/**
+	 * Takes the most recently used idle connection which is still usable, closing the others it
+	 * passes. Called with the lock held, the validation is done on a connection nobody else uses.
+	 */
+	private PooledConnection takeIdle() {
+		PooledConnection pooled = idle.pollFirst();
+		while (pooled != null && !isUsable(pooled)) {
+			pooled.closePhysical();
+			pooled = idle.pollFirst();
+		}
+		if (pooled != null) {
+			borrowed.add(pooled);
+		}
+		return pooled;
+	}
+
+	private boolean isUsable(PooledConnection pooled) {
+		long now = System.currentTimeMillis();
+		if (maxLifetime > 0 && now - pooled.created >= maxLifetime)
+			return false;
+		if (now - pooled.returned < validationInterval)
+			return true;
+		try {
+			return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException e) {
+			log.debug("Validation of a pooled connection failed: {}", e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the connections borrowed by threads which have died to the pool.
+	 * 
+	 * @return true if a connection was reclaimed
+	 */
+	private boolean reclaimAbandoned() {
+		List<PooledConnection> abandoned = new ArrayList<PooledConnection>();
+		for (PooledConnection pooled : borrowed) {
+			if (pooled.owner != null && !pooled.owner.isAlive()) {
+				abandoned.add(pooled);
+			}
+		}
+		for (PooledConnection pooled : abandoned) {
+			log.warn("Reclaimed a connection which was not returned by {}", pooled.owner
+			        .getName());
+			pooled.handler.closeOpened();
+			pooled.handler = null;
+			release(pooled);
+		}
+		return !abandoned.isEmpty();
+	}
+
+	private synchronized void release(PooledConnection pooled) {
+		if (!borrowed.remove(pooled))
+			return;
+		boolean reusable = !closed;
+		try {
+			if (reusable && !pooled.connection.getAutoCommit()) {
+				pooled.connection.rollback();
+				pooled.connection.setAutoCommit(true);
+			}
+			reusable = reusable && !pooled.connection.isClosed();
+		} catch (SQLException e) {
+			log.debug("Discarding a pooled connection: {}", e.getMessage());
+			reusable = false;
+		}
+		if (reusable) {
+			pooled.owner = null;
+			pooled.returned = System.currentTimeMillis();
+			idle.addFirst(pooled);
+		} else {
+			pooled.closePhysical();
+		}
+		notifyAll();
+	}
+
+	@Override
+	public PrintWriter getLogWriter() {
+		return null;
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) {
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) {
+		borrowTimeout = TimeUnit.SECONDS.toMillis(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() {
+		return (int) TimeUnit.MILLISECONDS.toSeconds(borrowTimeout);
+	}
+
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this))
+			return iface.cast(this);
+		throw new SQLException("Not a wrapper of " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ConnectionPool [size=" + size() + ", idle=" + idle.size() + ", maxSize="
+		        + maxSize + ", statementCacheHits=" + statementCacheHits + ", statementCacheMisses="
+		        + statementCacheMisses + "]";
+	}
+
+	/**
+	 * A physical connection of the pool, lent out through a proxy which returns it on close.
+	 */
+	private class PooledConnection {
+		private Connection connection;
+		private long created;
+		private long returned;
+		private Thread owner;
+		private LentConnection handler;
+		private final StatementCache statements = new StatementCache();
+
+		PooledConnection(Connection connection) {
+			this.connection = connection;
+			this.created = System.currentTimeMillis();
+		}
+
+		/**
+		 * Returns the cached statement of the sql, or prepares and caches it.
+		 */
+		PreparedStatement prepare(String sql, Integer autoGeneratedKeys) throws SQLException {
+			String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + ":" + sql;
+			PreparedStatement statement = statements.get(key);
+			if (statement != null && !statement.isClosed()) {
+				statementCacheHits.incrementAndGet();
+				statement.clearParameters();
+				statement.clearBatch();
+				return statement;
+			}
+			statementCacheMisses.incrementAndGet();
+			statement =
+			        autoGeneratedKeys == null ? connection.prepareStatement(sql) : connection
+			                .prepareStatement(sql, autoGeneratedKeys);
+			statements.put(key, statement);
+			return statement;
+		}
+
+		Connection lend() {
+			owner = Thread.currentThread();
+			handler = new LentConnection(this);
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+			        new Class<?>[] { Connection.class }, handler);
+		}
+
+		void closePhysical() {
+			statements.clear();
+			try {
+				if (connection != null) {
+					connection.close();
+				}
+			} catch (SQLException e) {
+				log.debug("Failed to close a pooled connection: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * The prepared statements of a connection, closing the least recently used statement when
+	 * full.
+	 */
+	private class StatementCache extends LinkedHashMap<String, PreparedStatement> {
+		private static final long serialVersionUID = 1L;
+
+		StatementCache() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+			if (size() <= statementCacheSize)
+				return false;
+			closeQuietly(eldest.getValue());
+			return true;
+		}
+	}
+
+	/**
+	 * Delegates to the physical connection until closed, after which the connection is returned to
+	 * the pool and this handle can no longer be used.
+	 */
+	private class LentConnection implements InvocationHandler {
+		private final PooledConnection pooled;
+		private final List<Statement> opened = new ArrayList<Statement>();
+		private boolean returned = false;
+
+		LentConnection(PooledConnection pooled) {
+			this.pooled = pooled;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			synchronized (ConnectionPool.this) {
+				if (!returned && pooled.handler != this) {
+					// reclaimed by the pool
+					returned = true;
+				}
+			}
+			if (name.equals("close")) {
+				if (!returned) {
+					returned = true;
+					closeOpened();
+					release(pooled);
+				}
+				return null;
+			} else if (name.equals("isClosed")) {
+				return returned;
+			} else if (name.equals("equals")) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			} else if (name.equals("toString")) {
+				return "Pooled" + (returned ? " (returned) " : " ") + pooled.connection;
+			} else if (returned) {
+				throw new SQLException("The connection has been returned to the pool");
+			}
+			if (name.equals("prepareStatement") && statementCacheSize > 0 && isCacheable(method)) {
+				PreparedStatement cached =
+				        pooled.prepare((String) args[0], args.length == 2 ? (Integer) args[1] : null);
+				return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				        new Class<?>[] { PreparedStatement.class }, new CachedStatement(this,
+				                (Connection) proxy, cached));
+			}
+			Object result = invokeOn(pooled.connection, method, args);
+			if (result instanceof Statement) {
+				opened.add((Statement) result);
+			}
+			return result;
+		}
+
+		/**
+		 * Closes the statements which are not kept by the connection.
+		 */
+		void closeOpened() {
+			for (Statement statement : opened) {
+				closeQuietly(statement);
+			}
+			opened.clear();
+		}
+
+		/**
+		 * Only prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) are cached.
+		 */
+		private boolean isCacheable(Method method) {
+			Class<?>[] types = method.getParameterTypes();
+			return types.length == 1 || (types.length == 2 && types[1] == int.class);
+		}
+	}
+
+	/**
+	 * A statement kept by the connection it was prepared on. Closing it keeps it prepared.
+	 */
+	private class CachedStatement implements InvocationHandler {
+		private final LentConnection lease;
+		private final Connection connection;
+		private final PreparedStatement statement;
+
+		CachedStatement(LentConnection lease, Connection connection, PreparedStatement statement) {
+			this.lease = lease;
+			this.connection = connection;
+			this.statement = statement;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close")) {
+				return null;
+			} else if (name.equals("isClosed")) {
+				return lease.returned;
+			} else if (name.equals("getConnection")) {
+				return connection;
+			} else if (name.equals("equals")) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			} else if (name.equals("toString")) {
+				return "Cached " + statement;
+			} else if (lease.returned) {
+				throw new SQLException("The connection has been returned to the pool");
+			}
+			return invokeOn(statement, method, args);
+		}
+	}
+
+	private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static void closeQuietly(Statement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			log.debug("Failed to close a statement: {}", e.getMessage());
+		}
+	}
+}
@@ -4,9 +4,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Map;
@@ -16,9 +14,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.ini4j.Ini;
 import org.ini4j.Profile.Section;
 
-import suite.crawljax.CrawlManager;
 import suite.distributed.configuration.ConfigurationDao;
 import suite.distributed.workload.WorkloadDao;
+import suite.distributed.workload.WorkloadIngester;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -31,17 +29,19 @@ import lombok.extern.slf4j.Slf4j;
  * The DatabaseUtils-class contains all of the miscellaneous functionality related to the database.
  */
 public class DatabaseUtils {
+	private static final SqlStatement SELECT_WORKTASK = new SqlStatement(
+	        "utils.selectWorkTask", "SELECT workTask_id FROM WebsiteResults WHERE id=?");
+	private static final SqlStatement SELECT_DUPLICATES = new SqlStatement(
+	        "utils.selectDuplicates", "SELECT * FROM benchmarkSite WHERE websiteId = ?");
+
 	private ConnectionManager con;
-	private CrawlManager crawlManager;
 	private WorkloadDao workload;
 	private ConfigurationDao config;
 
 	@Inject
-	public DatabaseUtils(ConnectionManager con, WorkloadDao workload, CrawlManager suite,
-	        ConfigurationDao conf) {
+	public DatabaseUtils(ConnectionManager con, WorkloadDao workload, ConfigurationDao conf) {
 		this.con = con;
 		this.workload = workload;
-		this.crawlManager = suite;
 		this.config = conf;
 	}
 
@@ -56,10 +56,7 @@ public class DatabaseUtils {
 		boolean result = false;
 		Connection connection = con.getConnection();
 		try {
-			String getWorkTaskId = "SELECT workTask_id FROM WebsiteResults WHERE id=?";
-			PreparedStatement statementWId = connection.prepareStatement(getWorkTaskId);
-			statementWId.setInt(1, id);
-			ResultSet resultWorkTask = statementWId.executeQuery();
+			ResultSet resultWorkTask = SELECT_WORKTASK.executeQuery(connection, id);
 			int workTaskId = 0;
 			while (resultWorkTask.next()) {
 				workTaskId = resultWorkTask.getInt(1);
@@ -101,10 +98,10 @@ public class DatabaseUtils {
 	 */
 	private boolean deleteById(String table, String column, int value) throws SQLException {
 		boolean succes = false;
-		String sql = "DELETE FROM " + table + " WHERE " + column + " = ?";
-		PreparedStatement statement = con.getConnection().prepareStatement(sql);
-		statement.setInt(1, value);
-		int deleteDom = statement.executeUpdate();
+		SqlStatement delete =
+		        new SqlStatement("utils.delete" + table, "DELETE FROM " + table + " WHERE "
+		                + column + " = ?");
+		int deleteDom = delete.executeUpdate(con.getConnection(), value);
 		if (deleteDom > 0) {
 			succes = true;
 		} else {
@@ -114,19 +111,17 @@ public class DatabaseUtils {
 	}
 
 	/**
-	 * Sent a file, which contains websites, to the database.
+	 * Sent a file, which contains websites, to the database. The file is streamed in chunks, and
+	 * urls which are already part of the workload are skipped. Afterwards, the expected durations
+	 * of the work are updated, so the longest crawls are handed out first.
 	 * 
 	 * @param file
 	 *            The location of the file which content will be sent to the database
 	 */
 	public void actionFlushWebsitesFile(File file) {
 		try {
-			crawlManager.websitesFromFileToQueue(file);
-			String rawUrl = crawlManager.getWebsiteQueue().poll();
-			while (rawUrl != null) {
-				workload.submitWork(new URL(rawUrl), false);
-				rawUrl = crawlManager.getWebsiteQueue().poll();
-			}
+			new WorkloadIngester(workload).ingest(file);
+			workload.updateExpectedDurations();
 		} catch (IOException e) {
 			log.error("Error while reading file: " + e.getMessage());
 		}
@@ -165,12 +160,7 @@ public class DatabaseUtils {
 	        throws SQLException {
 		Map<String, String> stateIds = new ConcurrentHashMap<String, String>();
 		// Retrieve the duplicate mapping from the database.
-		ResultSet res =
-		        con.getConnection()
-		                .createStatement()
-		                .executeQuery(
-		                        "SELECT * FROM  benchmarkSite WHERE websiteId = "
-		                                + websiteResultId);
+		ResultSet res = SELECT_DUPLICATES.executeQuery(con.getConnection(), websiteResultId);
 		while (res.next()) {
 			stateIds.put(res.getString("stateIdFirst"), res.getString("stateIdSecond"));
 		}
@@ -0,0 +1,114 @@
+package suite.distributed;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The EmbeddedDatabase keeps the workload, configuration and results in a file-backed H2 database
+ * in MySQL-mode, instead of on the server of dist.ini. The DAOs run unchanged on it. The tables of
+ * database.sql are created when missing, so a single machine can run the workers and the analysis
+ * without a database-server. Other processes on the same machine can open the database at the same
+ * time.
+ */
+@Slf4j
+public final class EmbeddedDatabase {
+
+	public static final String URL_PREFIX = "jdbc:h2:";
+	public static final String USERNAME = "sa";
+	public static final String PASSWORD = "";
+	private static final String NAME = "crawljaxsuite";
+	private static final String MODE = ";MODE=MySQL;DATABASE_TO_UPPER=FALSE";
+	private static final String SHARED = ";AUTO_SERVER=TRUE";
+	private static final String SCHEMA = "/database.sql";
+
+	private EmbeddedDatabase() {
+	}
+
+	/**
+	 * @param url
+	 *            the url of a database
+	 * @return true if the url points to an embedded database
+	 */
+	public static boolean isEmbedded(String url) {
+		return url != null && url.startsWith(URL_PREFIX);
+	}
+
+	/**
+	 * @param directory
+	 *            the directory to store the database in
+	 * @return the url of the embedded database in the directory
+	 */
+	public static String url(File directory) {
+		return URL_PREFIX + "file:" + new File(directory, NAME).getAbsolutePath() + MODE + SHARED;
+	}
+
+	/**
+	 * @param name
+	 *            the name of the database
+	 * @return the url of an embedded database which is kept in memory until the process exits, for
+	 *         tests.
+	 */
+	public static String memoryUrl(String name) {
+		return URL_PREFIX + "mem:" + name + MODE + ";DB_CLOSE_DELAY=-1";
+	}
+
+	/**
+	 * Registers the driver of the embedded database.
+	 */
+	public static void loadDriver() {
+		org.h2.Driver.load();
+	}
+
+	/**
+	 * Creates the tables of database.sql which do not exist yet.
+	 * 
+	 * @param conn
+	 *            a connection to the embedded database
+	 * @throws SQLException
+	 *             the schema could not be read or created
+	 */
+	public static void createSchema(Connection conn) throws SQLException {
+		List<String> statements;
+		try {
+			statements = readSchema();
+		} catch (IOException e) {
+			throw new SQLException("Could not read the schema " + SCHEMA, e);
+		}
+		try (Statement statement = conn.createStatement()) {
+			for (String sql : statements) {
+				statement.execute(sql);
+			}
+		}
+		log.info("Schema of the embedded database is up to date ({} tables).", statements.size());
+	}
+
+	/**
+	 * Reads the CREATE TABLE statements of database.sql. H2 accepts the MySQL column- and
+	 * key-definitions, but not the table options (ENGINE, CHARSET, AUTO_INCREMENT) following
+	 * them, so these are dropped.
+	 */
+	static List<String> readSchema() throws IOException {
+		List<String> statements = new ArrayList<String>();
+		try (InputStream in = EmbeddedDatabase.class.getResourceAsStream(SCHEMA)) {
+			if (in == null)
+				throw new IOException("Resource not found");
+			Scanner scanner = new Scanner(in, "UTF-8").useDelimiter(";\\s*(\\r?\\n|$)");
+			while (scanner.hasNext()) {
+				String sql = scanner.next().replaceAll("(?m)^--.*$", "").trim();
+				if (sql.startsWith("CREATE TABLE")) {
+					statements.add(sql.substring(0, sql.lastIndexOf(')') + 1));
+				}
+			}
+		}
+		return statements;
+	}
+}
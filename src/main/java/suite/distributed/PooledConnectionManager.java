@@ -0,0 +1,193 @@
+package suite.distributed;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import com.google.inject.Singleton;
+import com.j256.ormlite.jdbc.DataSourceConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.mysql.jdbc.Driver;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * PooledConnectionManager borrows connections from a bounded {@link ConnectionPool} instead of
+ * connecting for each call. Each thread borrows its own connection on getConnection() and returns
+ * it to the pool on closeConnection(), so concurrent worker-slots never share a connection. The
+ * ORMLite connection-source draws from the same pool. Besides the settings of
+ * ConnectionManagerImpl, the settings-file may contain poolSize, poolValidationInterval and
+ * poolMaxLifetime (in seconds) and poolStatementCache, the number of prepared statements kept by
+ * each connection. A url starting with jdbc:h2: selects an {@link EmbeddedDatabase}, of which the
+ * tables are created when missing.
+ */
+@Slf4j
+@Singleton
+public class PooledConnectionManager implements ConnectionManagerOrm {
+
+	private final ThreadLocal<Connection> connection = new ThreadLocal<Connection>();
+	private ConnectionPool pool;
+	private ConnectionSource connectionSource;
+	private String url;
+	private String database;
+	private String username;
+	private String password;
+
+	/**
+	 * Load setting files for PooledConnectionManager
+	 */
+	public PooledConnectionManager() {
+		try (FileInputStream file =
+		        new FileInputStream(System.getProperty("user.dir") + DEFAULT_SETTINGS_FILE)) {
+			Properties settings = new Properties();
+			settings.load(file);
+			setup(settings);
+		} catch (IOException e) {
+			log.error("Failed to retrieve database-settings, because {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Uses an embedded database instead of the database of the settings-file.
+	 * 
+	 * @param directory
+	 *            the directory of the embedded database, created if it does not exist.
+	 */
+	public PooledConnectionManager(File directory) {
+		directory.mkdirs();
+		Properties settings = new Properties();
+		settings.setProperty("url", EmbeddedDatabase.url(directory));
+		settings.setProperty("database", "");
+		settings.setProperty("username", EmbeddedDatabase.USERNAME);
+		settings.setProperty("password", EmbeddedDatabase.PASSWORD);
+		setup(settings);
+	}
+
+	/**
+	 * @param pool
+	 *            the pool to borrow the connections from
+	 * @param url
+	 *            the url of the database the pool connects to, used by ORMLite to pick its
+	 *            database-type.
+	 */
+	public PooledConnectionManager(ConnectionPool pool, String url) {
+		this.pool = pool;
+		this.url = url;
+		this.database = "";
+	}
+
+	/**
+	 * The common constructor-method. Reads the settings, loads driver-class and sets up the pool.
+	 * 
+	 * @param settings
+	 *            the connection- and pool-settings.
+	 */
+	private void setup(Properties settings) {
+		url = settings.getProperty("url");
+		database = settings.getProperty("database", "");
+		username = settings.getProperty("username");
+		password = settings.getProperty("password");
+		// Setup Driver
+		try {
+			if (EmbeddedDatabase.isEmbedded(url)) {
+				EmbeddedDatabase.loadDriver();
+			} else {
+				new Driver();
+			}
+		} catch (SQLException e) {
+			log.error("Failed to setup Driver: {} ", e.getMessage());
+		}
+		int size = Integer.parseInt(settings.getProperty("poolSize",
+		        String.valueOf(ConnectionPool.DEFAULT_SIZE)));
+		long validationInterval = Long.parseLong(settings.getProperty("poolValidationInterval",
+		        String.valueOf(ConnectionPool.DEFAULT_VALIDATION_INTERVAL / 1000))) * 1000;
+		long maxLifetime = Long.parseLong(settings.getProperty("poolMaxLifetime",
+		        String.valueOf(ConnectionPool.DEFAULT_MAX_LIFETIME / 1000))) * 1000;
+		pool = new ConnectionPool(new ConnectionPool.ConnectionFactory() {
+			@Override
+			public Connection create() throws SQLException {
+				Connection created = DriverManager.getConnection(url + database, username, password);
+				log.debug("Connection established with: " + url + database);
+				return created;
+			}
+		}, size, validationInterval, maxLifetime);
+		pool.setStatementCacheSize(Integer.parseInt(settings.getProperty("poolStatementCache",
+		        String.valueOf(ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE))));
+		log.debug("Connection settings loaded. Database-user: {}, pool-size: {}", username, size);
+		if (EmbeddedDatabase.isEmbedded(url)) {
+			createSchema();
+		}
+	}
+
+	/**
+	 * Creates the missing tables of the embedded database.
+	 */
+	public void createSchema() {
+		try (Connection conn = pool.borrow()) {
+			EmbeddedDatabase.createSchema(conn);
+		} catch (SQLException e) {
+			log.error("Failed to create the schema of {}: {}", url, e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the connection borrowed by this thread. If not present, borrow one from the pool.
+	 * 
+	 * @return the active connection of this thread
+	 */
+	public Connection getConnection() {
+		try {
+			if (connection.get() == null || connection.get().isClosed()) {
+				connection.set(pool.borrow());
+			}
+		} catch (SQLException e) {
+			log.error(e.getMessage());
+		}
+		return connection.get();
+	}
+
+	/**
+	 * Returns the connection of this thread to the pool.
+	 */
+	public void closeConnection() {
+		Connection borrowed = connection.get();
+		connection.remove();
+		if (borrowed == null) {
+			log.debug("No connection was borrowed by {}", Thread.currentThread().getName());
+			return;
+		}
+		try {
+			borrowed.close();
+		} catch (SQLException e) {
+			log.error(e.getMessage());
+		}
+	}
+
+	/**
+	 * @return a connection-source drawing from the same pool as getConnection().
+	 * @throws SQLException
+	 *             when the connection-source cannot be made
+	 */
+	public synchronized ConnectionSource getConnectionORM() throws SQLException {
+		if (connectionSource == null) {
+			connectionSource = new DataSourceConnectionSource(pool, url + database);
+		}
+		return connectionSource;
+	}
+
+	/**
+	 * @return the pool the connections are borrowed from
+	 */
+	public ConnectionPool getPool() {
+		return pool;
+	}
+
+	@Override
+	public String toString() {
+		return "PooledConnectionManager [pool=" + pool + ", url=" + url + ":" + database + "]";
+	}
+}
@@ -0,0 +1,282 @@
+package suite.distributed;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A named, parameterised SQL-statement of a DAO. Statements are prepared on the connection of the
+ * calling thread; a pooled connection keeps them prepared, so the database parses each statement
+ * once per connection. The executions and latency of each statement are recorded by its name.
+ */
+@Slf4j
+public class SqlStatement {
+
+	private static final ConcurrentMap<String, Metrics> METRICS =
+	        new ConcurrentHashMap<String, Metrics>();
+
+	@Getter
+	private final String name;
+	@Getter
+	private final String sql;
+	private final boolean generatedKeys;
+	private final Metrics metrics;
+
+	/**
+	 * @param name
+	 *            the name the metrics of the statement are recorded by
+	 * @param sql
+	 *            the statement, with a ? for each parameter
+	 */
+	public SqlStatement(String name, String sql) {
+		this(name, sql, false);
+	}
+
+	/**
+	 * @param name
+	 *            the name the metrics of the statement are recorded by, statements with the same
+	 *            name share their metrics.
+	 * @param sql
+	 *            the statement, with a ? for each parameter
+	 * @param generatedKeys
+	 *            true if the keys generated by the statement are retrieved
+	 */
+	public SqlStatement(String name, String sql, boolean generatedKeys) {
+		this.name = name;
+		this.sql = sql;
+		this.generatedKeys = generatedKeys;
+		Metrics created = new Metrics(name);
+		Metrics existing = METRICS.putIfAbsent(name, created);
+		this.metrics = existing != null ? existing : created;
+	}
+
+	/**
+	 * @param count
+	 *            the number of parameters
+	 * @return count comma-separated placeholders, for an IN-list or the values of a row.
+	 */
+	public static String placeholders(int count) {
+		StringBuilder placeholders = new StringBuilder(count * 2);
+		for (int i = 0; i < count; i++) {
+			placeholders.append(i == 0 ? "?" : ",?");
+		}
+		return placeholders.toString();
+	}
+
+	/**
+	 * Prepares the statement and binds the parameters, for statements which are executed in a
+	 * batch or of which the generated keys are read.
+	 * 
+	 * @param conn
+	 *            the connection of the calling thread
+	 * @param params
+	 *            the values of the parameters, in order
+	 * @return the prepared statement
+	 * @throws SQLException
+	 *             the statement could not be prepared
+	 */
+	public PreparedStatement prepare(Connection conn, Object... params) throws SQLException {
+		PreparedStatement statement =
+		        generatedKeys ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+		                : conn.prepareStatement(sql);
+		bind(statement, params);
+		return statement;
+	}
+
+	/**
+	 * @param conn
+	 *            the connection of the calling thread
+	 * @param params
+	 *            the values of the parameters, in order
+	 * @return the number of affected rows
+	 * @throws SQLException
+	 *             the statement failed
+	 */
+	public int executeUpdate(Connection conn, Object... params) throws SQLException {
+		return executeUpdate(prepare(conn, params));
+	}
+
+	/**
+	 * Executes a statement returned by prepare().
+	 * 
+	 * @param statement
+	 *            the prepared statement
+	 * @return the number of affected rows
+	 * @throws SQLException
+	 *             the statement failed
+	 */
+	public int executeUpdate(PreparedStatement statement) throws SQLException {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			int updated = statement.executeUpdate();
+			failed = false;
+			return updated;
+		} finally {
+			metrics.record(System.nanoTime() - start, failed);
+		}
+	}
+
+	/**
+	 * Executes the batch of a statement returned by prepare().
+	 * 
+	 * @param statement
+	 *            the prepared statement
+	 * @return the number of affected rows of each statement in the batch
+	 * @throws SQLException
+	 *             the batch failed
+	 */
+	public int[] executeBatch(PreparedStatement statement) throws SQLException {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			int[] updated = statement.executeBatch();
+			failed = false;
+			return updated;
+		} finally {
+			metrics.record(System.nanoTime() - start, failed);
+		}
+	}
+
+	/**
+	 * @param conn
+	 *            the connection of the calling thread
+	 * @param params
+	 *            the values of the parameters, in order
+	 * @return the results, valid until the statement is executed again or the connection is
+	 *         closed.
+	 * @throws SQLException
+	 *             the query failed
+	 */
+	public ResultSet executeQuery(Connection conn, Object... params) throws SQLException {
+		PreparedStatement statement = prepare(conn, params);
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			ResultSet results = statement.executeQuery();
+			failed = false;
+			return results;
+		} finally {
+			metrics.record(System.nanoTime() - start, failed);
+		}
+	}
+
+	/**
+	 * @return the metrics of this statement, shared by all statements with the same name
+	 */
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return the metrics of all statements, by their name
+	 */
+	public static Map<String, Metrics> getAllMetrics() {
+		return new TreeMap<String, Metrics>(METRICS);
+	}
+
+	/**
+	 * Logs the metrics of all executed statements.
+	 */
+	public static void logMetrics() {
+		for (Metrics statement : getAllMetrics().values()) {
+			if (statement.getExecutions() > 0) {
+				log.info("{}", statement);
+			}
+		}
+	}
+
+	private static void bind(PreparedStatement statement, Object[] params) throws SQLException {
+		for (int i = 0; i < params.length; i++) {
+			int index = i + 1;
+			Object param = params[i];
+			if (param == null) {
+				statement.setNull(index, Types.NULL);
+			} else if (param instanceof String) {
+				statement.setString(index, (String) param);
+			} else if (param instanceof Integer) {
+				statement.setInt(index, (Integer) param);
+			} else if (param instanceof Long) {
+				statement.setLong(index, (Long) param);
+			} else if (param instanceof Boolean) {
+				statement.setBoolean(index, (Boolean) param);
+			} else if (param instanceof Float) {
+				statement.setFloat(index, (Float) param);
+			} else if (param instanceof InputStream) {
+				statement.setBinaryStream(index, (InputStream) param);
+			} else {
+				statement.setObject(index, param);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SqlStatement [name=" + name + ", sql=" + sql + "]";
+	}
+
+	/**
+	 * The number of executions and their latency of a statement.
+	 */
+	public static class Metrics {
+		@Getter
+		private final String name;
+		private long executions;
+		private long failures;
+		private long totalNanos;
+		private long maxNanos;
+
+		Metrics(String name) {
+			this.name = name;
+		}
+
+		synchronized void record(long nanos, boolean failed) {
+			executions++;
+			if (failed) {
+				failures++;
+			}
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+
+		public synchronized long getExecutions() {
+			return executions;
+		}
+
+		public synchronized long getFailures() {
+			return failures;
+		}
+
+		public synchronized long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public synchronized long getMaxNanos() {
+			return maxNanos;
+		}
+
+		/**
+		 * @return the mean latency in milliseconds, or 0 if the statement was not executed.
+		 */
+		public synchronized double getMeanMillis() {
+			return executions == 0 ? 0 : totalNanos / 1e6 / executions;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format("%s: %d executions (%d failed), mean %.2f ms, max %.2f ms", name,
+			        executions, failures, getMeanMillis(), maxNanos / 1e6);
+		}
+	}
+}
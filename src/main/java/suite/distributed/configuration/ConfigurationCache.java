@@ -0,0 +1,81 @@
+package suite.distributed.configuration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The ConfigurationCache remembers the resolved configuration of each (host, namespace), so the
+ * sections do not have to be retrieved and merged again for every crawl. A cached configuration is
+ * only used while the configuration-version of its sections is unchanged; an edited INI-file or
+ * database-section is resolved again. If the version cannot be determined, nothing is cached.
+ */
+@Slf4j
+public class ConfigurationCache {
+
+	private final ConfigurationDao config;
+	private final Map<List<String>, ResolvedConfiguration> resolved =
+	        new ConcurrentHashMap<List<String>, ResolvedConfiguration>();
+
+	/**
+	 * @param config
+	 *            the configuration to resolve the settings from
+	 */
+	public ConfigurationCache(ConfigurationDao config) {
+		this.config = config;
+	}
+
+	/**
+	 * Resolves the settings of a host: the common section, overridden by the section of the host,
+	 * overridden by the section of the namespace.
+	 * 
+	 * @param host
+	 *            the host of the website
+	 * @param namespace
+	 *            the namespace, if null or empty only the common section and host are used.
+	 * @return the resolved configuration
+	 */
+	public ResolvedConfiguration resolve(String host, String namespace) {
+		List<String> sections = sections(host, namespace);
+		long version = config.getConfigurationVersion(sections);
+		ResolvedConfiguration cached = resolved.get(sections);
+		if (cached != null && version >= 0 && cached.getVersion() == version) {
+			return cached;
+		}
+		ResolvedConfiguration configuration =
+		        new ResolvedConfiguration(version, config.getConfiguration(sections));
+		if (version >= 0) {
+			resolved.put(sections, configuration);
+		} else {
+			resolved.remove(sections);
+		}
+		log.debug("Resolved configuration of {} at version {}", sections, version);
+		return configuration;
+	}
+
+	/**
+	 * Forgets all resolved configurations.
+	 */
+	public void clear() {
+		resolved.clear();
+	}
+
+	static List<String> sections(String host, String namespace) {
+		ImmutableList.Builder<String> sections = ImmutableList.builder();
+		sections.add(ConfigurationDao.SECTION_COMMON).add(host);
+		if (namespace != null && !namespace.isEmpty()
+		        && !namespace.equals(ConfigurationDao.SECTION_COMMON)) {
+			sections.add(namespace);
+		}
+		return sections.build();
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigurationCache [config=" + config + ", resolved=" + resolved.size() + "]";
+	}
+}
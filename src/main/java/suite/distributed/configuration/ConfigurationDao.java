@@ -35,6 +35,16 @@ public interface ConfigurationDao {
 	 */
 	Map<String, String> getConfiguration(String section);
 
+	/**
+	 * Get the version of the configurations of the sections, which changes whenever one of the
+	 * sections is changed.
+	 * 
+	 * @param sections
+	 *            grouping configurations together
+	 * @return the version of the sections, or -1 if it cannot be determined.
+	 */
+	long getConfigurationVersion(List<String> sections);
+
 	/**
 	 * Update a single key/value of the section
 	 * 
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 
 import suite.distributed.ConnectionManager;
+import suite.distributed.SqlStatement;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -20,7 +21,8 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * A ConfigurationDao implementation, which makes use of a SQL-database to store the
  * configuration-settings. SQL-implementation of the ConfigurationDao (Table) - Configuration:
- * depth|section|key|value| - pair (secton,key) is UNIQUE - ORDER BY depth DESC
+ * depth|section|key|value| - pair (secton,key) is UNIQUE - ORDER BY depth DESC. Each statement is
+ * executed as a prepared statement.
  */
 @Slf4j
 @Singleton
@@ -31,9 +33,34 @@ public class ConfigurationDaoImpl implements ConfigurationDao {
 	private static final String COLUMN_KEY = "key";
 	private static final String COLUMN_VALUE = "value";
 	private static final String COLUMN_DEPTH = "depth";
+	private static final String TABLE_VERSION = "configurationVersion";
+	private static final String COLUMN_VERSION = "version";
 	private static final int DEFAULT_IMPORTANCE = 10;
 	private static final int DEFAULT_MAPSIZE = 20;
 
+	private static final SqlStatement SELECT_ALL = new SqlStatement("configuration.selectAll",
+	        "SELECT * FROM `" + TABLE + "` ORDER BY `" + COLUMN_DEPTH + "` DESC");
+	private static final SqlStatement UPDATE = new SqlStatement("configuration.update",
+	        "UPDATE `" + TABLE + "` SET `" + COLUMN_VALUE + "`=?,`" + COLUMN_DEPTH + "`=? WHERE `"
+	                + COLUMN_SECTION + "`=? AND `" + COLUMN_KEY + "`=?");
+	private static final SqlStatement INSERT = new SqlStatement("configuration.insert",
+	        "INSERT INTO `" + TABLE + "` (`" + COLUMN_SECTION + "`,`" + COLUMN_KEY + "`,`"
+	                + COLUMN_VALUE + "`,`" + COLUMN_DEPTH + "`) VALUES (?,?,?,?)");
+	private static final SqlStatement DELETE_KEY = new SqlStatement("configuration.deleteKey",
+	        "DELETE FROM `" + TABLE + "` WHERE `" + COLUMN_SECTION + "`=? AND `" + COLUMN_KEY
+	                + "`=?");
+	private static final SqlStatement DELETE_SECTION = new SqlStatement(
+	        "configuration.deleteSection", "DELETE FROM `" + TABLE + "` WHERE `" + COLUMN_SECTION
+	                + "`=?");
+	private static final SqlStatement SET_IMPORTANCE = new SqlStatement(
+	        "configuration.setImportance", "UPDATE `" + TABLE + "` SET `" + COLUMN_DEPTH
+	                + "`=? WHERE `" + COLUMN_SECTION + "`=?");
+	private static final SqlStatement INCREMENT_VERSION = new SqlStatement(
+	        "configuration.incrementVersion", "INSERT INTO `" + TABLE_VERSION + "` (`"
+	                + COLUMN_SECTION + "`,`" + COLUMN_VERSION
+	                + "`) VALUES (?,1) ON DUPLICATE KEY UPDATE `" + COLUMN_VERSION + "`=`"
+	                + COLUMN_VERSION + "`+1");
+
 	private ConnectionManager connMgr;
 	private Map<String, Integer> importances;
 
@@ -48,15 +75,12 @@ public class ConfigurationDaoImpl implements ConfigurationDao {
 		Map<String, String> config = new HashMap<String, String>(DEFAULT_MAPSIZE);
 		try {
 			Connection conn = connMgr.getConnection();
-			StringBuilder where = new StringBuilder("WHERE ");
-			for (String section : sections) {
-				where.append("`" + COLUMN_SECTION + "`=\"" + section + "\" OR ");
-			}
-			ResultSet res =
-			        conn.createStatement().executeQuery(
-			                "SELECT * FROM  `" + TABLE + "` "
-			                        + where.substring(0, where.length() - " OR ".length())
-			                        + " ORDER BY `" + COLUMN_DEPTH + "` DESC");
+			SqlStatement select =
+			        new SqlStatement("configuration.selectSections", "SELECT * FROM `" + TABLE
+			                + "` WHERE `" + COLUMN_SECTION + "` IN ("
+			                + SqlStatement.placeholders(sections.size()) + ") ORDER BY `"
+			                + COLUMN_DEPTH + "` DESC");
+			ResultSet res = select.executeQuery(conn, sections.toArray());
 			while (res.next()) {
 				String key = res.getString(COLUMN_KEY);
 				String value = res.getString(COLUMN_VALUE);
@@ -82,22 +106,16 @@ public class ConfigurationDaoImpl implements ConfigurationDao {
 		try {
 			Connection conn = connMgr.getConnection();
 			// Attempt update for new value
-			if (conn.createStatement().executeUpdate(
-			        "UPDATE `" + TABLE + "` SET `"
-			                + COLUMN_VALUE + "`=\"" + value + "\",`" + COLUMN_DEPTH + "`="
-			                + getImportance(section, DEFAULT_IMPORTANCE)
-			                + " WHERE `" + COLUMN_SECTION + "`=\"" + section + "\" AND `"
-			                + COLUMN_KEY + "`=\"" + key + "\"") > 0) {
+			int importance = getImportance(section, DEFAULT_IMPORTANCE);
+			if (UPDATE.executeUpdate(conn, value, importance, section, key) > 0) {
 				log.info("Updated in section " + section + " key " + key + " to value " + value);
 			} else {
 				// If update failed, try insert.
-				conn.createStatement().executeUpdate(
-				        "INSERT INTO  " + TABLE + " VALUES (\"" + section + "\",\""
-				                + key + "\",\"" + value + "\","
-				                + getImportance(section, DEFAULT_IMPORTANCE) + ")");
+				INSERT.executeUpdate(conn, section, key, value, importance);
 				log.info("Inserted into section " + section + " key " + key + " = value "
 				        + value);
 			}
+			incrementConfigurationVersion(conn, section);
 			connMgr.closeConnection();
 		} catch (SQLException e) {
 			log.error("Error while updating configurations: " + e.getMessage());
@@ -107,10 +125,8 @@ public class ConfigurationDaoImpl implements ConfigurationDao {
 	public void deleteConfiguration(@NonNull String section, @NonNull String key) {
 		try {
 			Connection conn = connMgr.getConnection();
-			conn.createStatement().executeUpdate(
-			        "DELETE FROM  `" + TABLE + "` WHERE `" +
-			                COLUMN_SECTION + "`=\"" + section + "\" AND `" + COLUMN_KEY + "`=\""
-			                + key + "\"");
+			DELETE_KEY.executeUpdate(conn, section, key);
+			incrementConfigurationVersion(conn, section);
 			log.info("Deleted section: " + section);
 			connMgr.closeConnection();
 		} catch (SQLException e) {
@@ -121,9 +137,8 @@ public class ConfigurationDaoImpl implements ConfigurationDao {
 	public void deleteConfiguration(@NonNull String section) {
 		try {
 			Connection conn = connMgr.getConnection();
-			conn.createStatement().executeUpdate(
-			        "DELETE FROM `" + TABLE + "` WHERE `" + COLUMN_SECTION + "`=\"" + section
-			                + "\"");
+			DELETE_SECTION.executeUpdate(conn, section);
+			incrementConfigurationVersion(conn, section);
 			log.info("Deleted section: " + section);
 			connMgr.closeConnection();
 		} catch (SQLException e) {
@@ -135,9 +150,7 @@ public class ConfigurationDaoImpl implements ConfigurationDao {
 		Map<String, String> config = new HashMap<String, String>(DEFAULT_MAPSIZE);
 		try {
 			Connection conn = connMgr.getConnection();
-			ResultSet res =
-			        conn.createStatement().executeQuery(
-			                "SELECT * FROM `" + TABLE + "` ORDER BY `" + COLUMN_DEPTH + "` DESC");
+			ResultSet res = SELECT_ALL.executeQuery(conn);
 			while (res.next()) {
 				if (!config.containsKey(res.getString(COLUMN_KEY))) {
 					config.put(res.getString(COLUMN_KEY), res.getString(COLUMN_VALUE));
@@ -152,11 +165,39 @@ public class ConfigurationDaoImpl implements ConfigurationDao {
 		return config;
 	}
 
+	/**
+	 * The version of a set of sections is the sum of their versions, which increases whenever one
+	 * of the sections is changed.
+	 */
+	@Override
+	public long getConfigurationVersion(@NonNull List<String> sections) {
+		long version = -1;
+		try {
+			Connection conn = connMgr.getConnection();
+			SqlStatement select =
+			        new SqlStatement("configuration.selectVersion", "SELECT SUM(`"
+			                + COLUMN_VERSION + "`) AS `" + COLUMN_VERSION + "` FROM `"
+			                + TABLE_VERSION + "` WHERE `" + COLUMN_SECTION + "` IN ("
+			                + SqlStatement.placeholders(sections.size()) + ")");
+			ResultSet res = select.executeQuery(conn, sections.toArray());
+			version = res.next() ? res.getLong(COLUMN_VERSION) : 0;
+		} catch (SQLException e) {
+			log.debug("Configuration-version could not be retrieved: {}", e.getMessage());
+		} finally {
+			connMgr.closeConnection();
+		}
+		return version;
+	}
+
+	private void incrementConfigurationVersion(Connection conn, String section)
+	        throws SQLException {
+		INCREMENT_VERSION.executeUpdate(conn, section);
+	}
+
 	private Map<String, Integer> getImportanceOfSections() {
 		Map<String, Integer> sections = new HashMap<String, Integer>(DEFAULT_MAPSIZE);
 		try (Connection conn = connMgr.getConnection()) {
-			ResultSet res =
-			        conn.createStatement().executeQuery("SELECT * FROM  `" + TABLE + "` ");
+			ResultSet res = SELECT_ALL.executeQuery(conn);
 			while (res.next()) {
 				sections.put(res.getString(COLUMN_SECTION), res.getInt(COLUMN_DEPTH));
 			}
@@ -182,10 +223,9 @@ public class ConfigurationDaoImpl implements ConfigurationDao {
 	public void setImportance(@NonNull String section, int importance) {
 		try {
 			Connection conn = connMgr.getConnection();
-			conn.createStatement().executeUpdate("UPDATE `" + TABLE + "` SET `"
-			        + COLUMN_DEPTH + "`=\"" + importance
-			        + " WHERE `" + COLUMN_SECTION + "`=\"" + section);
+			SET_IMPORTANCE.executeUpdate(conn, importance, section);
 			importances.put(section, importance);
+			incrementConfigurationVersion(conn, section);
 			connMgr.closeConnection();
 		} catch (SQLException e) {
 			log.error("Failed to set new importance: " + e.getMessage());
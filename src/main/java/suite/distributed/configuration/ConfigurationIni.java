@@ -25,6 +25,8 @@ public class ConfigurationIni implements ConfigurationDao {
 	private static final File DEFAULT_SETTINGS_FILE = new File("/src/main/config/settings.ini");
 	private static final int DEFAULT_MAPSIZE = 20;
 	private Ini ini;
+	private long loadedModified;
+	private long version = 0;
 
 	/**
 	 * Provide a custom INI-file to use in the ConfigurationIni
@@ -36,6 +38,7 @@ public class ConfigurationIni implements ConfigurationDao {
 	public ConfigurationIni(File absoluteFilepath) {
 		try {
 			ini = new Ini(new File(System.getProperty("user.dir") + absoluteFilepath));
+			loadedModified = ini.getFile().lastModified();
 		} catch (IOException e) {
 			log.error(
 			        "Failed to load custom settings, trying to load default settings (reason: {}).",
@@ -60,6 +63,7 @@ public class ConfigurationIni implements ConfigurationDao {
 	private void getDefaultIni() {
 		try {
 			ini = new Ini(new File(System.getProperty("user.dir") + DEFAULT_SETTINGS_FILE));
+			loadedModified = ini.getFile().lastModified();
 		} catch (IOException e) {
 			log.error("Failed to load default settings, because {}.", e.getMessage());
 		}
@@ -115,6 +119,27 @@ public class ConfigurationIni implements ConfigurationDao {
 		return args;
 	}
 
+	/**
+	 * The version is raised whenever the configuration is stored, or the INI-file is changed by
+	 * someone else. In the latter case, the INI-file is loaded again.
+	 */
+	@Override
+	public synchronized long getConfigurationVersion(List<String> sections) {
+		File file = ini.getFile();
+		if (file != null && file.lastModified() != loadedModified) {
+			try {
+				ini = new Ini(file);
+				loadedModified = file.lastModified();
+				version++;
+				log.info("Reloaded changed settings from {}.", file);
+			} catch (IOException e) {
+				log.error("Failed to reload changed settings, because {}.", e.getMessage());
+				return -1;
+			}
+		}
+		return version;
+	}
+
 	/**
 	 * Updates a key=value-setting in the section.
 	 */
@@ -137,9 +162,11 @@ public class ConfigurationIni implements ConfigurationDao {
 		storeConfiguration();
 	}
 
-	private void storeConfiguration() {
+	private synchronized void storeConfiguration() {
+		version++;
 		try {
 			ini.store();
+			loadedModified = ini.getFile().lastModified();
 			log.info("Configuration stored in {}.", ini.getFile());
 		} catch (IOException e) {
 			log.error("Failed to store ini, because: " + e.getMessage());
@@ -0,0 +1,96 @@
+package suite.distributed.configuration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.Getter;
+
+/**
+ * The merged settings of a set of sections, as resolved at a given configuration-version. Typed
+ * values are parsed once and remembered, so repeated lookups do not parse the same string again.
+ */
+public class ResolvedConfiguration {
+
+	@Getter
+	private final long version;
+
+	@Getter
+	private final Map<String, String> settings;
+
+	private final Map<String, Object> parsed = new ConcurrentHashMap<String, Object>();
+
+	/**
+	 * @param version
+	 *            the configuration-version at which the settings were resolved
+	 * @param settings
+	 *            the merged settings
+	 */
+	public ResolvedConfiguration(long version, Map<String, String> settings) {
+		this.version = version;
+		this.settings = Collections.unmodifiableMap(new HashMap<String, String>(settings));
+	}
+
+	/**
+	 * @param key
+	 *            the key of the setting
+	 * @return the setting parsed as an integer, or null if it is not set.
+	 * @throws NumberFormatException
+	 *             the setting is not an integer
+	 */
+	public Integer getInt(String key) {
+		Object value = parsed.get(key);
+		if (!(value instanceof Integer)) {
+			String setting = settings.get(key);
+			if (setting == null)
+				return null;
+			value = Integer.valueOf(setting.trim());
+			parsed.put(key, value);
+		}
+		return (Integer) value;
+	}
+
+	/**
+	 * @param key
+	 *            the key of the setting
+	 * @return the setting parsed as a long, or null if it is not set.
+	 * @throws NumberFormatException
+	 *             the setting is not a long
+	 */
+	public Long getLong(String key) {
+		Object value = parsed.get(key);
+		if (!(value instanceof Long)) {
+			String setting = settings.get(key);
+			if (setting == null)
+				return null;
+			value = Long.valueOf(setting.trim());
+			parsed.put(key, value);
+		}
+		return (Long) value;
+	}
+
+	/**
+	 * @param key
+	 *            the key of the setting
+	 * @return the setting parsed as a double, or null if it is not set.
+	 * @throws NumberFormatException
+	 *             the setting is not a double
+	 */
+	public Double getDouble(String key) {
+		Object value = parsed.get(key);
+		if (!(value instanceof Double)) {
+			String setting = settings.get(key);
+			if (setting == null)
+				return null;
+			value = Double.valueOf(setting.trim());
+			parsed.put(key, value);
+		}
+		return (Double) value;
+	}
+
+	@Override
+	public String toString() {
+		return "ResolvedConfiguration [version=" + version + ", settings=" + settings + "]";
+	}
+}
@@ -0,0 +1,238 @@
+package suite.distributed.results;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import suite.distributed.workload.RetryPolicy;
+import suite.distributed.workload.WorkTask;
+import suite.distributed.workload.WorkloadDao;
+
+/**
+ * The AsyncResultUploader uploads the output of finished crawls in the background, so a worker can
+ * start its next crawl right away. Once an upload completes, the worktask is checked out (or
+ * registered as failed, to be retried according to the retry-policy). Each pending output dir is
+ * marked on disk, so uploads left over from a stopped worker can be recovered. When the queue is
+ * full, submitting blocks until an upload finishes.
+ */
+@Slf4j
+public class AsyncResultUploader {
+
+	/**
+	 * Notified when the upload of a worktask has been completed.
+	 */
+	public interface UploadListener {
+
+		/**
+		 * @param task
+		 *            the worktask which has been uploaded
+		 * @param success
+		 *            true if the worktask was checked out, false if it was reverted.
+		 */
+		void uploaded(WorkTask task, boolean success);
+	}
+
+	public static final String PENDING_FILE = "upload.pending";
+	private static final String KEY_ID = "id";
+	private static final String KEY_URL = "url";
+	private static final String KEY_DURATION = "duration";
+	private static final PendingUpload STOP = new PendingUpload(null, null, 0);
+
+	private final ResultProcessor resultProcessor;
+	private final WorkloadDao workload;
+	private final int capacity;
+	private final RetryPolicy retryPolicy;
+	private final BlockingQueue<PendingUpload> queue;
+	private UploadListener listener;
+	private Thread thread;
+
+	/**
+	 * @param resultProcessor
+	 *            uploads the output dirs
+	 * @param workload
+	 *            used to check out or revert the uploaded worktasks
+	 * @param capacity
+	 *            the maximum number of pending uploads, if 0 uploads are done synchronously.
+	 */
+	public AsyncResultUploader(ResultProcessor resultProcessor, WorkloadDao workload, int capacity) {
+		this(resultProcessor, workload, capacity, new RetryPolicy());
+	}
+
+	/**
+	 * @param resultProcessor
+	 *            uploads the output dirs
+	 * @param workload
+	 *            used to check out the uploaded worktasks, or register their failure
+	 * @param capacity
+	 *            the maximum number of pending uploads, if 0 uploads are done synchronously.
+	 * @param retryPolicy
+	 *            decides when a worktask of which the upload failed is retried
+	 */
+	public AsyncResultUploader(ResultProcessor resultProcessor, WorkloadDao workload,
+	        int capacity, RetryPolicy retryPolicy) {
+		assert capacity >= 0;
+		this.resultProcessor = resultProcessor;
+		this.workload = workload;
+		this.capacity = capacity;
+		this.retryPolicy = retryPolicy;
+		this.queue = new ArrayBlockingQueue<PendingUpload>(capacity + 1);
+	}
+
+	public void setListener(UploadListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts uploading in the background. Does nothing if the capacity is 0.
+	 */
+	public synchronized void start() {
+		if (capacity == 0 || thread != null)
+			return;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				uploadQueued();
+			}
+		}, "AsyncResultUploader");
+		thread.start();
+		log.info("Uploading results in the background, queueing at most {} crawl(s).", capacity);
+	}
+
+	/**
+	 * Queues the output of a finished crawl for uploading. Blocks while the queue is full.
+	 * 
+	 * @param task
+	 *            the crawled worktask
+	 * @param dir
+	 *            the output dir of the crawl
+	 * @param duration
+	 *            the duration of the crawl
+	 * @throws InterruptedException
+	 *             interrupted while waiting for room in the queue
+	 */
+	public void submit(WorkTask task, File dir, long duration) throws InterruptedException {
+		PendingUpload upload = new PendingUpload(task, dir, duration);
+		markPending(upload);
+		if (capacity == 0) {
+			upload(upload);
+		} else if (!queue.offer(upload)) {
+			log.info("Upload queue is full; waiting for an upload to finish.");
+			queue.put(upload);
+		}
+	}
+
+	/**
+	 * Queues all output dirs in outputRoot, which were left pending by a previous run.
+	 * 
+	 * @param outputRoot
+	 *            the directory containing the output dirs
+	 * @return the recovered worktasks
+	 * @throws InterruptedException
+	 *             interrupted while waiting for room in the queue
+	 */
+	public List<WorkTask> recover(File outputRoot) throws InterruptedException {
+		List<WorkTask> recovered = new ArrayList<WorkTask>();
+		File[] dirs = outputRoot != null ? outputRoot.listFiles() : null;
+		if (dirs == null)
+			return recovered;
+		for (File dir : dirs) {
+			File pending = new File(dir, PENDING_FILE);
+			if (pending.isFile()) {
+				try (InputStream in = new FileInputStream(pending)) {
+					Properties props = new Properties();
+					props.load(in);
+					WorkTask task =
+					        new WorkTask(Integer.parseInt(props.getProperty(KEY_ID)), new URL(
+					                props.getProperty(KEY_URL)));
+					submit(task, dir, Long.parseLong(props.getProperty(KEY_DURATION)));
+					recovered.add(task);
+					log.info("Recovered pending upload of {}", task.getURL());
+				} catch (IOException | RuntimeException e) {
+					log.error("Failed to recover pending upload in {}: {}", dir, e.getMessage());
+				}
+			}
+		}
+		return recovered;
+	}
+
+	/**
+	 * Waits until all queued uploads are finished and stops the background upload.
+	 */
+	public synchronized void close() {
+		if (thread == null)
+			return;
+		try {
+			queue.put(STOP);
+			thread.join();
+		} catch (InterruptedException e) {
+			log.warn("Interrupted while finishing the uploads; {} remain pending on disk.",
+			        queue.size());
+		}
+		thread = null;
+	}
+
+	private void uploadQueued() {
+		try {
+			PendingUpload upload = queue.take();
+			while (upload != STOP) {
+				upload(upload);
+				upload = queue.take();
+			}
+		} catch (InterruptedException e) {
+			log.warn("Background upload interrupted: {}", e.getMessage());
+		}
+	}
+
+	private void upload(PendingUpload upload) {
+		WorkTask task = upload.getTask();
+		boolean success = false;
+		try {
+			resultProcessor.uploadResults(task.getId(), upload.getDir(), upload.getDuration());
+			workload.checkoutWork(task);
+			success = true;
+			log.info("crawl: {} completed", task.getURL());
+		} catch (RuntimeException e) {
+			log.error("Upload of {} failed: {}", task.getURL(), e.getMessage());
+			workload.failWork(task.getId(), "Upload failed: " + e.getMessage(), retryPolicy);
+		}
+		new File(upload.getDir(), PENDING_FILE).delete();
+		if (listener != null) {
+			listener.uploaded(task, success);
+		}
+	}
+
+	private void markPending(PendingUpload upload) {
+		Properties props = new Properties();
+		props.setProperty(KEY_ID, String.valueOf(upload.getTask().getId()));
+		props.setProperty(KEY_URL, upload.getTask().getURL().toString());
+		props.setProperty(KEY_DURATION, String.valueOf(upload.getDuration()));
+		try (OutputStream out = new FileOutputStream(new File(upload.getDir(), PENDING_FILE))) {
+			props.store(out, null);
+		} catch (IOException e) {
+			log.warn("Could not mark {} as pending upload: {}", upload.getDir(), e.getMessage());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "AsyncResultUploader [capacity=" + capacity + ", queued=" + queue.size() + "]";
+	}
+
+	@Data
+	private static class PendingUpload {
+		private final WorkTask task;
+		private final File dir;
+		private final long duration;
+	}
+}
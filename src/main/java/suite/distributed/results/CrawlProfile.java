@@ -0,0 +1,173 @@
+package suite.distributed.results;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * The CrawlProfile-class stores where the time of a single crawl went, split into its phases, along
+ * with the resources used. All times are in milliseconds. The nearDuplicateDetection- and
+ * domWrite-time are part of the crawl-time; the domWrite-time only covers handing the DOMs to the
+ * background writer. CPU-time covers the threads of the crawl only, but the peak heap is measured
+ * for the whole JVM, so it includes concurrent crawls when running multiple slots. It should not
+ * exist without a related websiteResult. The number of browsers used by the crawl is recorded as
+ * well.
+ */
+@Slf4j
+@DatabaseTable(tableName = "CrawlProfiles")
+@EqualsAndHashCode(exclude = { "websiteResult" })
+@ToString(exclude = { "websiteResult", "browserStartNanos", "nearDuplicateDetectionNanos",
+        "domWriteNanos", "cpuNanos" })
+@Data
+public class CrawlProfile {
+
+	static final String PROFILE_FILE = "profile.properties";
+	private static final long NANOS_PER_MILLI = 1000000;
+
+	@DatabaseField(generatedId = true)
+	private int id;
+
+	@DatabaseField(canBeNull = false, foreign = true)
+	private WebsiteResult websiteResult;
+
+	@DatabaseField
+	private long configurationTime;
+
+	@DatabaseField
+	private long browserStartTime;
+
+	@DatabaseField
+	private long crawlTime;
+
+	@DatabaseField
+	private long nearDuplicateDetectionTime;
+
+	@DatabaseField
+	private long domWriteTime;
+
+	@DatabaseField
+	private long uploadTime;
+
+	@DatabaseField
+	private long cpuTime;
+
+	@DatabaseField
+	private long peakHeap;
+
+	@DatabaseField
+	private long bytesUploaded;
+
+	@DatabaseField
+	private int browsers = 1;
+
+	/*
+	 * The phases below consist of many short calls on the threads of Crawljax, so they are
+	 * accumulated in nanoseconds to avoid rounding each call down to 0 milliseconds.
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private transient long browserStartNanos;
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private transient long nearDuplicateDetectionNanos;
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private transient long domWriteNanos;
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private transient long cpuNanos;
+
+	public synchronized void addBrowserStartNanos(long nanos) {
+		browserStartNanos += nanos;
+		browserStartTime = browserStartNanos / NANOS_PER_MILLI;
+	}
+
+	public synchronized void addNearDuplicateDetectionNanos(long nanos) {
+		nearDuplicateDetectionNanos += nanos;
+		nearDuplicateDetectionTime = nearDuplicateDetectionNanos / NANOS_PER_MILLI;
+	}
+
+	public synchronized void addDomWriteNanos(long nanos) {
+		domWriteNanos += nanos;
+		domWriteTime = domWriteNanos / NANOS_PER_MILLI;
+	}
+
+	public synchronized void addCpuNanos(long nanos) {
+		cpuNanos += nanos;
+		cpuTime = cpuNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Stores the profile in the output-dir of the crawl, so it can be uploaded along with the other
+	 * results.
+	 * 
+	 * @param dir
+	 *            the output-dir of the crawl
+	 */
+	public synchronized void store(File dir) {
+		Properties props = new Properties();
+		props.setProperty("configurationTime", String.valueOf(configurationTime));
+		props.setProperty("browserStartTime", String.valueOf(browserStartTime));
+		props.setProperty("crawlTime", String.valueOf(crawlTime));
+		props.setProperty("nearDuplicateDetectionTime", String.valueOf(nearDuplicateDetectionTime));
+		props.setProperty("domWriteTime", String.valueOf(domWriteTime));
+		props.setProperty("cpuTime", String.valueOf(cpuTime));
+		props.setProperty("peakHeap", String.valueOf(peakHeap));
+		props.setProperty("browsers", String.valueOf(browsers));
+		dir.mkdirs();
+		try (OutputStream out = new FileOutputStream(new File(dir, PROFILE_FILE))) {
+			props.store(out, null);
+		} catch (IOException e) {
+			log.warn("Could not store the crawl-profile in {}: {}", dir, e.getMessage());
+		}
+	}
+
+	/**
+	 * Loads the profile stored in the output-dir of a crawl.
+	 * 
+	 * @param dir
+	 *            the output-dir of the crawl
+	 * @return the profile, or null if the dir contains no (valid) profile.
+	 */
+	public static CrawlProfile load(File dir) {
+		File file = new File(dir, PROFILE_FILE);
+		if (!file.isFile())
+			return null;
+		try (InputStream in = new FileInputStream(file)) {
+			Properties props = new Properties();
+			props.load(in);
+			CrawlProfile profile = new CrawlProfile();
+			profile.setConfigurationTime(Long.parseLong(props.getProperty("configurationTime")));
+			profile.setBrowserStartTime(Long.parseLong(props.getProperty("browserStartTime")));
+			profile.setCrawlTime(Long.parseLong(props.getProperty("crawlTime")));
+			profile.setNearDuplicateDetectionTime(Long.parseLong(props
+			        .getProperty("nearDuplicateDetectionTime")));
+			profile.setDomWriteTime(Long.parseLong(props.getProperty("domWriteTime")));
+			profile.setCpuTime(Long.parseLong(props.getProperty("cpuTime")));
+			profile.setPeakHeap(Long.parseLong(props.getProperty("peakHeap")));
+			profile.setBrowsers(Integer.parseInt(props.getProperty("browsers", "1")));
+			return profile;
+		} catch (IOException | RuntimeException e) {
+			log.warn("Could not load the crawl-profile in {}: {}", dir, e.getMessage());
+			return null;
+		}
+	}
+}
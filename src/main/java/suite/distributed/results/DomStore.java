@@ -0,0 +1,202 @@
+package suite.distributed.results;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.commons.io.IOUtils;
+
+import com.crawljax.core.state.duplicatedetection.HashGenerator;
+
+/**
+ * The DomStore stores DOMs content-addressed in a single directory: each distinct DOM is written
+ * once, compressed, and the states refer to it by its key. The key consists of the hash of the DOM
+ * and its size in bytes. A DOM whose key is already stored is compared with the stored DOM, and
+ * only shares its file if both are equal; a different DOM with the same key is stored under the key
+ * with a sequence number appended to the hash. The index of states is stored as index.properties
+ * when the store is closed.
+ */
+@Slf4j
+public class DomStore {
+
+	public static final String INDEX_FILE = "index.properties";
+	public static final String OBJECT_EXTENSION = ".html.gz";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String SIZE_SEPARATOR = "-";
+	private static final String COLLISION_SEPARATOR = "_";
+
+	private final File dir;
+	private final HashGenerator hasher;
+	private final Map<String, String> index = new HashMap<String, String>();
+	private final Set<String> stored = new HashSet<String>();
+
+	/**
+	 * @param dir
+	 *            the directory to store the DOMs in
+	 * @param hasher
+	 *            the hash-function used to address the DOMs
+	 */
+	public DomStore(File dir, HashGenerator hasher) {
+		this.dir = dir;
+		this.hasher = hasher;
+	}
+
+	/**
+	 * Stores the DOM of a state, unless an equal DOM is already stored.
+	 * 
+	 * @param state
+	 *            the name of the state
+	 * @param dom
+	 *            the DOM of the state
+	 * @return true if the DOM was written, false if it was already stored
+	 * @throws IOException
+	 *             the DOM could not be written
+	 */
+	public synchronized boolean put(String state, String dom) throws IOException {
+		byte[] bytes = dom.getBytes(StandardCharsets.UTF_8);
+		String hash = Integer.toHexString(hasher.generateHash(dom));
+		String key = keyOf(hash, bytes.length);
+		for (int collisions = 1; stored.contains(key); collisions++) {
+			if (Arrays.equals(bytes, readBytes(dir, key))) {
+				index.put(state, key);
+				return false;
+			}
+			log.debug("Hash collision of state {} on key {}", state, key);
+			key = keyOf(hash + COLLISION_SEPARATOR + collisions, bytes.length);
+		}
+		write(key, bytes);
+		stored.add(key);
+		index.put(state, key);
+		return true;
+	}
+
+	/**
+	 * @return the number of distinct DOMs stored
+	 */
+	public synchronized int getStoredCount() {
+		return stored.size();
+	}
+
+	/**
+	 * Stores the index of states, so the store can be read by {@link #loadIndex(File)}.
+	 * 
+	 * @throws IOException
+	 *             the index could not be written
+	 */
+	public synchronized void close() throws IOException {
+		Properties props = new Properties();
+		props.putAll(index);
+		try (OutputStream out = new FileOutputStream(new File(dir, INDEX_FILE))) {
+			props.store(out, null);
+		}
+	}
+
+	private void write(String key, byte[] bytes) throws IOException {
+		try (FileChannel channel =
+		        FileChannel.open(new File(dir, key + OBJECT_EXTENSION).toPath(),
+		                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+		                StandardOpenOption.TRUNCATE_EXISTING);
+		        OutputStream out =
+		                new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * @param hasher
+	 *            the hash-function used to address the DOMs
+	 * @param dom
+	 *            a DOM
+	 * @return the key under which the DOM is stored, unless another DOM was stored under it first
+	 */
+	public static String keyOf(HashGenerator hasher, String dom) {
+		return keyOf(Integer.toHexString(hasher.generateHash(dom)),
+		        dom.getBytes(StandardCharsets.UTF_8).length);
+	}
+
+	private static String keyOf(String hash, int size) {
+		return hash + SIZE_SEPARATOR + size;
+	}
+
+	/**
+	 * @param dir
+	 *            a directory of DOMs
+	 * @return true if the directory is a DomStore, false if it contains a plain file per state.
+	 */
+	public static boolean isStore(File dir) {
+		return new File(dir, INDEX_FILE).isFile();
+	}
+
+	/**
+	 * @param dir
+	 *            the directory of the store
+	 * @return the keys of the DOMs by the name of their state
+	 * @throws IOException
+	 *             the index could not be read
+	 */
+	public static Map<String, String> loadIndex(File dir) throws IOException {
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(new File(dir, INDEX_FILE))) {
+			props.load(in);
+		}
+		Map<String, String> index = new HashMap<String, String>();
+		for (String state : props.stringPropertyNames()) {
+			index.put(state, props.getProperty(state));
+		}
+		return Collections.unmodifiableMap(index);
+	}
+
+	/**
+	 * @param dir
+	 *            the directory of the store
+	 * @param key
+	 *            the key of the DOM
+	 * @return the DOM
+	 * @throws IOException
+	 *             the DOM could not be read
+	 */
+	public static String read(File dir, String key) throws IOException {
+		return new String(readBytes(dir, key), StandardCharsets.UTF_8);
+	}
+
+	private static byte[] readBytes(File dir, String key) throws IOException {
+		try (InputStream in =
+		        new GZIPInputStream(new FileInputStream(new File(dir, key + OBJECT_EXTENSION)),
+		                BUFFER_SIZE)) {
+			return IOUtils.toByteArray(in);
+		}
+	}
+
+	/**
+	 * @param key
+	 *            the key of a DOM
+	 * @return the size of the DOM in bytes, before compression
+	 */
+	public static long sizeOf(String key) {
+		return Long.parseLong(key.substring(key.lastIndexOf(SIZE_SEPARATOR) + 1));
+	}
+
+	@Override
+	public String toString() {
+		return "DomStore [dir=" + dir + ", states=" + index.size() + ", stored=" + stored.size()
+		        + "]";
+	}
+}
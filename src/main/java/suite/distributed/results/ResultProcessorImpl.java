@@ -5,6 +5,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -31,7 +35,8 @@ public class ResultProcessorImpl implements ResultProcessor {
 	}
 
 	/**
-	 * Upload the resulting all the results to the database.
+	 * Upload the resulting all the results to the database. If the states have been streamed
+	 * during the crawl, only the website-result is finished.
 	 * 
 	 * @param id
 	 *            The id of the crawled website that genarates the output folder
@@ -41,16 +46,45 @@ public class ResultProcessorImpl implements ResultProcessor {
 	 * 			  The duration of the crawl
 	 */
 	public void uploadResults(int id, File dir, long duration) {
-		int websiteID = this.uploadJson(id, dir, duration);
-		this.uploadDom(websiteID, dir);
-		this.uploadStrippedDom(websiteID, dir);
-		this.uploadScreenshot(websiteID, dir);
+		long start = System.currentTimeMillis();
+		CrawlProfile profile = CrawlProfile.load(dir);
+		int browsers = profile != null ? profile.getBrowsers() : 1;
+		StateStreamer.Streamed streamed = StateStreamer.load(dir);
+		int websiteID;
+		if (streamed != null && streamed.getWebsiteResult() >= 0) {
+			websiteID = streamed.getWebsiteResult();
+			upload.finishWebsiteResult(websiteID, duration, browsers);
+			if (streamed.getFailed() > 0) {
+				log.info("{} state(s) failed to stream; uploading all states again.",
+				        streamed.getFailed());
+				this.uploadStates(websiteID, dir);
+			}
+		} else {
+			websiteID = this.uploadJson(id, dir, duration, browsers);
+			this.uploadStates(websiteID, dir);
+		}
+		Map<String, StateFingerprint> fingerprints = StateFingerprint.load(dir);
+		if (!fingerprints.isEmpty() && websiteID >= 0) {
+			upload.uploadFingerprints(websiteID, fingerprints);
+		}
+
+		if (profile != null && websiteID >= 0) {
+			profile.setUploadTime(System.currentTimeMillis() - start);
+			profile.setBytesUploaded(this.uploadedSize(dir));
+			upload.uploadProfile(websiteID, profile);
+		}
 
 		// this.removeDir(dir);
 
 		upload.closeConnection();
 	}
 
+	private void uploadStates(int websiteId, File dir) {
+		this.uploadDom(websiteId, dir);
+		this.uploadStrippedDom(websiteId, dir);
+		this.uploadScreenshot(websiteId, dir);
+	}
+
 	/**
 	 * Upload only the result.json file to the database.
 	 * 
@@ -62,9 +96,25 @@ public class ResultProcessorImpl implements ResultProcessor {
 	 *            The duration of the crawl
 	 */
 	public int uploadJson(int id, File dir, long duration) {
+		return uploadJson(id, dir, duration, 1);
+	}
+
+	/**
+	 * Upload only the result.json file to the database, along with the number of browsers used.
+	 * 
+	 * @param id
+	 *            The id of the website
+	 * @param dir
+	 *            The output directory
+	 * @param duration
+	 *            The duration of the crawl
+	 * @param browsers
+	 *            The number of browsers used by the crawl
+	 */
+	public int uploadJson(int id, File dir, long duration, int browsers) {
 		File jsonFile = this.findFile(dir, PATH_RESULTS_JSON);
 		String fileContent = this.readFile(jsonFile);
-		return upload.uploadJson(id, fileContent, duration);
+		return upload.uploadJson(id, fileContent, duration, browsers);
 	}
 
 	/**
@@ -89,7 +139,8 @@ public class ResultProcessorImpl implements ResultProcessor {
 	}
 
 	/**
-	 * Upload only the stripped dom of every state to the database.
+	 * Upload only the stripped dom of every state to the database. If the stripped doms are kept in
+	 * a DomStore, each distinct dom is sent once and copied by the database to the other states.
 	 * 
 	 * @param id
 	 *            The id of the website
@@ -98,6 +149,10 @@ public class ResultProcessorImpl implements ResultProcessor {
 	 */
 	public void uploadStrippedDom(int id, File dir) {
 		File dirOfMap = this.findFile(dir, PATH_RESULTS_STRIPPEDDOM);
+		if (DomStore.isStore(dirOfMap)) {
+			this.uploadStrippedDomStore(id, dirOfMap);
+			return;
+		}
 		File[] files = dirOfMap.listFiles();
 
 		log.info(files.length + " stripped dom-states found");
@@ -108,6 +163,28 @@ public class ResultProcessorImpl implements ResultProcessor {
 		}
 	}
 
+	private void uploadStrippedDomStore(int id, File dir) {
+		Map<String, String> index = this.loadIndex(dir);
+		Map<String, String> uploaded = new HashMap<String, String>();
+
+		log.info("{} stripped dom-states found", index.size());
+		for (Entry<String, String> state : index.entrySet()) {
+			String source = uploaded.get(state.getValue());
+			if (source != null) {
+				upload.copyStrippedDom(id, source, state.getKey());
+				continue;
+			}
+			try {
+				upload.uploadStrippedDom(id, DomStore.read(dir, state.getValue()), state.getKey());
+			} catch (IOException e) {
+				throw new ResultProcessorException("Could not read the stripped dom of "
+				        + state.getKey());
+			}
+			uploaded.put(state.getValue(), state.getKey());
+		}
+		log.info("{} distinct stripped doms uploaded", uploaded.size());
+	}
+
 	/**
 	 * Upload only the screenshot of every state to the database.
 	 * 
@@ -137,6 +214,29 @@ public class ResultProcessorImpl implements ResultProcessor {
 		}
 	}
 
+	/**
+	 * Returns the number of bytes uploaded from the output directory: the doms, stripped doms and
+	 * screenshots (except the small ones, which are skipped by the upload). Stripped doms in a
+	 * DomStore are counted once per distinct dom, at their uncompressed size.
+	 */
+	private long uploadedSize(File dir) {
+		long size = FileUtils.sizeOfDirectory(this.findFile(dir, PATH_RESULTS_DOM));
+		File strippedDoms = this.findFile(dir, PATH_RESULTS_STRIPPEDDOM);
+		if (DomStore.isStore(strippedDoms)) {
+			for (String key : new HashSet<String>(this.loadIndex(strippedDoms).values())) {
+				size += DomStore.sizeOf(key);
+			}
+		} else {
+			size += FileUtils.sizeOfDirectory(strippedDoms);
+		}
+		for (File file : this.findFile(dir, PATH_RESULTS_SCREENSHOTS).listFiles()) {
+			if (!this.getStateId(file).contains("small")) {
+				size += file.length();
+			}
+		}
+		return size;
+	}
+
 	@SuppressWarnings("unused")
 	private void removeDir(String dir) {
 		try {
@@ -161,6 +261,14 @@ public class ResultProcessorImpl implements ResultProcessor {
 		return result;
 	}
 
+	private Map<String, String> loadIndex(File dir) throws ResultProcessorException {
+		try {
+			return DomStore.loadIndex(dir);
+		} catch (IOException e) {
+			throw new ResultProcessorException("Could not read the index of " + dir.getName());
+		}
+	}
+
 	private String getStateId(File f) {
 		String fileName = f.getName();
 		int indexOfExtension = fileName.lastIndexOf('.');
@@ -4,9 +4,11 @@ import java.io.FileInputStream;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import suite.distributed.ConnectionManager;
+import suite.distributed.SqlStatement;
 
 import com.google.inject.Inject;
 
@@ -19,12 +21,63 @@ public class ResultUpload {
 	private static final String COLUMN_ID_STATE = "stateId";
 	private static final String COLUMN_DOM = "dom";
 	private static final String COLUMN_STRIPPEDDOM = "strippedDom";
+	private static final String COLUMN_STRIPPEDDOM_HASH = "strippedDomHash";
+	private static final String COLUMN_FINGERPRINT = "fingerprint";
 	private static final String COLUMN_SCREENSHOT = "screenshot";
 
 	private static final String TABLE_WEBSITE_RESULTS = "WebsiteResults";
 	private static final String COLUMN_ID_WORKTASK = "workTask_id";
 	private static final String COLUMN_RESULTS_JSON = "jsonResults";
 	private static final String COLUMN_DURATION = "duration";
+	private static final String COLUMN_BROWSERS = "browsers";
+
+	private static final String TABLE_PROFILES = "CrawlProfiles";
+	private static final String COLUMN_ID_WEBSITERESULT = "websiteResult_id";
+
+	private static final SqlStatement INSERT_WEBSITE_RESULT = new SqlStatement(
+	        "results.insertWebsiteResult", "INSERT INTO " + TABLE_WEBSITE_RESULTS + "("
+	                + COLUMN_ID_WORKTASK + "," + COLUMN_RESULTS_JSON + "," + COLUMN_DURATION + ","
+	                + COLUMN_BROWSERS + ") VALUES(?,?,?,?)", true);
+	private static final SqlStatement SELECT_WEBSITE_RESULT = new SqlStatement(
+	        "results.selectWebsiteResult", "SELECT id FROM " + TABLE_WEBSITE_RESULTS + " WHERE "
+	                + COLUMN_ID_WORKTASK + " = ?");
+	private static final SqlStatement OPEN_WEBSITE_RESULT = new SqlStatement(
+	        "results.openWebsiteResult", "INSERT INTO " + TABLE_WEBSITE_RESULTS + "("
+	                + COLUMN_ID_WORKTASK + "," + COLUMN_RESULTS_JSON + ") VALUES(?,?)", true);
+	private static final SqlStatement FINISH_WEBSITE_RESULT = new SqlStatement(
+	        "results.finishWebsiteResult", "UPDATE " + TABLE_WEBSITE_RESULTS + " SET "
+	                + COLUMN_DURATION + "=?," + COLUMN_BROWSERS + "=? WHERE id=?");
+	private static final SqlStatement DELETE_WEBSITE_RESULT = new SqlStatement(
+	        "results.deleteWebsiteResult", "DELETE FROM " + TABLE_WEBSITE_RESULTS + " WHERE id=?");
+	private static final SqlStatement INSERT_STATE = new SqlStatement("results.insertState",
+	        "INSERT INTO " + TABLE_STATE_RESULTS + "(" + COLUMN_ID_WEBSITE + "," + COLUMN_ID_STATE
+	                + ") VALUES(?,?)");
+	private static final SqlStatement SELECT_STATE = new SqlStatement("results.selectState",
+	        "SELECT " + COLUMN_ID_STATE + " FROM " + TABLE_STATE_RESULTS + " WHERE "
+	                + COLUMN_ID_WEBSITE + " = ? AND " + COLUMN_ID_STATE + " = ?");
+	private static final SqlStatement DELETE_STATES = new SqlStatement("results.deleteStates",
+	        "DELETE FROM " + TABLE_STATE_RESULTS + " WHERE " + COLUMN_ID_WEBSITE + "=?");
+	private static final SqlStatement UPLOAD_DOM = updateState("results.uploadDom", COLUMN_DOM);
+	private static final SqlStatement UPLOAD_STRIPPED_DOM = updateState(
+	        "results.uploadStrippedDom", COLUMN_STRIPPEDDOM);
+	private static final SqlStatement UPLOAD_SCREENSHOT = updateState("results.uploadScreenshot",
+	        COLUMN_SCREENSHOT);
+	// MySQL can not select from the table it updates, unless through a derived table
+	private static final SqlStatement COPY_STRIPPED_DOM = new SqlStatement(
+	        "results.copyStrippedDom", "UPDATE " + TABLE_STATE_RESULTS + " SET "
+	                + COLUMN_STRIPPEDDOM + "=(SELECT " + COLUMN_STRIPPEDDOM + " FROM (SELECT "
+	                + COLUMN_STRIPPEDDOM + " FROM " + TABLE_STATE_RESULTS + " WHERE "
+	                + COLUMN_ID_WEBSITE + "=? AND " + COLUMN_ID_STATE + "=?) AS source) WHERE "
+	                + COLUMN_ID_WEBSITE + "=? AND " + COLUMN_ID_STATE + "=?");
+	private static final SqlStatement UPLOAD_FINGERPRINT = new SqlStatement(
+	        "results.uploadFingerprint", "UPDATE " + TABLE_STATE_RESULTS + " SET "
+	                + COLUMN_STRIPPEDDOM_HASH + "=?," + COLUMN_FINGERPRINT + "=? WHERE "
+	                + COLUMN_ID_WEBSITE + "=? AND " + COLUMN_ID_STATE + "=?");
+	private static final SqlStatement INSERT_PROFILE = new SqlStatement("results.insertProfile",
+	        "INSERT INTO " + TABLE_PROFILES + "(" + COLUMN_ID_WEBSITERESULT
+	                + ",configurationTime,browserStartTime,crawlTime,"
+	                + "nearDuplicateDetectionTime,domWriteTime,uploadTime,cpuTime,peakHeap,"
+	                + "bytesUploaded,browsers) VALUES(?,?,?,?,?,?,?,?,?,?,?)");
 
 	private ConnectionManager con;
 
@@ -34,22 +87,21 @@ public class ResultUpload {
 	}
 
 	public int uploadJson(int id, String fileContent, long duration)
+	        throws ResultProcessorException {
+		return uploadJson(id, fileContent, duration, 1);
+	}
+
+	public int uploadJson(int id, String fileContent, long duration, int browsers)
 	        throws ResultProcessorException {
 		int ret = -1;
 		try {
 			if (this.tableContainsJson(id)) {
 				log.warn("There already excist a result.json file of this website_id in the database, so this result.json will be discarded");
 			} else {
-				String sql = "INSERT INTO " + TABLE_WEBSITE_RESULTS + "(" + COLUMN_ID_WORKTASK
-				        + "," + COLUMN_RESULTS_JSON + "," + COLUMN_DURATION + ") VALUES(?,?,?)";
 				PreparedStatement statement =
-				        con.getConnection()
-				                .prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-
-				statement.setInt(1, id);
-				statement.setString(2, null);
-				statement.setFloat(3, duration);
-				int insert = statement.executeUpdate();
+				        INSERT_WEBSITE_RESULT.prepare(con.getConnection(), id, null,
+				                (float) duration, browsers);
+				int insert = INSERT_WEBSITE_RESULT.executeUpdate(statement);
 
 				if (insert == 1) {
 					log.info("The result.json file is sent to the database");
@@ -71,6 +123,81 @@ public class ResultUpload {
 		return ret;
 	}
 
+	/**
+	 * Opens the website-result of a worktask, so its states can be uploaded while it is being
+	 * crawled. A website-result left by an earlier attempt is reused, without its states.
+	 * 
+	 * @param workTaskId
+	 *            the id of the worktask being crawled
+	 * @return the id of the website-result
+	 */
+	public int openWebsiteResult(int workTaskId) throws ResultProcessorException {
+		try {
+			ResultSet resSet = SELECT_WEBSITE_RESULT.executeQuery(con.getConnection(), workTaskId);
+			if (resSet.next()) {
+				int id = resSet.getInt(1);
+				this.deleteStates(id);
+				log.info("Reusing website-result {} of worktask {}", id, workTaskId);
+				return id;
+			}
+
+			PreparedStatement statement =
+			        OPEN_WEBSITE_RESULT.prepare(con.getConnection(), workTaskId, null);
+			if (OPEN_WEBSITE_RESULT.executeUpdate(statement) != 1) {
+				throw new ResultProcessorException("Can not open the website-result");
+			}
+			ResultSet generatedkeys = statement.getGeneratedKeys();
+			if (!generatedkeys.next()) {
+				throw new ResultProcessorException("No id generated for the website-result");
+			}
+			return generatedkeys.getInt(1);
+		} catch (SQLException e) {
+			log.error("SQLException: " + e.getMessage());
+			throw new ResultProcessorException(
+			        "SQLException while opening the website-result of worktask " + workTaskId);
+		}
+	}
+
+	/**
+	 * Completes a website-result of which the states have been uploaded during the crawl.
+	 * 
+	 * @param id
+	 *            the id of the website-result
+	 * @param duration
+	 *            the duration of the crawl
+	 * @param browsers
+	 *            the number of browsers used by the crawl
+	 */
+	public void finishWebsiteResult(int id, long duration, int browsers)
+	        throws ResultProcessorException {
+		try {
+			if (FINISH_WEBSITE_RESULT.executeUpdate(con.getConnection(), (float) duration,
+			        browsers, id) != 1) {
+				throw new ResultProcessorException("Website-result " + id + " does not exist");
+			}
+		} catch (SQLException e) {
+			log.error("SQLException: " + e.getMessage());
+			throw new ResultProcessorException("SQLException while finishing website-result "
+			        + id);
+		}
+	}
+
+	/**
+	 * Removes a website-result and its states, for instance when its crawl failed.
+	 * 
+	 * @param id
+	 *            the id of the website-result
+	 */
+	public void deleteWebsiteResult(int id) {
+		try {
+			this.deleteStates(id);
+			DELETE_WEBSITE_RESULT.executeUpdate(con.getConnection(), id);
+		} catch (SQLException e) {
+			log.error("SQLException while deleting website-result " + id + ". Message: "
+			        + e.getMessage());
+		}
+	}
+
 	public void uploadDom(int id, String fileContent, String stateId)
 	        throws ResultProcessorException {
 		try {
@@ -78,7 +205,7 @@ public class ResultUpload {
 			if (!this.tableContainsTuple(id, stateId)) {
 				this.makeTuple(id, stateId);
 			}
-			this.insertInTuple(COLUMN_DOM, fileContent, id, stateId);
+			UPLOAD_DOM.executeUpdate(con.getConnection(), fileContent, id, stateId);
 
 		} catch (SQLException e) {
 			log.error("SQLException: " + e.getMessage());
@@ -93,17 +220,9 @@ public class ResultUpload {
 				this.makeTuple(id, stateId);
 			}
 
-			String update =
-			        "UPDATE " + TABLE_STATE_RESULTS + " SET " + COLUMN_STRIPPEDDOM + "=? WHERE "
-			                + COLUMN_ID_WEBSITE + "=? AND " + COLUMN_ID_STATE + "=?";
-			PreparedStatement statement =
-			        con.getConnection().prepareStatement(update, Statement.RETURN_GENERATED_KEYS);
-
-			statement.setString(1, fileContent);
-			statement.setInt(2, id);
-			statement.setString(3, stateId);
-
-			int updateSt = statement.executeUpdate();
+			int updateSt =
+			        UPLOAD_STRIPPED_DOM.executeUpdate(con.getConnection(), fileContent, id,
+			                stateId);
 
 			if (updateSt != 1) {
 				log.warn("A problem while inserting a screenshot into the database.");
@@ -115,6 +234,36 @@ public class ResultUpload {
 		}
 	}
 
+	/**
+	 * Copies the stripped-dom of a state which is already uploaded to another state of the same
+	 * website. The copy is made by the database, so the dom is not sent again.
+	 * 
+	 * @param id
+	 *            the id of the website-result
+	 * @param sourceStateId
+	 *            the state of which the stripped-dom has been uploaded
+	 * @param stateId
+	 *            the state with an equal stripped-dom
+	 */
+	public void copyStrippedDom(int id, String sourceStateId, String stateId)
+	        throws ResultProcessorException {
+		try {
+			if (!this.tableContainsTuple(id, stateId)) {
+				this.makeTuple(id, stateId);
+			}
+
+			if (COPY_STRIPPED_DOM.executeUpdate(con.getConnection(), id, sourceStateId, id,
+			        stateId) != 1) {
+				log.warn("A problem while copying the stripped-dom of {} to {}.", sourceStateId,
+				        stateId);
+			}
+		} catch (SQLException e) {
+			log.error("SQLException during copy of stripped-dom " + id + ". Message: "
+			        + e.getMessage());
+			throw new ResultProcessorException("SQLException during the copy of a stripped-dom");
+		}
+	}
+
 	public void uploadScreenshot(int id, FileInputStream fr, String stateId)
 	        throws ResultProcessorException {
 		try {
@@ -123,19 +272,8 @@ public class ResultUpload {
 				if (!this.tableContainsTuple(id, stateId)) {
 					this.makeTuple(id, stateId);
 				}
-				String sql =
-				        "UPDATE " + TABLE_STATE_RESULTS + " SET " + COLUMN_SCREENSHOT
-				                + " = ? WHERE " + COLUMN_ID_WEBSITE + " = ? AND "
-				                + COLUMN_ID_STATE + " = ?";
-				PreparedStatement prepStat =
-				        con.getConnection()
-				                .prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-
-				prepStat.setBinaryStream(1, fr);
-				prepStat.setInt(2, id);
-				prepStat.setString(3, stateId);
-
-				int result = prepStat.executeUpdate();
+				int result =
+				        UPLOAD_SCREENSHOT.executeUpdate(con.getConnection(), fr, id, stateId);
 				if (result != 1) {
 					log.warn("A problem while inserting a screenshot into the database.");
 				}
@@ -147,18 +285,59 @@ public class ResultUpload {
 		}
 	}
 
-	private void makeTuple(int id, String stateId) throws ResultProcessorException {
+	/**
+	 * Stores the hashes and fingerprints computed when the states were captured. A failure is only
+	 * logged, as analysis can compute the fingerprints from the DOMs.
+	 * 
+	 * @param id
+	 *            the id of the website-result
+	 * @param fingerprints
+	 *            the fingerprints by the name of their state
+	 */
+	public void uploadFingerprints(int id, Map<String, StateFingerprint> fingerprints) {
 		try {
-			String sql =
-			        "INSERT INTO " + TABLE_STATE_RESULTS + "(" + COLUMN_ID_WEBSITE + ","
-			                + COLUMN_ID_STATE + ") VALUES(?,?)";
-			PreparedStatement statement = con.getConnection().prepareStatement(sql,
-			        Statement.RETURN_GENERATED_KEYS);
+			PreparedStatement statement = UPLOAD_FINGERPRINT.prepare(con.getConnection());
+			for (Entry<String, StateFingerprint> entry : fingerprints.entrySet()) {
+				statement.setString(1, entry.getValue().getContentHash());
+				statement.setString(2, entry.getValue().getFingerprint());
+				statement.setInt(3, id);
+				statement.setString(4, entry.getKey());
+				statement.addBatch();
+			}
+			UPLOAD_FINGERPRINT.executeBatch(statement);
+		} catch (SQLException e) {
+			log.error("SQLException during upload of the fingerprints of " + id + ". Message: "
+			        + e.getMessage());
+		}
+	}
 
-			statement.setInt(1, id);
-			statement.setString(2, stateId);
+	/**
+	 * Stores the profile of a crawl. A failure is only logged, as the results of the crawl itself
+	 * have been uploaded already.
+	 * 
+	 * @param id
+	 *            the id of the website-result
+	 * @param profile
+	 *            the profile of the crawl
+	 */
+	public void uploadProfile(int id, CrawlProfile profile) {
+		try {
+			if (INSERT_PROFILE.executeUpdate(con.getConnection(), id,
+			        profile.getConfigurationTime(), profile.getBrowserStartTime(),
+			        profile.getCrawlTime(), profile.getNearDuplicateDetectionTime(),
+			        profile.getDomWriteTime(), profile.getUploadTime(), profile.getCpuTime(),
+			        profile.getPeakHeap(), profile.getBytesUploaded(), profile.getBrowsers()) != 1) {
+				log.warn("The crawl-profile of website-result {} is NOT sent to the database", id);
+			}
+		} catch (SQLException e) {
+			log.error("SQLException during upload of the crawl-profile of " + id + ". Message: "
+			        + e.getMessage());
+		}
+	}
 
-			int result = statement.executeUpdate();
+	private void makeTuple(int id, String stateId) throws ResultProcessorException {
+		try {
+			int result = INSERT_STATE.executeUpdate(con.getConnection(), id, stateId);
 			if (result != 1) {
 				log.info("A problem while insterted a dom in the database");
 			}
@@ -170,18 +349,15 @@ public class ResultUpload {
 		}
 	}
 
+	private void deleteStates(int id) throws SQLException {
+		DELETE_STATES.executeUpdate(con.getConnection(), id);
+	}
+
 	private boolean tableContainsJson(int id) {
 		boolean res = false;
 
 		try {
-			String select =
-			        "SELECT * FROM " + TABLE_WEBSITE_RESULTS + " WHERE " + COLUMN_ID_WORKTASK
-			                + " = ?";
-			PreparedStatement selectSt =
-			        con.getConnection().prepareStatement(select, Statement.RETURN_GENERATED_KEYS);
-			selectSt.setInt(1, id);
-
-			ResultSet resSet = selectSt.executeQuery();
+			ResultSet resSet = SELECT_WEBSITE_RESULT.executeQuery(con.getConnection(), id);
 
 			if (resSet.next()) {
 				res = true;
@@ -200,15 +376,7 @@ public class ResultUpload {
 		boolean res = false;
 
 		try {
-			String select =
-			        "SELECT * FROM " + TABLE_STATE_RESULTS + " WHERE " + COLUMN_ID_WEBSITE
-			                + " = ? AND " + COLUMN_ID_STATE + " = ?";
-			PreparedStatement selectSt =
-			        con.getConnection().prepareStatement(select, Statement.RETURN_GENERATED_KEYS);
-			selectSt.setInt(1, id);
-			selectSt.setString(2, stateId);
-
-			ResultSet resSet = selectSt.executeQuery();
+			ResultSet resSet = SELECT_STATE.executeQuery(con.getConnection(), id, stateId);
 			if (resSet.next()) {
 				res = true;
 			} else {
@@ -223,19 +391,12 @@ public class ResultUpload {
 		return res;
 	}
 
-	private int insertInTuple(String column, String content, int websiteId, String stateId)
-	        throws SQLException {
-		String update =
-		        "UPDATE " + TABLE_STATE_RESULTS + " SET " + column + " = ? WHERE "
-		                + COLUMN_ID_WEBSITE + " = ? AND " + COLUMN_ID_STATE + " = ?";
-		PreparedStatement statement =
-		        con.getConnection().prepareStatement(update, Statement.RETURN_GENERATED_KEYS);
-
-		statement.setString(1, content);
-		statement.setInt(2, websiteId);
-		statement.setString(3, stateId);
-
-		return statement.executeUpdate();
+	/**
+	 * Builds the statement setting a column of a state.
+	 */
+	private static SqlStatement updateState(String name, String column) {
+		return new SqlStatement(name, "UPDATE " + TABLE_STATE_RESULTS + " SET " + column
+		        + " = ? WHERE " + COLUMN_ID_WEBSITE + " = ? AND " + COLUMN_ID_STATE + " = ?");
 	}
 
 	public void closeConnection() {
@@ -0,0 +1,159 @@
+package suite.distributed.results;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import com.crawljax.core.state.duplicatedetection.Fingerprint;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetection;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * The StateFingerprint-class holds what is computed of a state when it is captured: the exact hash
+ * of its stripped DOM and the near-duplicate fingerprint of its DOM. The fingerprint is encoded
+ * along with the signature of the detection which made it, so it is only used by a detection of
+ * the same type and features. The threshold is only applied when fingerprints are compared, so it
+ * is not part of the signature. Fingerprints which can not be serialized are left out.
+ */
+@Slf4j
+@Data
+public class StateFingerprint {
+
+	public static final String FINGERPRINT_FILE = "fingerprints.properties";
+	private static final String SEPARATOR = " ";
+	private static final String SIGNATURE_SEPARATOR = ":";
+
+	/**
+	 * The key of the stripped DOM, as computed by {@link DomStore#keyOf}.
+	 */
+	private final String contentHash;
+
+	/**
+	 * The encoded fingerprint, or null if there is none.
+	 */
+	private final String fingerprint;
+
+	/**
+	 * @param detection
+	 *            the detection which made the fingerprint
+	 * @param fingerprint
+	 *            the fingerprint of a DOM
+	 * @return the encoded fingerprint, or null if it can not be serialized.
+	 */
+	public static String encode(NearDuplicateDetection detection, Fingerprint fingerprint) {
+		if (!(fingerprint instanceof Serializable))
+			return null;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(fingerprint);
+		} catch (IOException e) {
+			log.debug("Could not serialize fingerprint: {}", e.getMessage());
+			return null;
+		}
+		return signature(detection) + SIGNATURE_SEPARATOR
+		        + BaseEncoding.base64().encode(bytes.toByteArray());
+	}
+
+	/**
+	 * @param detection
+	 *            the detection which should have made the fingerprint
+	 * @param encoded
+	 *            the encoded fingerprint, may be null
+	 * @return the fingerprint, or null if it was made by a differently configured detection or can
+	 *         not be decoded.
+	 */
+	public static Fingerprint decode(NearDuplicateDetection detection, String encoded) {
+		if (encoded == null)
+			return null;
+		String prefix = signature(detection) + SIGNATURE_SEPARATOR;
+		if (!encoded.startsWith(prefix))
+			return null;
+		byte[] bytes;
+		try {
+			bytes = BaseEncoding.base64().decode(encoded.substring(prefix.length()));
+		} catch (IllegalArgumentException e) {
+			log.debug("Invalid fingerprint encoding: {}", e.getMessage());
+			return null;
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return (Fingerprint) in.readObject();
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			log.debug("Could not deserialize fingerprint: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @return a signature of the type and features of a detection.
+	 */
+	static String signature(NearDuplicateDetection detection) {
+		String description =
+		        detection.getClass().getName() + SEPARATOR + detection.getFeatures();
+		return Integer.toHexString(description.hashCode());
+	}
+
+	/**
+	 * Stores the fingerprints of the states of a crawl in its output-dir.
+	 * 
+	 * @param dir
+	 *            the output-dir of the crawl
+	 * @param fingerprints
+	 *            the fingerprints by the name of their state
+	 */
+	public static void store(File dir, Map<String, StateFingerprint> fingerprints) {
+		Properties props = new Properties();
+		for (Entry<String, StateFingerprint> entry : fingerprints.entrySet()) {
+			StateFingerprint value = entry.getValue();
+			props.setProperty(entry.getKey(), value.getFingerprint() == null ? value
+			        .getContentHash() : value.getContentHash() + SEPARATOR
+			        + value.getFingerprint());
+		}
+		dir.mkdirs();
+		try (OutputStream out = new FileOutputStream(new File(dir, FINGERPRINT_FILE))) {
+			props.store(out, null);
+		} catch (IOException e) {
+			log.warn("Could not store the fingerprints in {}: {}", dir, e.getMessage());
+		}
+	}
+
+	/**
+	 * Loads the fingerprints stored in the output-dir of a crawl.
+	 * 
+	 * @param dir
+	 *            the output-dir of the crawl
+	 * @return the fingerprints by the name of their state, empty if none are stored.
+	 */
+	public static Map<String, StateFingerprint> load(File dir) {
+		Map<String, StateFingerprint> fingerprints = new HashMap<String, StateFingerprint>();
+		File file = new File(dir, FINGERPRINT_FILE);
+		if (!file.isFile())
+			return fingerprints;
+		try (InputStream in = new FileInputStream(file)) {
+			Properties props = new Properties();
+			props.load(in);
+			for (String state : props.stringPropertyNames()) {
+				String[] parts = props.getProperty(state).split(SEPARATOR, 2);
+				fingerprints.put(state, new StateFingerprint(parts[0], parts.length > 1
+				        ? parts[1] : null));
+			}
+		} catch (IOException e) {
+			log.warn("Could not load the fingerprints in {}: {}", dir, e.getMessage());
+		}
+		return fingerprints;
+	}
+}
@@ -7,12 +7,13 @@ import com.j256.ormlite.table.DatabaseTable;
 
 /**
  * The stateResult-class stores a single state from a crawl. It stores the DOM, StrippedDOM and
- * additionally the hash. It should not exist without a related websiteResult.
+ * additionally the hash. It should not exist without a related websiteResult. The hash and the
+ * near-duplicate fingerprint are computed when the state is captured, see StateFingerprint.
  */
 @DatabaseTable(tableName = "DomResults")
-@ToString(exclude = { "dom", "strippedDom", "websiteResult", "screenshot" })
+@ToString(exclude = { "dom", "strippedDom", "websiteResult", "screenshot", "fingerprint" })
 @RequiredArgsConstructor
-@EqualsAndHashCode(exclude = { "strippedDomHash", "screenshot", "strippedDom" })
+@EqualsAndHashCode(exclude = { "strippedDomHash", "screenshot", "strippedDom", "fingerprint" })
 public class StateResult {
 
 	@DatabaseField(canBeNull = false, foreign = true, uniqueCombo = true)
@@ -39,6 +40,11 @@ public class StateResult {
 	@Getter
 	private final byte[] screenshot;
 
+	@DatabaseField(dataType = DataType.LONG_STRING)
+	@Getter
+	@Setter
+	private String fingerprint;
+
 	public StateResult() {
 		websiteResult = null;
 		stateId = "";
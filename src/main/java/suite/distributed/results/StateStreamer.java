@@ -0,0 +1,287 @@
+package suite.distributed.results;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import com.crawljax.core.state.duplicatedetection.HashGenerator;
+
+/**
+ * The StateStreamer uploads the states of a crawl while it is running, so the upload overlaps with
+ * crawling. The website-result is opened with the first state; each state is uploaded on a
+ * background thread, and stripped DOMs which were uploaded already are copied by the database.
+ * When closed, the streamer marks the output-dir, so the ResultProcessor only has to finish the
+ * website-result. States which failed to upload are uploaded again from the output-dir.
+ */
+@Slf4j
+public class StateStreamer {
+
+	public static final String STREAM_FILE = "stream.properties";
+	public static final int DEFAULT_CAPACITY = 64;
+	private static final String SCREENSHOTS_DIR = "screenshots";
+	private static final String[] SCREENSHOT_EXTENSIONS = { ".png", ".jpg" };
+	private static final String KEY_WEBSITE_RESULT = "websiteResult";
+	private static final String KEY_STREAMED = "streamed";
+	private static final String KEY_FAILED = "failed";
+	private static final StreamedState STOP = new StreamedState(null, null, null);
+
+	/**
+	 * The outcome of a streamed crawl, as marked in its output-dir.
+	 */
+	@Data
+	public static class Streamed {
+		private final int websiteResult;
+		private final int streamed;
+		private final int failed;
+	}
+
+	private final ResultUpload upload;
+	private final int workTaskId;
+	private final File dir;
+	private final HashGenerator hasher;
+	private final BlockingQueue<StreamedState> queue;
+	private final Map<String, StreamedState> uploadedDoms = new HashMap<String, StreamedState>();
+	private Thread thread;
+	private int websiteResult = -1;
+	private int streamed = 0;
+	private int failed = 0;
+
+	/**
+	 * @param upload
+	 *            used to upload the states
+	 * @param workTaskId
+	 *            the id of the crawled worktask
+	 * @param dir
+	 *            the output-dir of the crawl
+	 * @param hasher
+	 *            the hash-function used to recognize equal stripped DOMs
+	 */
+	public StateStreamer(ResultUpload upload, int workTaskId, File dir, HashGenerator hasher) {
+		this(upload, workTaskId, dir, hasher, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param upload
+	 *            used to upload the states
+	 * @param workTaskId
+	 *            the id of the crawled worktask
+	 * @param dir
+	 *            the output-dir of the crawl
+	 * @param hasher
+	 *            the hash-function used to recognize equal stripped DOMs
+	 * @param capacity
+	 *            the maximum number of states waiting to be uploaded
+	 */
+	public StateStreamer(ResultUpload upload, int workTaskId, File dir, HashGenerator hasher,
+	        int capacity) {
+		assert capacity > 0;
+		this.upload = upload;
+		this.workTaskId = workTaskId;
+		this.dir = dir;
+		this.hasher = hasher;
+		this.queue = new ArrayBlockingQueue<StreamedState>(capacity);
+	}
+
+	/**
+	 * Starts uploading in the background.
+	 */
+	public synchronized void start() {
+		if (thread != null)
+			return;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				uploadQueued();
+			}
+		}, "StateStreamer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues a state for uploading. Blocks while the queue is full.
+	 * 
+	 * @param stateId
+	 *            the name of the state
+	 * @param dom
+	 *            the DOM of the state
+	 * @param strippedDom
+	 *            the stripped DOM of the state
+	 * @throws InterruptedException
+	 *             interrupted while waiting for room in the queue
+	 */
+	public void submit(String stateId, String dom, String strippedDom)
+	        throws InterruptedException {
+		StreamedState state = new StreamedState(stateId, dom, strippedDom);
+		if (!queue.offer(state)) {
+			log.debug("State queue is full; waiting for the upload.");
+			queue.put(state);
+		}
+	}
+
+	/**
+	 * Waits until all queued states are uploaded, stops the background thread and marks the
+	 * output-dir.
+	 */
+	public synchronized void close() {
+		if (thread == null)
+			return;
+		try {
+			queue.put(STOP);
+			thread.join();
+		} catch (InterruptedException e) {
+			log.warn("Interrupted while streaming the states; {} are left to the upload.",
+			        queue.size());
+			failed += queue.size();
+		}
+		thread = null;
+		mark();
+		log.info("Streamed {} state(s) of worktask {}, {} failed.", streamed, workTaskId, failed);
+	}
+
+	/**
+	 * Stops streaming and removes the website-result and the states uploaded so far, for instance
+	 * because the crawl failed.
+	 */
+	public synchronized void discard() {
+		if (thread != null) {
+			thread.interrupt();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				log.warn("Interrupted while discarding the streamed states: {}", e.getMessage());
+			}
+			thread = null;
+		}
+		if (websiteResult >= 0) {
+			upload.deleteWebsiteResult(websiteResult);
+			websiteResult = -1;
+		}
+		new File(dir, STREAM_FILE).delete();
+	}
+
+	private void uploadQueued() {
+		try {
+			StreamedState state = queue.take();
+			while (state != STOP) {
+				uploadState(state);
+				state = queue.take();
+			}
+		} catch (InterruptedException e) {
+			log.debug("State streamer stopped: {}", e.getMessage());
+		} finally {
+			// the connection is bound to this thread, so it is returned to the pool here
+			upload.closeConnection();
+		}
+	}
+
+	private void uploadState(StreamedState state) {
+		try {
+			if (websiteResult < 0) {
+				websiteResult = upload.openWebsiteResult(workTaskId);
+			}
+			upload.uploadDom(websiteResult, state.getDom(), state.getStateId());
+			uploadStrippedDom(state);
+			uploadScreenshot(state.getStateId());
+			streamed++;
+		} catch (ResultProcessorException e) {
+			failed++;
+			log.warn("Could not stream state {}: {}", state.getStateId(), e.getMessage());
+		}
+	}
+
+	/**
+	 * Copies the stripped DOM of an earlier state with the same key, if both are equal. The DOMs
+	 * are compared as the hash may collide; the states keep the DOMs in memory anyway, as they are
+	 * part of the state-graph of the crawl.
+	 */
+	private void uploadStrippedDom(StreamedState state) {
+		String key = DomStore.keyOf(hasher, state.getStrippedDom());
+		StreamedState source = uploadedDoms.get(key);
+		if (source != null && source.getStrippedDom().equals(state.getStrippedDom())) {
+			upload.copyStrippedDom(websiteResult, source.getStateId(), state.getStateId());
+		} else {
+			upload.uploadStrippedDom(websiteResult, state.getStrippedDom(), state.getStateId());
+			if (source == null) {
+				uploadedDoms.put(key, state);
+			}
+		}
+	}
+
+	/**
+	 * Uploads the screenshot, which has been saved by the CrawlOverview plugin before this state
+	 * was submitted.
+	 */
+	private void uploadScreenshot(String stateId) {
+		for (String extension : SCREENSHOT_EXTENSIONS) {
+			File file = new File(new File(dir, SCREENSHOTS_DIR), stateId + extension);
+			if (file.isFile()) {
+				try (FileInputStream in = new FileInputStream(file)) {
+					upload.uploadScreenshot(websiteResult, in, stateId);
+				} catch (IOException e) {
+					throw new ResultProcessorException("Could not read the screenshot of "
+					        + stateId);
+				}
+				return;
+			}
+		}
+		throw new ResultProcessorException("No screenshot found for " + stateId);
+	}
+
+	private void mark() {
+		Properties props = new Properties();
+		props.setProperty(KEY_WEBSITE_RESULT, String.valueOf(websiteResult));
+		props.setProperty(KEY_STREAMED, String.valueOf(streamed));
+		props.setProperty(KEY_FAILED, String.valueOf(failed));
+		try (OutputStream out = new FileOutputStream(new File(dir, STREAM_FILE))) {
+			props.store(out, null);
+		} catch (IOException e) {
+			log.warn("Could not mark {} as streamed: {}", dir, e.getMessage());
+		}
+	}
+
+	/**
+	 * @param dir
+	 *            the output-dir of a crawl
+	 * @return the outcome of streaming the crawl, or null if its states were not streamed.
+	 */
+	public static Streamed load(File dir) {
+		File file = new File(dir, STREAM_FILE);
+		if (!file.isFile())
+			return null;
+		try (InputStream in = new FileInputStream(file)) {
+			Properties props = new Properties();
+			props.load(in);
+			return new Streamed(Integer.parseInt(props.getProperty(KEY_WEBSITE_RESULT)),
+			        Integer.parseInt(props.getProperty(KEY_STREAMED)), Integer.parseInt(props
+			                .getProperty(KEY_FAILED)));
+		} catch (IOException | RuntimeException e) {
+			log.warn("Could not read {}: {}", file, e.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "StateStreamer [workTask=" + workTaskId + ", queued=" + queue.size()
+		        + ", streamed=" + streamed + ", failed=" + failed + "]";
+	}
+
+	@Data
+	private static class StreamedState {
+		private final String stateId;
+		private final String dom;
+		private final String strippedDom;
+	}
+}
@@ -13,7 +13,8 @@ import com.j256.ormlite.table.*;
 
 /**
  * The WebsiteResult-class stores a single website-result from a crawl. It stores the json-results,
- * id and additionally the crawl-duration. It cannot exist without a related websiteResult.
+ * id and additionally the crawl-duration and the number of browsers used. It cannot exist
+ * without a related websiteResult.
  */
 @DatabaseTable(tableName = "WebsiteResults")
 @RequiredArgsConstructor
@@ -34,6 +35,12 @@ public class WebsiteResult {
 	@DatabaseField
 	private final float duration;
 
+	/**
+	 * The number of browsers used by the crawl.
+	 */
+	@DatabaseField(defaultValue = "1")
+	private int browsers = 1;
+
 	@ForeignCollectionField(eager = true)
 	private Collection<StateResult> stateResults;
 
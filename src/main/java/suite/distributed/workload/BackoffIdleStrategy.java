@@ -0,0 +1,127 @@
+package suite.distributed.workload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Idles with an exponential back-off plus jitter, so idle workers do not claim in lockstep. While
+ * idling, the workload-version is polled (a single indexed read) and the worker wakes up as soon
+ * as new work has been submitted or reverted.
+ */
+@Slf4j
+public class BackoffIdleStrategy implements IdleStrategy {
+
+	private static final long DEFAULT_MIN_INTERVAL = 1000;
+	private static final long DEFAULT_MAX_INTERVAL = 1000 * 60;
+	private static final long DEFAULT_WAKEUP_INTERVAL = 500;
+	private static final double JITTER = 0.25;
+	private static final int MAX_SHIFT = 30;
+	private static final long MILLIS_PER_SECOND = 1000;
+
+	private final WorkloadDao workload;
+	private final long minInterval;
+	private final long maxInterval;
+	private final long wakeupInterval;
+	private int attempts = 0;
+
+	/**
+	 * Back-off using the default intervals, waking up on changes of the workload-version.
+	 * 
+	 * @param workload
+	 *            the workload to check for new work, if null no wake-ups are used.
+	 */
+	public BackoffIdleStrategy(WorkloadDao workload) {
+		this(workload, DEFAULT_MIN_INTERVAL, DEFAULT_MAX_INTERVAL, DEFAULT_WAKEUP_INTERVAL);
+	}
+
+	/**
+	 * Back-off using the default intervals, waking up on changes of the workload-version. A host
+	 * which is only busy because of the minimum interval of the host-policy becomes available
+	 * without a change of the workload-version, so the back-off is capped at that interval.
+	 * 
+	 * @param workload
+	 *            the workload to check for new work, if null no wake-ups are used.
+	 * @param hostPolicy
+	 *            the policy applied while claiming work, if null the default maximum is used.
+	 */
+	public BackoffIdleStrategy(WorkloadDao workload, HostPolicy hostPolicy) {
+		this(workload, DEFAULT_MIN_INTERVAL, maxInterval(hostPolicy), DEFAULT_WAKEUP_INTERVAL);
+	}
+
+	/**
+	 * @param workload
+	 *            the workload to check for new work, if null no wake-ups are used.
+	 * @param minInterval
+	 *            the first waiting interval in ms
+	 * @param maxInterval
+	 *            the maximum waiting interval in ms
+	 * @param wakeupInterval
+	 *            the interval in ms in which the workload-version is checked. If 0, no wake-ups are
+	 *            used.
+	 */
+	public BackoffIdleStrategy(WorkloadDao workload, long minInterval, long maxInterval,
+	        long wakeupInterval) {
+		assert minInterval > 0 && minInterval <= maxInterval;
+		this.workload = workload;
+		this.minInterval = minInterval;
+		this.maxInterval = maxInterval;
+		this.wakeupInterval = wakeupInterval;
+	}
+
+	private static long maxInterval(HostPolicy hostPolicy) {
+		if (hostPolicy == null || hostPolicy.getMinInterval() == 0)
+			return DEFAULT_MAX_INTERVAL;
+		return Math.max(DEFAULT_MIN_INTERVAL,
+		        Math.min(DEFAULT_MAX_INTERVAL, hostPolicy.getMinInterval() * MILLIS_PER_SECOND));
+	}
+
+	@Override
+	public void idle() throws InterruptedException {
+		long delay = nextDelay();
+		attempts++;
+		long version = workload != null && wakeupInterval > 0 ? workload.getWorkloadVersion() : -1;
+		log.info("This worker will sleep for at most {}ms to wait for a worktask.", delay);
+		if (version < 0) {
+			Thread.sleep(delay);
+			return;
+		}
+		long deadline = System.currentTimeMillis() + delay;
+		long remaining = delay;
+		while (remaining > 0) {
+			Thread.sleep(Math.min(wakeupInterval, remaining));
+			if (workload.getWorkloadVersion() != version) {
+				log.info("New work available; worker woke up.");
+				return;
+			}
+			remaining = deadline - System.currentTimeMillis();
+		}
+	}
+
+	@Override
+	public void reset() {
+		attempts = 0;
+	}
+
+	/**
+	 * @return the next delay: the minimum interval doubled for each previous attempt, with a
+	 *         random jitter of 25%, capped at the maximum interval.
+	 */
+	@VisibleForTesting
+	long nextDelay() {
+		long base = minInterval << Math.min(attempts, MAX_SHIFT);
+		if (base <= 0 || base > maxInterval) {
+			base = maxInterval;
+		}
+		double jitter = 1 - JITTER + 2 * JITTER * ThreadLocalRandom.current().nextDouble();
+		return Math.min(maxInterval, Math.max(1, (long) (base * jitter)));
+	}
+
+	@Override
+	public String toString() {
+		return "BackoffIdleStrategy [minInterval=" + minInterval + ", maxInterval=" + maxInterval
+		        + ", wakeupInterval=" + wakeupInterval + ", attempts=" + attempts + "]";
+	}
+}
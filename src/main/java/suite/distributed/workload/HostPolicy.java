@@ -0,0 +1,41 @@
+package suite.distributed.workload;
+
+import lombok.Getter;
+
+/**
+ * The HostPolicy keeps the workers polite towards the crawled hosts: it caps the number of
+ * concurrent crawls of a single host across all workers, and spaces out the crawls of a host. As
+ * busy hosts are skipped while claiming, the crawls of different hosts are interleaved. Without a
+ * policy, the crawls of a host are not restricted.
+ */
+@Getter
+public class HostPolicy {
+
+	private final int maxConcurrent;
+	private final long minInterval;
+
+	/**
+	 * @param maxConcurrent
+	 *            the maximum number of concurrent crawls of a host, if 0 there is no maximum.
+	 * @param minInterval
+	 *            the minimum number of seconds between the start of two crawls of a host, if 0
+	 *            crawls are not spaced out.
+	 */
+	public HostPolicy(int maxConcurrent, long minInterval) {
+		assert maxConcurrent >= 0 && minInterval >= 0;
+		this.maxConcurrent = maxConcurrent;
+		this.minInterval = minInterval;
+	}
+
+	/**
+	 * @return true if the policy does not restrict the crawls of a host.
+	 */
+	public boolean isUnrestricted() {
+		return maxConcurrent == 0 && minInterval == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "HostPolicy [maxConcurrent=" + maxConcurrent + ", minInterval=" + minInterval + "]";
+	}
+}
@@ -0,0 +1,21 @@
+package suite.distributed.workload;
+
+/**
+ * An IdleStrategy decides how long a worker waits before it tries to claim work again, after a
+ * claim came back empty.
+ */
+public interface IdleStrategy {
+
+	/**
+	 * Waits until the next claim should be attempted.
+	 * 
+	 * @throws InterruptedException
+	 *             the worker was interrupted while waiting.
+	 */
+	void idle() throws InterruptedException;
+
+	/**
+	 * Resets the strategy after work was claimed successfully.
+	 */
+	void reset();
+}
@@ -0,0 +1,112 @@
+package suite.distributed.workload;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The LeaseHeartbeat periodically renews the leases of the worktasks claimed by this worker, so
+ * they are not reclaimed by other workers while being crawled or uploaded. When the worker dies,
+ * the heartbeat stops and its claims expire after WorkloadDao.LEASE_DURATION seconds.
+ */
+@Slf4j
+public class LeaseHeartbeat {
+
+	/**
+	 * Renew well before the lease expires, so a single failed renewal does not lose the claims.
+	 */
+	public static final long DEFAULT_INTERVAL = WorkloadDao.LEASE_DURATION * 1000 / 4;
+
+	private final WorkloadDao workload;
+	private final Collection<Integer> claimed;
+	private final long interval;
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @param workload
+	 *            the workload to renew the leases on
+	 * @param claimed
+	 *            a live view on the ids of the claimed worktasks
+	 */
+	public LeaseHeartbeat(WorkloadDao workload, Collection<Integer> claimed) {
+		this(workload, claimed, DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * @param workload
+	 *            the workload to renew the leases on
+	 * @param claimed
+	 *            a live view on the ids of the claimed worktasks
+	 * @param interval
+	 *            the time between renewals in milliseconds
+	 */
+	public LeaseHeartbeat(WorkloadDao workload, Collection<Integer> claimed, long interval) {
+		assert interval > 0;
+		this.workload = workload;
+		this.claimed = claimed;
+		this.interval = interval;
+	}
+
+	/**
+	 * Starts renewing the leases in the background.
+	 */
+	public synchronized void start() {
+		if (scheduler != null)
+			return;
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LeaseHeartbeat");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				beat();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Renews the leases of all currently claimed worktasks.
+	 * 
+	 * @return the number of renewed leases
+	 */
+	public int beat() {
+		List<Integer> ids = new ArrayList<Integer>(claimed);
+		if (ids.isEmpty())
+			return 0;
+		try {
+			int renewed = workload.renewLeases(ids);
+			log.debug("Renewed {} lease(s).", renewed);
+			return renewed;
+		} catch (RuntimeException e) {
+			// never let an exception cancel the scheduled renewals
+			log.error("Failed to renew leases: {}", e.getMessage());
+			return 0;
+		}
+	}
+
+	/**
+	 * Stops renewing the leases.
+	 */
+	public synchronized void stop() {
+		if (scheduler == null)
+			return;
+		scheduler.shutdownNow();
+		scheduler = null;
+	}
+
+	@Override
+	public String toString() {
+		return "LeaseHeartbeat [interval=" + interval + ", claimed=" + claimed.size() + "]";
+	}
+}
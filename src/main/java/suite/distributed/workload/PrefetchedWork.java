@@ -0,0 +1,21 @@
+package suite.distributed.workload;
+
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * A claimed worktask, together with the configuration resolved for it.
+ */
+@Data
+public class PrefetchedWork {
+
+	private final WorkTask task;
+
+	private final Map<String, String> configuration;
+
+	/**
+	 * The time spent resolving the configuration in milliseconds.
+	 */
+	private final long configurationTime;
+}
@@ -0,0 +1,75 @@
+package suite.distributed.workload;
+
+import lombok.Getter;
+
+/**
+ * The RetryPolicy decides when a failed worktask may be retried. The delay before a retry doubles
+ * with every failed attempt, up to maxDelay. Once maxAttempts attempts have failed, the worktask is
+ * quarantined and no longer handed out to workers.
+ */
+@Getter
+public class RetryPolicy {
+
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+	public static final long DEFAULT_BASE_DELAY = 60;
+	public static final long DEFAULT_MAX_DELAY = 60 * 60;
+
+	private final int maxAttempts;
+	private final long baseDelay;
+	private final long maxDelay;
+
+	public RetryPolicy() {
+		this(DEFAULT_MAX_ATTEMPTS);
+	}
+
+	/**
+	 * @param maxAttempts
+	 *            the number of failed attempts after which a worktask is quarantined
+	 */
+	public RetryPolicy(int maxAttempts) {
+		this(maxAttempts, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+	}
+
+	/**
+	 * @param maxAttempts
+	 *            the number of failed attempts after which a worktask is quarantined
+	 * @param baseDelay
+	 *            the delay in seconds before retrying after the first failure
+	 * @param maxDelay
+	 *            the maximum delay in seconds before retrying
+	 */
+	public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+		assert maxAttempts > 0 && baseDelay >= 0 && maxDelay >= baseDelay;
+		this.maxAttempts = maxAttempts;
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+	}
+
+	/**
+	 * @param attempts
+	 *            the number of failed attempts so far, at least 1
+	 * @return the delay in seconds before the worktask may be retried.
+	 */
+	public long retryDelay(int attempts) {
+		long delay = baseDelay;
+		for (int i = 1; i < attempts && delay < maxDelay; i++) {
+			delay *= 2;
+		}
+		return Math.min(delay, maxDelay);
+	}
+
+	/**
+	 * @param attempts
+	 *            the number of failed attempts so far
+	 * @return true if the worktask should be quarantined instead of retried.
+	 */
+	public boolean isExhausted(int attempts) {
+		return attempts >= maxAttempts;
+	}
+
+	@Override
+	public String toString() {
+		return "RetryPolicy [maxAttempts=" + maxAttempts + ", baseDelay=" + baseDelay
+		        + ", maxDelay=" + maxDelay + "]";
+	}
+}
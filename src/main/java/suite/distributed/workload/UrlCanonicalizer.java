@@ -0,0 +1,39 @@
+package suite.distributed.workload;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.apache.commons.validator.routines.UrlValidator;
+
+/**
+ * Brings urls in a canonical form, so different spellings of the same website are recognized as
+ * duplicates: the scheme and host are lower-cased, the default port and the fragment are dropped.
+ */
+public final class UrlCanonicalizer {
+
+	private static final UrlValidator VALIDATOR = new UrlValidator();
+
+	private UrlCanonicalizer() {
+	}
+
+	/**
+	 * @param rawUrl
+	 *            the url as read from a website-file
+	 * @return the canonical url, or null if rawUrl is not a valid url.
+	 */
+	public static URL canonicalize(String rawUrl) {
+		if (rawUrl == null)
+			return null;
+		String trimmed = rawUrl.trim();
+		if (!VALIDATOR.isValid(trimmed))
+			return null;
+		try {
+			URL url = new URL(trimmed);
+			int port = url.getPort() == url.getDefaultPort() ? -1 : url.getPort();
+			return new URL(url.getProtocol().toLowerCase(), url.getHost().toLowerCase(), port,
+			        url.getFile());
+		} catch (MalformedURLException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package suite.distributed.workload;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import lombok.extern.slf4j.Slf4j;
+import suite.distributed.configuration.ConfigurationCache;
+import suite.distributed.configuration.ConfigurationDao;
+
+/**
+ * The WorkPrefetcher claims worktasks and resolves their configuration ahead of time, so a worker
+ * can start its next crawl without waiting on the database. Up to depth worktasks are buffered; a
+ * depth of 0 claims synchronously on take(). Buffered claims are reverted on close().
+ */
+@Slf4j
+public class WorkPrefetcher {
+
+	private static final long STOP_TIMEOUT = 1000 * 10;
+	private static final PrefetchedWork EXHAUSTED = new PrefetchedWork(null, null, 0);
+
+	private final WorkloadDao workload;
+	private final ConfigurationCache configurations;
+	private final String namespace;
+	private final int depth;
+	private final boolean noWaiting;
+	private final IdleStrategy idleStrategy;
+
+	private final BlockingQueue<PrefetchedWork> buffer = new LinkedBlockingQueue<PrefetchedWork>();
+	private final Set<Integer> claimed = Collections
+	        .newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+	private final Semaphore capacity;
+	private Thread thread;
+	private boolean closed = false;
+
+	/**
+	 * @param workload
+	 *            the workload to claim worktasks from
+	 * @param config
+	 *            the configuration used to resolve the settings of each worktask
+	 * @param namespace
+	 *            the namespace of the configuration, if null only the common and host sections
+	 *            are used.
+	 * @param depth
+	 *            the number of worktasks to claim ahead
+	 * @param noWaiting
+	 *            if true, stop claiming once no worktasks are left
+	 */
+	public WorkPrefetcher(WorkloadDao workload, ConfigurationDao config, String namespace,
+	        int depth, boolean noWaiting) {
+		this(workload, config, namespace, depth, noWaiting, new BackoffIdleStrategy(workload));
+	}
+
+	/**
+	 * @param workload
+	 *            the workload to claim worktasks from
+	 * @param config
+	 *            the configuration used to resolve the settings of each worktask
+	 * @param namespace
+	 *            the namespace of the configuration, if null only the common and host sections
+	 *            are used.
+	 * @param depth
+	 *            the number of worktasks to claim ahead
+	 * @param noWaiting
+	 *            if true, stop claiming once no worktasks are left
+	 * @param idleStrategy
+	 *            decides how long to wait when no worktask is available
+	 */
+	public WorkPrefetcher(WorkloadDao workload, ConfigurationDao config, String namespace,
+	        int depth, boolean noWaiting, IdleStrategy idleStrategy) {
+		assert depth >= 0;
+		this.workload = workload;
+		this.configurations = new ConfigurationCache(config);
+		this.namespace = namespace;
+		this.depth = depth;
+		this.noWaiting = noWaiting;
+		this.idleStrategy = idleStrategy;
+		this.capacity = new Semaphore(depth);
+	}
+
+	/**
+	 * Starts claiming worktasks in the background. Does nothing if the depth is 0.
+	 */
+	public synchronized void start() {
+		if (depth == 0 || thread != null)
+			return;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				prefetch();
+			}
+		}, "WorkPrefetcher");
+		thread.setDaemon(true);
+		thread.start();
+		log.info("Prefetching up to {} worktask(s).", depth);
+	}
+
+	/**
+	 * Takes the next claimed worktask, waiting for one if necessary.
+	 * 
+	 * @return the next worktask with its configuration, or null if no worktasks are left and
+	 *         noWaiting is set.
+	 * @throws InterruptedException
+	 *             interrupted while waiting for a worktask
+	 */
+	public PrefetchedWork take() throws InterruptedException {
+		if (depth == 0)
+			return claim();
+		PrefetchedWork work = buffer.take();
+		if (work == EXHAUSTED) {
+			buffer.put(EXHAUSTED);
+			return null;
+		}
+		capacity.release();
+		return work;
+	}
+
+	/**
+	 * Marks a worktask as claimed by this worker, so it is not handed out by take().
+	 * 
+	 * @param task
+	 *            the worktask claimed outside of the prefetcher
+	 */
+	public void claimed(WorkTask task) {
+		claimed.add(task.getId());
+	}
+
+	/**
+	 * Marks a worktask as finished (checked out or reverted), allowing it to be claimed again.
+	 * 
+	 * @param task
+	 *            the finished worktask
+	 */
+	public void finished(WorkTask task) {
+		claimed.remove(task.getId());
+	}
+
+	/**
+	 * @return a live, read-only view on the ids of all worktasks claimed by this worker: buffered,
+	 *         being crawled or being uploaded.
+	 */
+	public Set<Integer> getClaimed() {
+		return Collections.unmodifiableSet(claimed);
+	}
+
+	/**
+	 * Stops prefetching and reverts all claimed worktasks that were not taken yet.
+	 */
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		if (thread != null) {
+			thread.interrupt();
+			try {
+				thread.join(STOP_TIMEOUT);
+			} catch (InterruptedException e) {
+				log.warn("Interrupted while stopping the prefetcher: {}", e.getMessage());
+			}
+		}
+		List<PrefetchedWork> unused = new ArrayList<PrefetchedWork>(buffer.size());
+		buffer.drainTo(unused);
+		for (PrefetchedWork work : unused) {
+			if (work != EXHAUSTED) {
+				workload.revertWork(work.getTask().getId());
+				claimed.remove(work.getTask().getId());
+				log.info("Released prefetched worktask: {}", work.getTask().getURL());
+			}
+		}
+	}
+
+	private void prefetch() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				capacity.acquire();
+				PrefetchedWork work = claim();
+				// offer never blocks on the unbounded buffer, so a claim is never lost in-hand
+				if (work == null) {
+					buffer.offer(EXHAUSTED);
+					return;
+				}
+				buffer.offer(work);
+			}
+		} catch (InterruptedException e) {
+			log.debug("Prefetcher stopped: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Claims a worktask which is not already claimed by this worker and resolves its
+	 * configuration.
+	 */
+	private PrefetchedWork claim() throws InterruptedException {
+		WorkTask task = pickUnclaimed(workload.retrieveWork(1));
+		while (task == null) {
+			if (noWaiting)
+				return null;
+			idleStrategy.idle();
+			task = pickUnclaimed(workload.retrieveWork(1));
+		}
+		idleStrategy.reset();
+		long start = System.currentTimeMillis();
+		Map<String, String> configuration = getConfigurationForUrl(task.getURL());
+		return new PrefetchedWork(task, configuration, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * retrieveWork also returns the worktasks claimed earlier by this worker, so skip the ones
+	 * which are buffered or still being crawled.
+	 */
+	private WorkTask pickUnclaimed(List<WorkTask> workTasks) {
+		for (WorkTask workTask : workTasks) {
+			if (workTask != null && claimed.add(workTask.getId())) {
+				return workTask;
+			}
+		}
+		return null;
+	}
+
+	private Map<String, String> getConfigurationForUrl(URL url) {
+		return configurations.resolve(url.getHost(), namespace).getSettings();
+	}
+
+	@Override
+	public String toString() {
+		return "WorkPrefetcher [depth=" + depth + ", buffered=" + buffer.size() + ", claimed="
+		        + claimed.size() + "]";
+	}
+}
@@ -2,6 +2,7 @@ package suite.distributed.workload;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Date;
 
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.table.DatabaseTable;
@@ -11,12 +12,14 @@ import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 
 /**
- * A task for a worker to crawl a website
+ * A task for a worker to crawl a website. Failed attempts are counted; a worktask which failed too
+ * often is quarantined.
  */
 @DatabaseTable(tableName = "workload")
 @RequiredArgsConstructor
 @Data
-@EqualsAndHashCode(exclude = { "crawled", "worker" })
+@EqualsAndHashCode(exclude = { "crawled", "worker", "host", "claimedAt", "attempts",
+        "lastError", "retryAfter", "quarantined", "expectedDuration" })
 public class WorkTask {
 
 	@DatabaseField(generatedId = true, canBeNull = false)
@@ -31,9 +34,33 @@ public class WorkTask {
 	@DatabaseField(defaultValue = "")
 	private String namespace;
 
+	@DatabaseField(defaultValue = "")
+	private String host;
+
+	@DatabaseField
+	private Date claimedAt;
+
 	@DatabaseField
 	private boolean crawled;
 
+	@DatabaseField(defaultValue = "0")
+	private int attempts;
+
+	@DatabaseField
+	private String lastError;
+
+	@DatabaseField
+	private Date retryAfter;
+
+	@DatabaseField(defaultValue = "false")
+	private boolean quarantined;
+
+	/**
+	 * The expected duration of the crawl, or -1 if the url was never crawled.
+	 */
+	@DatabaseField(defaultValue = "-1")
+	private Float expectedDuration;
+
 	public WorkTask() {
 		id = 0;
 		url = null;
@@ -1,17 +1,26 @@
 package suite.distributed.workload;
 
 import java.net.URL;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The WorkloadDistributor is responsible for managing the workload of the clients. It should enable
  * to send/retrieve/claim/unclaim/finish urls. A url or workunit can have three different states: -
  * unclaimed/Available: The url has not been crawled and has no worker assigned. - claimed: A worker
  * has been assigned, but has not finished crawling. - Checked out/finished: A worker has been
- * assigned and has finished the crawling.
+ * assigned and has finished the crawling. Claims are leases: a claim which is not renewed within
+ * LEASE_DURATION seconds expires, after which the url can be claimed by other workers. Work which
+ * fails too often is quarantined.
  */
 public interface WorkloadDao {
 
+	/**
+	 * The duration of a claim in seconds, before it has to be renewed.
+	 */
+	int LEASE_DURATION = 60 * 10;
+
 	/**
 	 * Retrieve and claim a number of urls (if nothing is available, an empty ArrayList is
 	 * returned).
@@ -42,6 +51,46 @@ public interface WorkloadDao {
 	 */
 	int submitWork(URL url, boolean claim);
 
+	/**
+	 * Submit a batch of new urls/workunits to the queue/server/container to crawl, without
+	 * claiming them.
+	 * 
+	 * @param urls
+	 *            the urls to be crawled
+	 * @return the number of submitted urls.
+	 */
+	int submitWork(Collection<URL> urls);
+
+	/**
+	 * Updates the expected duration of the unfinished work, based on the durations of earlier
+	 * crawls of the same urls. Work with the longest expected duration is retrieved first; work
+	 * without an expected duration in the order it was submitted.
+	 * 
+	 * @return the number of updated worktasks.
+	 */
+	int updateExpectedDurations();
+
+	/**
+	 * Lists the worktasks in the namespace, in the order of their ids. Used to page through the
+	 * whole workload.
+	 * 
+	 * @param afterId
+	 *            only worktasks with an id above afterId are listed
+	 * @param limit
+	 *            the maximum number of worktasks to list
+	 * @return the worktasks, or an empty list if none are left.
+	 */
+	List<WorkTask> listWork(int afterId, int limit);
+
+	/**
+	 * Finds which of the given urls are already part of the workload of the namespace.
+	 * 
+	 * @param urls
+	 *            the urls to look up
+	 * @return the urls which are part of the workload.
+	 */
+	Set<String> findExistingUrls(Collection<String> urls);
+
 	/**
 	 * Reverts previously checked out or claimed work to the available state.
 	 * 
@@ -51,4 +100,37 @@ public interface WorkloadDao {
 	 */
 	boolean revertWork(int id);
 
+	/**
+	 * Registers a failed attempt to crawl or upload a worktask and releases the claim. The worktask
+	 * becomes available again after the delay of the retry-policy, or is quarantined if the policy
+	 * is exhausted. Quarantined work is not retrieved anymore.
+	 * 
+	 * @param id
+	 *            the id of the failed worktask
+	 * @param error
+	 *            a description of the failure
+	 * @param policy
+	 *            decides the delay before the retry and when to quarantine
+	 * @return true if successful, else false.
+	 */
+	boolean failWork(int id, String error, RetryPolicy policy);
+
+	/**
+	 * Renews the leases of work claimed by this worker.
+	 * 
+	 * @param ids
+	 *            the ids of the claimed worktasks
+	 * @return the number of renewed leases. Leases which expired and were claimed by another
+	 *         worker are not renewed.
+	 */
+	int renewLeases(Collection<Integer> ids);
+
+	/**
+	 * Retrieves the workload-version, which changes whenever work is submitted or reverted. Idle
+	 * workers can poll this cheaply to detect new work.
+	 * 
+	 * @return the current workload-version, or -1 if it could not be retrieved.
+	 */
+	long getWorkloadVersion();
+
 }
@@ -6,9 +6,13 @@ import java.net.URL;
 import java.net.UnknownHostException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import suite.distributed.ConnectionManager;
+import suite.distributed.SqlStatement;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -18,7 +22,8 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * SQL-server-based implementation of the IWorkloadDistributor-interface. The WorkloadDistributor is
- * responsible for managing the workload of the clients.
+ * responsible for managing the workload of the clients. Each statement is defined once and
+ * executed as a prepared statement.
  */
 @Slf4j
 @Singleton
@@ -30,9 +35,68 @@ public class WorkloadDaoImpl implements WorkloadDao {
 	private static final String COLUMN_WORKERID = "worker";
 	private static final String COLUMN_CRAWLED = "crawled";
 	private static final String COLUMN_NAMESPACE = "namespace";
+	private static final String COLUMN_LEASE = "leaseExpiry";
+	private static final String COLUMN_ATTEMPTS = "attempts";
+	private static final String COLUMN_LAST_ERROR = "lastError";
+	private static final String COLUMN_RETRY_AFTER = "retryAfter";
+	private static final String COLUMN_QUARANTINED = "quarantined";
+	private static final String COLUMN_HOST = "host";
+	private static final String COLUMN_CLAIMED_AT = "claimedAt";
+	private static final String COLUMN_EXPECTED_DURATION = "expectedDuration";
+	private static final int NO_EXPECTED_DURATION = -1;
+	private static final String TABLE_RESULTS = "WebsiteResults";
+	private static final int MAX_ERROR_LENGTH = 255;
+	private static final int MAX_BACKOFF_EXPONENT = 30;
+	private static final String TABLE_VERSION = "workloadVersion";
+	private static final String COLUMN_VERSION = "version";
+	private static final String LEASE_EXPIRY = "TIMESTAMPADD(SECOND, " + LEASE_DURATION
+	        + ", NOW())";
+
+	private static final SqlStatement SELECT_CLAIMED = new SqlStatement("workload.selectClaimed",
+	        "SELECT * FROM " + TABLE + " WHERE " + COLUMN_WORKERID + " = ? AND "
+	                + COLUMN_NAMESPACE + "=? AND " + COLUMN_CRAWLED + " = 0");
+	private static final SqlStatement CHECKOUT = new SqlStatement("workload.checkout", "UPDATE "
+	        + TABLE + " SET " + COLUMN_CRAWLED + "=1 WHERE " + COLUMN_ID + "=?");
+	private static final SqlStatement SUBMIT = new SqlStatement("workload.submit", "INSERT INTO "
+	        + TABLE + " (" + COLUMN_URL + "," + COLUMN_CRAWLED + "," + COLUMN_WORKERID + ","
+	        + COLUMN_NAMESPACE + "," + COLUMN_HOST + ") VALUES (?,0,?,?,?)", true);
+	private static final SqlStatement UPDATE_EXPECTED_DURATIONS = new SqlStatement(
+	        "workload.updateExpectedDurations", "UPDATE " + TABLE + " SET "
+	                + COLUMN_EXPECTED_DURATION + "=COALESCE((SELECT history.duration FROM (SELECT "
+	                + "earlier." + COLUMN_URL + " AS url, AVG(result.duration) AS duration FROM "
+	                + TABLE_RESULTS + " result JOIN " + TABLE
+	                + " earlier ON result.workTask_id = earlier." + COLUMN_ID
+	                + " GROUP BY earlier." + COLUMN_URL + ") AS history WHERE history.url = "
+	                + TABLE + "." + COLUMN_URL + "), " + NO_EXPECTED_DURATION + ") WHERE "
+	                + COLUMN_CRAWLED + " = 0 AND " + COLUMN_NAMESPACE + "=?");
+	private static final SqlStatement LIST = new SqlStatement("workload.list", "SELECT "
+	        + COLUMN_ID + "," + COLUMN_URL + " FROM " + TABLE + " WHERE " + COLUMN_NAMESPACE
+	        + "=? AND " + COLUMN_ID + " > ? ORDER BY " + COLUMN_ID + " LIMIT ?");
+	private static final SqlStatement REVERT = new SqlStatement("workload.revert", "UPDATE "
+	        + TABLE + " SET " + COLUMN_CRAWLED + "=0, " + COLUMN_WORKERID + "='', "
+	        + COLUMN_LEASE + "=NULL WHERE " + COLUMN_ID + "=?");
+	private static final SqlStatement SELECT_ATTEMPTS = new SqlStatement(
+	        "workload.selectAttempts", "SELECT " + COLUMN_ATTEMPTS + "," + COLUMN_QUARANTINED
+	                + " FROM " + TABLE + " WHERE " + COLUMN_ID + "=?");
+	// Attempts is assigned last, as MySQL evaluates the assignments of an UPDATE from left to right
+	private static final SqlStatement FAIL = new SqlStatement("workload.fail", "UPDATE " + TABLE
+	        + " SET " + COLUMN_CRAWLED + "=0, " + COLUMN_WORKERID + "='', " + COLUMN_LEASE
+	        + "=NULL, " + COLUMN_LAST_ERROR + "=?, " + COLUMN_RETRY_AFTER
+	        + "=TIMESTAMPADD(SECOND, CAST(LEAST(? * POWER(2, LEAST(" + COLUMN_ATTEMPTS + ", "
+	        + MAX_BACKOFF_EXPONENT + ")), ?) AS SIGNED), NOW()), " + COLUMN_QUARANTINED
+	        + "=CASE WHEN " + COLUMN_ATTEMPTS + " + 1 >= ? THEN 1 ELSE 0 END, " + COLUMN_ATTEMPTS
+	        + "=" + COLUMN_ATTEMPTS + " + 1 WHERE " + COLUMN_ID + "=?");
+	private static final SqlStatement SELECT_VERSION = new SqlStatement("workload.selectVersion",
+	        "SELECT " + COLUMN_VERSION + " FROM " + TABLE_VERSION + " WHERE " + COLUMN_NAMESPACE
+	                + "=?");
+	private static final SqlStatement INCREMENT_VERSION = new SqlStatement(
+	        "workload.incrementVersion", "INSERT INTO " + TABLE_VERSION + " (" + COLUMN_NAMESPACE
+	                + "," + COLUMN_VERSION + ") VALUES (?,1) ON DUPLICATE KEY UPDATE "
+	                + COLUMN_VERSION + "=" + COLUMN_VERSION + "+1");
 
 	private ConnectionManager connMgr;
 	private String namespace;
+	private SqlStatement claimWork = claimStatement(new HostPolicy(0, 0));
 	private static String WORKER_ID;
 
 	static {
@@ -71,9 +135,25 @@ public class WorkloadDaoImpl implements WorkloadDao {
 		log.info("WorkerID: " + WORKER_ID);
 	}
 
+	/**
+	 * Sets the policy limiting the crawls per host. By default the crawls per host are not limited.
+	 * 
+	 * @param hostPolicy
+	 *            the policy applied while claiming work
+	 */
+	@Inject(optional = true)
+	public void setHostPolicy(HostPolicy hostPolicy) {
+		this.claimWork = claimStatement(hostPolicy);
+	}
+
 	/**
 	 * Retrieve and claim a number of urls from the server (if nothing is available, an empty
-	 * ArrayList is returned).
+	 * ArrayList is returned). Unclaimed urls and urls of which the lease has expired are claimed in
+	 * a single atomic update. Quarantined urls, failed urls of which the retry-delay has not passed
+	 * yet and urls of hosts which are busy according to the host-policy are skipped. The
+	 * host-policy is checked before the update, so claim one url at a time to strictly respect it.
+	 * Urls with the longest expected duration are claimed first, others in the order they were
+	 * submitted.
 	 * 
 	 * @param maxcount
 	 *            the maximum number of urls to retrieve.
@@ -84,20 +164,11 @@ public class WorkloadDaoImpl implements WorkloadDao {
 		List<WorkTask> workTasks = new ArrayList<WorkTask>(maxcount);
 		Connection conn = connMgr.getConnection();
 		try {
-			int claimed =
-			        conn.createStatement().executeUpdate(
-			                "UPDATE " + TABLE + " SET " + COLUMN_WORKERID + "=\"" + WORKER_ID
-			                        + "\"  WHERE " + COLUMN_CRAWLED + " = 0 AND "
-			                        + COLUMN_WORKERID + "=\"\" AND " + COLUMN_NAMESPACE + "=\""
-			                        + namespace + "\" LIMIT " + maxcount);
+			int claimed = claimWork.executeUpdate(conn, WORKER_ID, namespace, maxcount);
 			log.debug("Workunits claimed by worker: " + claimed);
 			// Retrieve urls from the server.
 			// Note: this will also return the claimed/unfinished websites not signed off.
-			ResultSet res =
-			        conn.createStatement().executeQuery(
-			                "SELECT * FROM  " + TABLE + " WHERE " + COLUMN_WORKERID + " = \""
-			                        + WORKER_ID + "\" AND " + COLUMN_NAMESPACE + "=\""
-			                        + namespace + "\" AND " + COLUMN_CRAWLED + " = 0");
+			ResultSet res = SELECT_CLAIMED.executeQuery(conn, WORKER_ID, namespace);
 			while (res.next()) {
 				try {
 					int id = res.getInt("id");
@@ -128,10 +199,7 @@ public class WorkloadDaoImpl implements WorkloadDao {
 		Connection conn = connMgr.getConnection();
 		try {
 			// Update crawled-field to 1 to show crawl has finished.
-			ret =
-			        conn.createStatement().executeUpdate(
-			                "UPDATE " + TABLE + " SET " + COLUMN_CRAWLED + "=1 WHERE "
-			                        + COLUMN_ID + "=\"" + wt.getId() + "\"");
+			ret = CHECKOUT.executeUpdate(conn, wt.getId());
 			log.info("Checked out crawl of id: " + wt.getId());
 		} catch (SQLException e) {
 			log.error(e.getMessage());
@@ -156,12 +224,9 @@ public class WorkloadDaoImpl implements WorkloadDao {
 		try {
 			String worker = claim ? WORKER_ID : "";
 			// Insert a new row containing the url in the workload-table.
-			Statement statement = conn.createStatement();
-			ret =
-			        statement.executeUpdate("INSERT INTO " + TABLE + " (" + COLUMN_URL + ","
-			                + COLUMN_CRAWLED + "," + COLUMN_WORKERID + "," + COLUMN_NAMESPACE
-			                + ") VALUES (\"" + url + "\",0, \"" + worker + "\",\"" + namespace
-			                + "\")", Statement.RETURN_GENERATED_KEYS);
+			PreparedStatement statement =
+			        SUBMIT.prepare(conn, url.toString(), worker, namespace, url.getHost());
+			ret = SUBMIT.executeUpdate(statement);
 			log.info("Succesfully submitted {} to the server.", url);
 
 			// Get generated key
@@ -169,6 +234,9 @@ public class WorkloadDaoImpl implements WorkloadDao {
 			if (generatedkeys.next()) {
 				ret = generatedkeys.getInt(1);
 			}
+			if (!claim) {
+				incrementWorkloadVersion(conn);
+			}
 		} catch (SQLException e) {
 			log.error(e.getMessage());
 		} catch (NullPointerException e) {
@@ -179,6 +247,125 @@ public class WorkloadDaoImpl implements WorkloadDao {
 		return ret;
 	}
 
+	/**
+	 * Submit a batch of new urls/workunits to the server to crawl, in a single insert.
+	 * 
+	 * @param urls
+	 *            the urls to be crawled
+	 * @return the number of submitted urls.
+	 */
+	public int submitWork(Collection<URL> urls) {
+		if (urls.isEmpty())
+			return 0;
+		int ret = 0;
+		Connection conn = connMgr.getConnection();
+		try {
+			StringBuilder values = new StringBuilder();
+			for (int i = 0; i < urls.size(); i++) {
+				values.append(i == 0 ? "" : ",").append("(?,0,'',?,?)");
+			}
+			// a statement per batch-size, the ingester submits batches of a fixed size
+			SqlStatement submit =
+			        new SqlStatement("workload.submitBatch", "INSERT INTO " + TABLE + " ("
+			                + COLUMN_URL + "," + COLUMN_CRAWLED + "," + COLUMN_WORKERID + ","
+			                + COLUMN_NAMESPACE + "," + COLUMN_HOST + ") VALUES " + values);
+			List<Object> params = new ArrayList<Object>(urls.size() * 3);
+			for (URL url : urls) {
+				params.add(url.toString());
+				params.add(namespace);
+				params.add(url.getHost());
+			}
+			ret = submit.executeUpdate(conn, params.toArray());
+			log.info("Succesfully submitted {} urls to the server.", ret);
+			incrementWorkloadVersion(conn);
+		} catch (SQLException e) {
+			log.error(e.getMessage());
+		}
+		connMgr.closeConnection();
+		return ret;
+	}
+
+	/**
+	 * Sets the expected duration of the unfinished work in the namespace to the average duration of
+	 * the earlier crawls of the same url. Work of which the url was never crawled has no expected
+	 * duration, which is stored as -1. MySQL does not allow a subquery on the updated table, unless
+	 * it is wrapped in a derived table.
+	 * 
+	 * @return the number of updated worktasks.
+	 */
+	public int updateExpectedDurations() {
+		int ret = 0;
+		Connection conn = connMgr.getConnection();
+		try {
+			ret = UPDATE_EXPECTED_DURATIONS.executeUpdate(conn, namespace);
+			log.info("Updated the expected duration of {} worktasks.", ret);
+		} catch (SQLException e) {
+			log.error(e.getMessage());
+		}
+		connMgr.closeConnection();
+		return ret;
+	}
+
+	/**
+	 * Lists the worktasks in the namespace, in the order of their ids.
+	 * 
+	 * @param afterId
+	 *            only worktasks with an id above afterId are listed
+	 * @param limit
+	 *            the maximum number of worktasks to list
+	 * @return the worktasks, or an empty list if none are left.
+	 */
+	public List<WorkTask> listWork(int afterId, int limit) {
+		List<WorkTask> workTasks = new ArrayList<WorkTask>(limit);
+		Connection conn = connMgr.getConnection();
+		try {
+			ResultSet res = LIST.executeQuery(conn, namespace, afterId, limit);
+			while (res.next()) {
+				try {
+					workTasks.add(new WorkTask(res.getInt(COLUMN_ID), new URL(res
+					        .getString(COLUMN_URL))));
+				} catch (MalformedURLException e) {
+					log.error(e.getMessage());
+				}
+			}
+		} catch (SQLException e) {
+			log.error(e.getMessage());
+		}
+		connMgr.closeConnection();
+		return workTasks;
+	}
+
+	/**
+	 * Finds which of the given urls are already part of the workload of the namespace.
+	 * 
+	 * @param urls
+	 *            the urls to look up
+	 * @return the urls which are part of the workload.
+	 */
+	public Set<String> findExistingUrls(Collection<String> urls) {
+		Set<String> existing = new HashSet<String>();
+		if (urls.isEmpty())
+			return existing;
+		Connection conn = connMgr.getConnection();
+		try {
+			SqlStatement find =
+			        new SqlStatement("workload.findExistingUrls", "SELECT " + COLUMN_URL + " FROM "
+			                + TABLE + " WHERE " + COLUMN_NAMESPACE + "=? AND " + COLUMN_URL
+			                + " IN (" + SqlStatement.placeholders(urls.size()) + ")");
+			List<Object> params = new ArrayList<Object>(urls.size() + 1);
+			params.add(namespace);
+			params.addAll(urls);
+			ResultSet res = find.executeQuery(conn, params.toArray());
+			while (res.next()) {
+				existing.add(res.getString(COLUMN_URL));
+			}
+		} catch (SQLException e) {
+			log.error(e.getMessage());
+		}
+		connMgr.closeConnection();
+		return existing;
+	}
+
 	/**
 	 * Reverts previously checked out or claimed work to the available state.
 	 * 
@@ -190,13 +377,53 @@ public class WorkloadDaoImpl implements WorkloadDao {
 		int ret = 0;
 		Connection conn = connMgr.getConnection();
 		try {
-			Statement st = conn.createStatement();
 			// Update the worker and crawled field to the default values for the url.
-			ret =
-			        st.executeUpdate("UPDATE " + TABLE + " SET " + COLUMN_CRAWLED + "=0, "
-			                + COLUMN_WORKERID
-			                + "=\"\" WHERE " + COLUMN_ID + "=\"" + id + "\"");
+			ret = REVERT.executeUpdate(conn, id);
 			log.info("Reverted claim/checkout of crawl for id: " + id);
+			if (ret > 0) {
+				incrementWorkloadVersion(conn);
+			}
+		} catch (SQLException e) {
+			log.error(e.getMessage());
+		}
+		connMgr.closeConnection();
+		return ret != 0;
+	}
+
+	/**
+	 * Registers a failed attempt to crawl or upload a worktask and releases the claim.
+	 * 
+	 * @param id
+	 *            the id of the failed worktask
+	 * @param error
+	 *            a description of the failure
+	 * @param policy
+	 *            decides the delay before the retry and when to quarantine
+	 * @return true if successful, else false.
+	 */
+	public boolean failWork(int id, String error, RetryPolicy policy) {
+		int ret = 0;
+		Connection conn = connMgr.getConnection();
+		try {
+			String lastError = error != null ? error : "unknown error";
+			if (lastError.length() > MAX_ERROR_LENGTH) {
+				lastError = lastError.substring(0, MAX_ERROR_LENGTH);
+			}
+			// A single update, so concurrent failures of the same worktask are all counted
+			ret =
+			        FAIL.executeUpdate(conn, lastError, policy.getBaseDelay(),
+			                policy.getMaxDelay(), policy.getMaxAttempts(), id);
+			ResultSet res = SELECT_ATTEMPTS.executeQuery(conn, id);
+			if (res.next()) {
+				int attempts = res.getInt(COLUMN_ATTEMPTS);
+				if (res.getBoolean(COLUMN_QUARANTINED)) {
+					log.warn("Quarantined worktask {} after {} failed attempts. Last error: {}",
+					        id, attempts, lastError);
+				} else {
+					log.info("Worktask {} failed (attempt {}), retrying in {} seconds. Error: {}",
+					        id, attempts, policy.retryDelay(attempts), lastError);
+				}
+			}
 		} catch (SQLException e) {
 			log.error(e.getMessage());
 		}
@@ -204,6 +431,111 @@ public class WorkloadDaoImpl implements WorkloadDao {
 		return ret != 0;
 	}
 
+	/**
+	 * Renews the leases of work claimed by this worker.
+	 * 
+	 * @param ids
+	 *            the ids of the claimed worktasks
+	 * @return the number of renewed leases.
+	 */
+	public int renewLeases(Collection<Integer> ids) {
+		if (ids.isEmpty())
+			return 0;
+		int ret = 0;
+		Connection conn = connMgr.getConnection();
+		try {
+			SqlStatement renew =
+			        new SqlStatement("workload.renewLeases", "UPDATE " + TABLE + " SET "
+			                + COLUMN_LEASE + "=" + LEASE_EXPIRY + " WHERE " + COLUMN_WORKERID
+			                + "=? AND " + COLUMN_CRAWLED + " = 0 AND " + COLUMN_ID + " IN ("
+			                + SqlStatement.placeholders(ids.size()) + ")");
+			List<Object> params = new ArrayList<Object>(ids.size() + 1);
+			params.add(WORKER_ID);
+			params.addAll(ids);
+			ret = renew.executeUpdate(conn, params.toArray());
+			if (ret < ids.size()) {
+				log.warn("Renewed {} of {} leases; the others were lost to other workers.", ret,
+				        ids.size());
+			}
+		} catch (SQLException e) {
+			log.error("Failed to renew leases: {}", e.getMessage());
+		}
+		connMgr.closeConnection();
+		return ret;
+	}
+
+	/**
+	 * Builds the statement claiming work. Its parameters are the worker, the namespace and the
+	 * maximum number of worktasks to claim. Work without an expected duration has -1 instead of
+	 * NULL, so it comes last and the order is served by the claim-index of the workload. Claims
+	 * made before the lease-column existed have no lease and count as expired.
+	 */
+	private static SqlStatement claimStatement(HostPolicy hostPolicy) {
+		return new SqlStatement("workload.claim", "UPDATE " + TABLE + " SET " + COLUMN_WORKERID
+		        + "=?, " + COLUMN_LEASE + "=" + LEASE_EXPIRY + ", " + COLUMN_CLAIMED_AT
+		        + "=NOW() WHERE " + COLUMN_CRAWLED + " = 0 AND (" + COLUMN_WORKERID + "='' OR "
+		        + COLUMN_LEASE + " IS NULL OR " + COLUMN_LEASE + " < NOW()) AND "
+		        + COLUMN_QUARANTINED + " = 0 AND ("
+		        + COLUMN_RETRY_AFTER + " IS NULL OR " + COLUMN_RETRY_AFTER + " <= NOW()) AND "
+		        + COLUMN_NAMESPACE + "=?" + busyHostsCondition(hostPolicy) + " ORDER BY "
+		        + COLUMN_EXPECTED_DURATION + " DESC, " + COLUMN_ID + " LIMIT ?");
+	}
+
+	/**
+	 * Builds the condition excluding the hosts which are busy according to the host-policy: hosts
+	 * with maxConcurrent active claims, or which were claimed less than minInterval seconds ago.
+	 * Host-limits hold across namespaces. MySQL does not allow a subquery on the updated table,
+	 * unless it is wrapped in a derived table. The limits of the policy are part of the statement.
+	 */
+	private static String busyHostsCondition(HostPolicy hostPolicy) {
+		if (hostPolicy.isUnrestricted())
+			return "";
+		List<String> busy = new ArrayList<String>(2);
+		if (hostPolicy.getMaxConcurrent() > 0) {
+			busy.add("SELECT " + COLUMN_HOST + " FROM " + TABLE + " WHERE " + COLUMN_HOST
+			        + "<>'' AND " + COLUMN_WORKERID + "<>'' AND " + COLUMN_CRAWLED
+			        + " = 0 AND " + COLUMN_LEASE + " >= NOW() GROUP BY " + COLUMN_HOST
+			        + " HAVING COUNT(*) >= "
+			        + hostPolicy.getMaxConcurrent());
+		}
+		if (hostPolicy.getMinInterval() > 0) {
+			busy.add("SELECT " + COLUMN_HOST + " FROM " + TABLE + " WHERE " + COLUMN_HOST
+			        + "<>'' AND " + COLUMN_CLAIMED_AT + " > TIMESTAMPADD(SECOND, -"
+			        + hostPolicy.getMinInterval() + ", NOW())");
+		}
+		StringBuilder union = new StringBuilder();
+		for (String query : busy) {
+			union.append(union.length() == 0 ? "" : " UNION ").append(query);
+		}
+		return " AND " + COLUMN_HOST + " NOT IN (SELECT " + COLUMN_HOST + " FROM (" + union
+		        + ") AS busyHosts)";
+	}
+
+	/**
+	 * Retrieves the workload-version of the namespace, using a single primary-key lookup.
+	 * 
+	 * @return the current workload-version, 0 if no work was submitted yet, or -1 on errors.
+	 */
+	public long getWorkloadVersion() {
+		long version = -1;
+		Connection conn = connMgr.getConnection();
+		try {
+			ResultSet res = SELECT_VERSION.executeQuery(conn, namespace);
+			version = res.next() ? res.getLong(COLUMN_VERSION) : 0;
+		} catch (SQLException e) {
+			log.debug("Workload-version could not be retrieved: {}", e.getMessage());
+		}
+		connMgr.closeConnection();
+		return version;
+	}
+
+	/**
+	 * Signals idle workers that new work is available in the namespace.
+	 */
+	private void incrementWorkloadVersion(Connection conn) throws SQLException {
+		INCREMENT_VERSION.executeUpdate(conn, namespace);
+	}
+
 	@Override
 	public String toString() {
 		return "WorkloadDaoImpl [worker_id=" + WORKER_ID + "namespace=" + namespace + "]";
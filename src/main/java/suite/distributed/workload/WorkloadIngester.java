@@ -0,0 +1,164 @@
+package suite.distributed.workload;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * The WorkloadIngester streams a website-file into the workload, without loading it into memory.
+ * The file is read in chunks; each url is canonicalized and deduplicated before it is submitted in
+ * a batch. Duplicates are detected with a bloom-filter, seeded with the urls already in the
+ * workload. As the bloom-filter can report false positives, urls it has seen before are confirmed
+ * in the database. Urls stored before they were canonicalized are seeded in their canonical form
+ * and remembered, as the database only knows their original spelling. Memory use depends on the
+ * expected number of urls, not the size of the file.
+ */
+@Slf4j
+public class WorkloadIngester {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+	public static final int DEFAULT_EXPECTED_URLS = 1000 * 1000;
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+	private static final int AVERAGE_LINE_LENGTH = 40;
+
+	private final WorkloadDao workload;
+	private final int chunkSize;
+	private BloomFilter<CharSequence> seen;
+	private Set<String> respelled;
+
+	@Getter
+	private long lines, invalid, duplicates, submitted;
+
+	public WorkloadIngester(WorkloadDao workload) {
+		this(workload, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param workload
+	 *            the workload to submit the urls to
+	 * @param chunkSize
+	 *            the number of lines read and submitted at once
+	 */
+	public WorkloadIngester(WorkloadDao workload, int chunkSize) {
+		assert chunkSize > 0;
+		this.workload = workload;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Submits all new urls in the file (1 url per line) to the workload.
+	 * 
+	 * @param file
+	 *            the website-file
+	 * @return the number of submitted urls.
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	public long ingest(File file) throws IOException {
+		lines = invalid = duplicates = submitted = 0;
+		seedFilter(Math.max(DEFAULT_EXPECTED_URLS, file.length() / AVERAGE_LINE_LENGTH));
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			List<String> chunk = new ArrayList<String>(chunkSize);
+			String line = br.readLine();
+			while (line != null) {
+				chunk.add(line);
+				if (chunk.size() == chunkSize) {
+					ingestChunk(chunk);
+					chunk.clear();
+				}
+				line = br.readLine();
+			}
+			ingestChunk(chunk);
+		}
+		log.info("Ingested {}: {} lines, {} submitted, {} duplicates, {} invalid.", file, lines,
+		        submitted, duplicates, invalid);
+		return submitted;
+	}
+
+	/**
+	 * Fills the bloom-filter with the canonical form of the urls already in the workload, paging
+	 * through it by id. The urls stored in another spelling are kept aside, to confirm them without
+	 * the database.
+	 */
+	private void seedFilter(long expectedUrls) {
+		seen = BloomFilter.create(Funnels.stringFunnel(Charsets.UTF_8),
+		        (int) Math.min(expectedUrls, Integer.MAX_VALUE), FALSE_POSITIVE_RATE);
+		respelled = new HashSet<String>();
+		int lastId = 0;
+		List<WorkTask> page = workload.listWork(lastId, chunkSize);
+		while (!page.isEmpty()) {
+			for (WorkTask task : page) {
+				String stored = task.getURL().toString();
+				URL canonical = UrlCanonicalizer.canonicalize(stored);
+				if (canonical != null && !canonical.toString().equals(stored)) {
+					respelled.add(canonical.toString());
+					seen.put(canonical.toString());
+				} else {
+					seen.put(stored);
+				}
+				lastId = task.getId();
+			}
+			page = workload.listWork(lastId, chunkSize);
+		}
+	}
+
+	private void ingestChunk(List<String> chunk) {
+		List<URL> fresh = new ArrayList<URL>(chunk.size());
+		Map<String, URL> suspects = new LinkedHashMap<String, URL>();
+		for (String line : chunk) {
+			lines++;
+			URL url = UrlCanonicalizer.canonicalize(line);
+			if (url == null) {
+				if (!line.trim().isEmpty()) {
+					invalid++;
+					log.warn("Website: {} is an invalid url. Ignoring website.", line);
+				}
+			} else if (respelled.contains(url.toString())) {
+				duplicates++;
+			} else if (seen.mightContain(url.toString())) {
+				if (suspects.put(url.toString(), url) != null) {
+					duplicates++;
+				}
+			} else {
+				// Certainly new, as a bloom-filter has no false negatives
+				seen.put(url.toString());
+				fresh.add(url);
+			}
+		}
+		// Submit first, so suspects duplicating a fresh url of this chunk are confirmed as such
+		submitted += workload.submitWork(fresh);
+		if (!suspects.isEmpty()) {
+			Set<String> existing = workload.findExistingUrls(suspects.keySet());
+			List<URL> falsePositives = new ArrayList<URL>();
+			for (Map.Entry<String, URL> suspect : suspects.entrySet()) {
+				if (existing.contains(suspect.getKey())) {
+					duplicates++;
+				} else {
+					falsePositives.add(suspect.getValue());
+				}
+			}
+			submitted += workload.submitWork(falsePositives);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "WorkloadIngester [lines=" + lines + ", submitted=" + submitted + ", duplicates="
+		        + duplicates + ", invalid=" + invalid + "]";
+	}
+}
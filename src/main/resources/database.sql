@@ -42,6 +42,29 @@ CREATE TABLE IF NOT EXISTS `configuration` (
 
 -- --------------------------------------------------------
 
+--
+-- Table structure for table `CrawlProfiles`
+--
+
+CREATE TABLE IF NOT EXISTS `CrawlProfiles` (
+  `id` int(11) NOT NULL auto_increment,
+  `websiteResult_id` int(11) NOT NULL,
+  `configurationTime` bigint(20) NOT NULL default '0',
+  `browserStartTime` bigint(20) NOT NULL default '0',
+  `crawlTime` bigint(20) NOT NULL default '0',
+  `nearDuplicateDetectionTime` bigint(20) NOT NULL default '0',
+  `domWriteTime` bigint(20) NOT NULL default '0',
+  `uploadTime` bigint(20) NOT NULL default '0',
+  `cpuTime` bigint(20) NOT NULL default '0',
+  `peakHeap` bigint(20) NOT NULL default '0',
+  `bytesUploaded` bigint(20) NOT NULL default '0',
+  `browsers` int(11) NOT NULL default '1',
+  PRIMARY KEY  (`id`),
+  KEY `websiteResult_id` (`websiteResult_id`)
+) ENGINE=MyISAM DEFAULT CHARSET=latin1;
+
+-- --------------------------------------------------------
+
 --
 -- Table structure for table `DomResults`
 --
@@ -52,6 +75,7 @@ CREATE TABLE IF NOT EXISTS `DomResults` (
   `dom` longtext,
   `strippedDom` longtext,
   `strippedDomHash` varchar(100) default NULL,
+  `fingerprint` text,
   `screenshot` mediumblob,
   UNIQUE KEY `UniqueId` (`websiteResult_id`,`stateId`)
 ) ENGINE=MyISAM DEFAULT CHARSET=latin1;
@@ -67,6 +91,7 @@ CREATE TABLE IF NOT EXISTS `WebsiteResults` (
   `workTask_id` int(11) NOT NULL,
   `jsonResults` longtext,
   `duration` float default NULL,
+  `browsers` int(11) NOT NULL default '1',
   PRIMARY KEY  (`id`)
 ) ENGINE=InnoDB  DEFAULT CHARSET=latin1 AUTO_INCREMENT=2839 ;
 
@@ -81,5 +106,43 @@ CREATE TABLE IF NOT EXISTS `workload` (
   `url` varchar(255) NOT NULL,
   `worker` varchar(255) NOT NULL,
   `crawled` tinyint(1) NOT NULL default '0',
-  PRIMARY KEY  (`id`)
+  `namespace` varchar(255) NOT NULL default '',
+  `leaseExpiry` datetime default NULL,
+  `attempts` int(11) NOT NULL default '0',
+  `lastError` varchar(255) default NULL,
+  `retryAfter` datetime default NULL,
+  `quarantined` tinyint(1) NOT NULL default '0',
+  `host` varchar(255) NOT NULL default '',
+  `claimedAt` datetime default NULL,
+  `expectedDuration` float NOT NULL default '-1',
+  PRIMARY KEY  (`id`),
+  KEY `host` (`host`),
+  KEY `claimedAt` (`claimedAt`),
+  KEY `busyHosts` (`crawled`,`worker`,`host`),
+  KEY `claim` (`crawled`,`quarantined`,`namespace`,`expectedDuration`,`id`),
+  KEY `namespaceUrl` (`namespace`,`url`)
 ) ENGINE=MyISAM  DEFAULT CHARSET=latin1 AUTO_INCREMENT=10678 ;
+
+-- --------------------------------------------------------
+
+--
+-- Table structure for table `workloadVersion`
+--
+
+CREATE TABLE IF NOT EXISTS `workloadVersion` (
+  `namespace` varchar(255) NOT NULL default '',
+  `version` bigint(20) NOT NULL default '0',
+  PRIMARY KEY  (`namespace`)
+) ENGINE=MyISAM DEFAULT CHARSET=latin1;
+
+-- --------------------------------------------------------
+
+--
+-- Table structure for table `configurationVersion`
+--
+
+CREATE TABLE IF NOT EXISTS `configurationVersion` (
+  `section` varchar(255) NOT NULL default '',
+  `version` bigint(20) NOT NULL default '0',
+  PRIMARY KEY  (`section`)
+) ENGINE=MyISAM DEFAULT CHARSET=latin1;
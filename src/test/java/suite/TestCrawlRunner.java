@@ -9,10 +9,12 @@ import java.util.List;
 
 import org.junit.Test;
 
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import suite.CrawlRunner;
 import suite.crawljax.CrawlManager;
 import suite.distributed.configuration.ConfigurationDao;
+import suite.distributed.results.CrawlProfile;
 import suite.distributed.results.ResultProcessor;
 import suite.distributed.workload.WorkTask;
 import suite.distributed.workload.WorkloadDao;
@@ -36,8 +38,9 @@ public class TestCrawlRunner {
 		when(crawlManager.generateOutputDir(new URL("http://demo.crawljax.com"))).thenReturn(
 		        new File("testFileWorker"));
 		when(
-		        crawlManager.runCrawler(new URL("http://demo.crawljax.com"),
-		                new File("testFile"), new HashMap<String, String>())).thenReturn(true);
+		        crawlManager.runCrawler(eq(new URL("http://demo.crawljax.com")),
+		                eq(new File("testFile")), eq(new HashMap<String, String>()),
+		                any(CrawlProfile.class))).thenReturn(true);
 		when(workload.revertWork(anyInt())).thenReturn(true);
 		CrawlRunner runner = new CrawlRunner(resultProcessor, crawlManager, workload, config);
 		runner.actionWorker("test", true);
@@ -60,10 +63,46 @@ public class TestCrawlRunner {
 		when(crawlManager.generateOutputDir(new URL("http://demo.crawljax.com"))).thenReturn(
 		        new File("testFileWorker"));
 		when(
-		        crawlManager.runCrawler(new URL("http://demo.crawljax.com"),
-		                new File("testFile"), new HashMap<String, String>())).thenReturn(false);
+		        crawlManager.runCrawler(eq(new URL("http://demo.crawljax.com")),
+		                eq(new File("testFile")), eq(new HashMap<String, String>()),
+		                any(CrawlProfile.class))).thenReturn(false);
 		when(workload.revertWork(anyInt())).thenReturn(true);
 		CrawlRunner runner = new CrawlRunner(resultProcessor, crawlManager, workload, config);
 		runner.actionWorker(null, true);
 	}
+
+	@Test
+	public void testWorkerMultipleSlots() throws MalformedURLException {
+		ResultProcessor resultProcessor = mock(ResultProcessor.class);
+		WorkloadDao workload = mock(WorkloadDao.class);
+		CrawlManager crawlManager = mock(CrawlManager.class);
+		ConfigurationDao config = mock(ConfigurationDao.class);
+
+		WorkTask task1 = new WorkTask(1, "http://demo.crawljax.com");
+		WorkTask task2 = new WorkTask(2, "http://www.crawljax.com");
+		List<WorkTask> worktasks = new ArrayList<>(2);
+		worktasks.add(task1);
+		worktasks.add(task2);
+		List<WorkTask> remaining = new ArrayList<>(1);
+		remaining.add(task2);
+		when(workload.retrieveWork(anyInt())).thenReturn(worktasks, remaining,
+		        new ArrayList<WorkTask>());
+		when(crawlManager.generateOutputDir(any(URL.class))).thenReturn(
+		        new File("testFileWorker"));
+		when(
+		        crawlManager.runCrawler(any(URL.class), any(File.class), anyMap(),
+		                any(CrawlProfile.class))).thenReturn(true);
+		CrawlRunner runner = new CrawlRunner(resultProcessor, crawlManager, workload, config);
+		runner.actionWorker("test", true, 2, 1, 1);
+		verify(crawlManager, times(2)).runCrawler(any(URL.class), any(File.class), anyMap(),
+		        any(CrawlProfile.class));
+		verify(workload).checkoutWork(task1);
+		verify(workload).checkoutWork(task2);
+		verify(workload, never()).revertWork(anyInt());
+	}
+
+	@Test
+	public void testDefaultSlotCount() {
+		assertTrue(CrawlRunner.defaultSlotCount() >= 1);
+	}
 }
@@ -52,6 +52,23 @@ public class TestSpeedMetric {
 		}
 	}
 
+	@Test
+	public void testApplyReportsBrowsers() {
+		SpeedMetric metric = new SpeedMetric();
+		WebsiteResult benchmark = getMockedWebsiteResult(1, 3, "http://www.test1.com/", 100.0F);
+		WebsiteResult test = getMockedWebsiteResult(1, 3, "http://www.test1.com/", 50.0F);
+		test.setBrowsers(2);
+		List<WebsiteResult> benchmarkWebsites = new ArrayList<WebsiteResult>();
+		List<WebsiteResult> testWebsitesResults = new ArrayList<WebsiteResult>();
+		benchmarkWebsites.add(benchmark);
+		testWebsitesResults.add(test);
+		Statistic stat = metric.apply(benchmarkWebsites, testWebsitesResults).iterator().next();
+		assertTrue(stat.hasDetails());
+		assertEquals(2, stat.getDetails().size());
+		assertTrue(stat.getDetails().contains(
+		        "Browsers used by the benchmark: [1], by the test: [2]"));
+	}
+
 	private StateResult getMockedStateResult(String id, WebsiteResult parent) {
 		StateResult stateResult = mock(StateResult.class);
 		when(stateResult.getDom()).thenReturn("mock DOM");
@@ -106,6 +106,26 @@ public class TestStateAnalysisMetric {
 		}
 	}
 
+	@Test
+	public void testApplyFingerprintsEachStateOnce() {
+		List<WebsiteResult> testedWebsites = new ArrayList<WebsiteResult>();
+		List<WebsiteResult> benchmarkedWebsites = new ArrayList<WebsiteResult>();
+		testedWebsites.add(getMockedWebsiteResult(1, 3, "http://mock.mock"));
+		benchmarkedWebsites.add(getMockedWebsiteResult(2, 3, "http://mock.mock"));
+		NearDuplicateDetection ndd = mock(NearDuplicateDetection.class);
+		Fingerprint finger = mock(Fingerprint.class);
+		when(finger.getDistance(any(Fingerprint.class))).thenReturn(42.0);
+		when(ndd.generateFingerprint(anyString())).thenReturn(finger);
+		StateAnalysisMetric sam = getStateAnalysisMetric();
+		sam.setNearDuplicateDetection(ndd);
+
+		sam.apply(benchmarkedWebsites, testedWebsites);
+
+		// 3 tested states are compared to 3 benchmark states, but each is fingerprinted once
+		verify(finger, times(9)).getDistance(any(Fingerprint.class));
+		verify(ndd, times(6)).generateFingerprint(anyString());
+	}
+
 	private Statistic getStatistic(Collection<Statistic> stats, String name) {
 		for (Statistic stat : stats) {
 			if (stat.getName().equals(name))
@@ -11,6 +11,9 @@ import java.util.Map;
 
 import org.junit.Test;
 
+import suite.distributed.results.CrawlProfile;
+
+import com.crawljax.browser.EmbeddedBrowser.BrowserType;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
 
 public class ConfigurationMapperTest {
@@ -51,4 +54,60 @@ public class ConfigurationMapperTest {
 		assertEquals(result.getNearDuplicateDetectionFactory().getFeatures().size(), 1);
 	}
 
+	@Test
+	public void testConvertSharesNearDuplicateDetection() throws MalformedURLException {
+		URL url = new URL("http://www.test.com");
+		Map<String, String> args = new HashMap<String, String>(2);
+		args.put("threshold", "0.5");
+		args.put("feature", "FeatureShingles;1;1");
+		CrawljaxConfiguration first =
+		        new ConfigurationMapper().convert(url, new File("test/"), args);
+		CrawljaxConfiguration second =
+		        new ConfigurationMapper().convert(url, new File("test/"), args);
+		assertSame(first.getNearDuplicateDetectionFactory(),
+		        second.getNearDuplicateDetectionFactory());
+	}
+
+	@Test
+	public void testConvertBrowsers() throws MalformedURLException {
+		Map<String, String> args = new HashMap<String, String>(2);
+		args.put("browsers", "3");
+		args.put("headless", "true");
+		CrawlProfile profile = new CrawlProfile();
+		CrawljaxConfiguration result =
+		        new ConfigurationMapper().convert(new URL("http://www.test.com"), new File(
+		                "test/"), args, profile);
+		assertEquals(3, result.getBrowserConfig().getNumberOfBrowsers());
+		assertEquals(BrowserType.PHANTOMJS, result.getBrowserConfig().getBrowsertype());
+		assertEquals(3, profile.getBrowsers());
+	}
+
+	@Test
+	public void testConvertBrowsersAuto() throws MalformedURLException {
+		Map<String, String> args = new HashMap<String, String>(1);
+		args.put("browsers", "auto");
+		CrawljaxConfiguration result =
+		        new ConfigurationMapper().convert(new URL("http://www.test.com"), new File(
+		                "test/"), args);
+		assertEquals(ConfigurationMapper.autoBrowserCount(1), result.getBrowserConfig()
+		        .getNumberOfBrowsers());
+		assertTrue(result.getBrowserConfig().getNumberOfBrowsers() >= 1);
+	}
+
+	@Test
+	public void testAutoBrowsersShareTheMachineWithOtherCrawls() {
+		int cores = Runtime.getRuntime().availableProcessors();
+		assertEquals(1, ConfigurationMapper.autoBrowserCount(cores));
+		assertEquals(1, ConfigurationMapper.autoBrowserCount(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testResolveBrowserType() {
+		Map<String, String> args = new HashMap<String, String>(2);
+		assertEquals(BrowserType.FIREFOX, ConfigurationMapper.resolveBrowserType(args));
+		args.put("browser", "chrome");
+		assertEquals(BrowserType.CHROME, ConfigurationMapper.resolveBrowserType(args));
+		args.put("headless", "true");
+		assertEquals(BrowserType.PHANTOMJS, ConfigurationMapper.resolveBrowserType(args));
+	}
 }
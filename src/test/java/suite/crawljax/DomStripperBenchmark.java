@@ -0,0 +1,90 @@
+package suite.crawljax;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.io.FileUtils;
+
+import com.crawljax.domcomparators.AttributesStripper;
+import com.crawljax.domcomparators.DomStripper;
+import com.crawljax.domcomparators.DomStructureStripper;
+import com.crawljax.domcomparators.HeadStripper;
+import com.crawljax.domcomparators.RedundantWhiteSpaceStripper;
+
+/**
+ * Compares the time per state of the chained Crawljax-strippers with the FusedDomStripper, on the
+ * DOMs stored by earlier crawls. Not a unit test; run it with the directory containing the output
+ * of the crawls (by default ./output) as the only argument.
+ */
+public class DomStripperBenchmark {
+
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int ROUNDS = 10;
+	private static final double NANOS_PER_MICRO = 1000.0;
+
+	public static void main(String[] args) throws IOException {
+		File root = new File(args.length > 0 ? args[0] : "output");
+		List<String> doms = loadDoms(root);
+		if (doms.isEmpty()) {
+			System.out.println("No stored DOMs found in " + root.getAbsolutePath());
+			return;
+		}
+		DomStripper[] chained =
+		        { new HeadStripper(), new DomStructureStripper(), new AttributesStripper(),
+		                new RedundantWhiteSpaceStripper() };
+		DomStripper[] fused = { new FusedDomStripper() };
+
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			run(chained, doms);
+			run(fused, doms);
+		}
+		long chainedNanos = 0;
+		long fusedNanos = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			chainedNanos += run(chained, doms);
+			fusedNanos += run(fused, doms);
+		}
+		double states = (double) doms.size() * ROUNDS;
+		double chainedPerState = chainedNanos / states / NANOS_PER_MICRO;
+		double fusedPerState = fusedNanos / states / NANOS_PER_MICRO;
+		System.out.println(String.format(Locale.ROOT,
+		        "%d states, %d rounds%nchained: %.1f us/state%nfused:   %.1f us/state%n"
+		                + "saving:  %.1f us/state (%.0f%%)", doms.size(), ROUNDS,
+		        chainedPerState, fusedPerState, chainedPerState - fusedPerState,
+		        (chainedPerState - fusedPerState) / chainedPerState * 100));
+	}
+
+	private static long run(DomStripper[] strippers, List<String> doms) {
+		long start = System.nanoTime();
+		int checksum = 0;
+		for (String dom : doms) {
+			String stripped = dom;
+			for (DomStripper stripper : strippers) {
+				stripped = stripper.strip(stripped);
+			}
+			checksum += stripped.length();
+		}
+		long duration = System.nanoTime() - start;
+		if (checksum < 0) {
+			System.out.println(checksum);
+		}
+		return duration;
+	}
+
+	private static List<String> loadDoms(File root) throws IOException {
+		List<String> doms = new ArrayList<String>();
+		if (!root.isDirectory())
+			return doms;
+		Collection<File> files = FileUtils.listFiles(root, new String[] { "html" }, true);
+		for (File file : files) {
+			if (file.getParentFile().getName().equals("doms")) {
+				doms.add(FileUtils.readFileToString(file));
+			}
+		}
+		return doms;
+	}
+}
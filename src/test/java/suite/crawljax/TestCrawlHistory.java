@@ -0,0 +1,57 @@
+package suite.crawljax;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestCrawlHistory {
+
+	private static final File TEST_DIR = new File("TestDir");
+	private static final File HISTORY = new File(TEST_DIR, CrawlHistory.HISTORY_FILE);
+
+	@After
+	public void removeTestDir() throws IOException {
+		FileUtils.deleteDirectory(TEST_DIR);
+	}
+
+	@Test
+	public void testUnknownWebsite() {
+		CrawlHistory history = new CrawlHistory(HISTORY);
+		assertEquals(-1, history.expectedDuration("http://a.com"));
+	}
+
+	@Test
+	public void testRecordAverages() {
+		CrawlHistory history = new CrawlHistory(HISTORY);
+		history.record("http://a.com", 1000);
+		assertEquals(1000, history.expectedDuration("http://a.com"));
+		history.record("http://a.com", 3000);
+		assertEquals(2000, history.expectedDuration("http://a.com"));
+	}
+
+	@Test
+	public void testOrderLongestFirst() {
+		CrawlHistory history = new CrawlHistory(HISTORY);
+		history.record("http://b.com", 1000);
+		history.record("http://d.com", 5000);
+		assertEquals(
+		        Arrays.asList("http://d.com", "http://b.com", "http://a.com", "http://c.com"),
+		        history.order(Arrays.asList("http://a.com", "http://b.com", "http://c.com",
+		                "http://d.com")));
+	}
+
+	@Test
+	public void testStoreAndLoad() {
+		CrawlHistory history = new CrawlHistory(HISTORY);
+		history.record("http://a.com", 1000);
+		history.store();
+		assertTrue(HISTORY.isFile());
+		assertEquals(1000, new CrawlHistory(HISTORY).expectedDuration("http://a.com"));
+	}
+}
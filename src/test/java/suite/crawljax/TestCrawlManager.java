@@ -0,0 +1,110 @@
+package suite.crawljax;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import suite.distributed.results.CrawlProfile;
+
+public class TestCrawlManager {
+
+	private static final File TEST_DIR = new File("TestDir");
+
+	@After
+	public void removeTestDir() throws IOException {
+		FileUtils.deleteDirectory(TEST_DIR);
+	}
+
+	@Test
+	public void testCrawlWebsitesInParallel() throws Exception {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		CrawlManager crawlManager = new CrawlManager() {
+			@Override
+			public boolean runCrawler(URL website, File outputdir, Map<String, String> args,
+			        CrawlProfile profile) {
+				int now = running.incrementAndGet();
+				synchronized (maxRunning) {
+					maxRunning.set(Math.max(maxRunning.get(), now));
+				}
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				return !website.getHost().equals("c.com");
+			}
+
+			@Override
+			public File getOutputRoot() {
+				return TEST_DIR;
+			}
+		};
+		Queue<String> queue = new PriorityQueue<String>();
+		queue.add("http://a.com");
+		queue.add("http://b.com");
+		queue.add("http://c.com");
+		queue.add("http://d.com");
+		crawlManager.setWebsiteQueue(queue);
+
+		List<File> outputdirs = crawlManager.crawlWebsitesFromQueue(2);
+		assertEquals(4, outputdirs.size());
+		assertTrue(outputdirs.get(0).getName().startsWith("a.com-"));
+		assertTrue(outputdirs.get(3).getName().startsWith("d.com-"));
+		assertEquals(2, maxRunning.get());
+		assertTrue(new File(TEST_DIR, CrawlHistory.HISTORY_FILE).isFile());
+	}
+
+	@Test
+	public void testCrawlWebsitesContinuesAfterAFailedCrawl() throws Exception {
+		CrawlManager crawlManager = new CrawlManager() {
+			@Override
+			public boolean runCrawler(URL website, File outputdir, Map<String, String> args,
+			        CrawlProfile profile) {
+				if (website.getHost().equals("a.com"))
+					throw new AssertionError("MOCK FAILURE");
+				return true;
+			}
+
+			@Override
+			public File getOutputRoot() {
+				return TEST_DIR;
+			}
+		};
+		Queue<String> queue = new PriorityQueue<String>();
+		queue.add("http://a.com");
+		queue.add("http://b.com");
+		queue.add("http://c.com");
+		crawlManager.setWebsiteQueue(queue);
+
+		List<File> outputdirs = crawlManager.crawlWebsitesFromQueue(1);
+		assertEquals(2, outputdirs.size());
+		assertTrue(outputdirs.get(0).getName().startsWith("b.com-"));
+		assertTrue(outputdirs.get(1).getName().startsWith("c.com-"));
+	}
+
+	@Test
+	public void testGenerateOutputDirIsUnique() throws Exception {
+		CrawlManager crawlManager = new CrawlManager();
+		URL website = new URL("http://demo.crawljax.com");
+		Set<File> dirs = Collections.synchronizedSet(new HashSet<File>());
+		for (int i = 0; i < 100; i++) {
+			assertTrue(dirs.add(crawlManager.generateOutputDir(website)));
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package suite.crawljax;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URL;
+
+import org.junit.Test;
+
+public class TestCrawlSummary {
+
+	@Test
+	public void testSummary() throws Exception {
+		CrawlSummary summary = new CrawlSummary(3);
+		summary.finished(new URL("http://a.com"), new File("output/a"), 1500, true);
+		summary.finished(new URL("http://b.com"), new File("output/b"), 2500, false);
+		assertEquals(2, summary.getFinished());
+		assertEquals(1, summary.getFailed());
+
+		String table = summary.toTable();
+		assertTrue(table.contains("http://a.com"));
+		assertTrue(table.contains("FAILED"));
+		assertTrue(table.contains("2/3 sites crawled (1 failed)"));
+		assertTrue(table.contains("total crawl-time 4.0s"));
+	}
+}
@@ -0,0 +1,64 @@
+package suite.crawljax;
+
+import static org.junit.Assert.*;
+
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+import suite.crawljax.FusedDomStripper.Rule;
+
+public class TestFusedDomStripper {
+
+	private static final String DOM =
+	        "<!DOCTYPE html><HTML><head><title>Test</title></head>\n"
+	                + "<body class=\"main\">  Hello   <b id='x'>world</b> <!-- note -->\n"
+	                + "<script>if (a < b) {}</script><br/></body></HTML>";
+
+	@Test
+	public void testAllRules() {
+		assertEquals("<!DOCTYPE html><html><body><b></b><script></script><br/></body></html>",
+		        new FusedDomStripper().strip(DOM));
+	}
+
+	@Test
+	public void testHead() {
+		assertEquals("<html><body>text</body></html>", new FusedDomStripper(EnumSet.of(Rule.HEAD))
+		        .strip("<html><HEAD><title>x</title></HEAD><body>text</body></html>"));
+	}
+
+	@Test
+	public void testAttributes() {
+		assertEquals("<div>a > b<img/></div>", new FusedDomStripper(EnumSet.of(Rule.ATTRIBUTES))
+		        .strip("<div class=\"a > b\">a > b<img src='x'/></div>"));
+	}
+
+	@Test
+	public void testWhitespace() {
+		assertEquals("<p>a b</p><p>c</p>", new FusedDomStripper(EnumSet.of(Rule.WHITESPACE))
+		        .strip("  <p> a \n  b </p>\n\t<p>c</p> "));
+	}
+
+	@Test
+	public void testStructureKeepsScriptAsText() {
+		assertEquals("<p></p><script></script>",
+		        new FusedDomStripper(EnumSet.of(Rule.STRUCTURE))
+		                .strip("<p>text<!-- c --></p><script>a<b</script>"));
+	}
+
+	@Test
+	public void testNoRules() {
+		assertEquals(DOM, new FusedDomStripper(EnumSet.noneOf(Rule.class)).strip(DOM));
+	}
+
+	@Test
+	public void testParseRules() {
+		assertEquals(EnumSet.of(Rule.HEAD, Rule.WHITESPACE),
+		        FusedDomStripper.parseRules("head, Whitespace"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseUnknownRule() {
+		FusedDomStripper.parseRules("head,unknown");
+	}
+}
@@ -0,0 +1,100 @@
+package suite.crawljax;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.crawljax.core.state.duplicatedetection.Fingerprint;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetection;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetectionBroder;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetectionCrawlhash;
+
+public class TestNearDuplicateDetectionRegistry {
+
+	private static final List<String> FEATURES = Arrays.asList("FeatureShingles;1;0");
+
+	@Test
+	public void testDetectionIsShared() {
+		NearDuplicateDetectionRegistry registry = new NearDuplicateDetectionRegistry();
+		NearDuplicateDetection detection = registry.getDetection("crawlhash", 0.5, FEATURES);
+		assertTrue(detection instanceof NearDuplicateDetectionCrawlhash);
+		assertSame(detection, registry.getDetection("", 0.5, FEATURES));
+		assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void testDetectionPerSettings() {
+		NearDuplicateDetectionRegistry registry = new NearDuplicateDetectionRegistry();
+		NearDuplicateDetection detection = registry.getDetection("crawlhash", 0.5, FEATURES);
+		assertNotSame(detection, registry.getDetection("crawlhash", 0.6, FEATURES));
+		assertTrue(registry.getDetection("Broder", 0.5, FEATURES) instanceof
+		        NearDuplicateDetectionBroder);
+		assertEquals(3, registry.size());
+	}
+
+	@Test
+	public void testRegistryIsBounded() {
+		NearDuplicateDetectionRegistry registry = new NearDuplicateDetectionRegistry();
+		for (int i = 0; i < NearDuplicateDetectionRegistry.MAX_DETECTIONS * 2; i++) {
+			registry.getDetection("crawlhash", i / 100.0, FEATURES);
+		}
+		assertTrue(registry.size() <= NearDuplicateDetectionRegistry.MAX_DETECTIONS);
+	}
+
+	@Test
+	public void testSharedDetectionFingerprintsConcurrently() throws Exception {
+		final NearDuplicateDetection detection =
+		        new NearDuplicateDetectionRegistry().getDetection("crawlhash", 0, FEATURES);
+		final List<String> doms = new ArrayList<String>();
+		final List<Fingerprint> expected = new ArrayList<Fingerprint>();
+		for (int i = 0; i < 20; i++) {
+			doms.add("<html><body><p>paragraph " + i + " of a page</p><p>" + i * i
+			        + "</p></body></html>");
+			expected.add(detection.generateFingerprint(doms.get(i)));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for (int thread = 0; thread < 4; thread++) {
+			results.add(executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					for (int round = 0; round < 50; round++) {
+						for (int i = 0; i < doms.size(); i++) {
+							Fingerprint fingerprint = detection.generateFingerprint(doms.get(i));
+							if (fingerprint.getDistance(expected.get(i)) != 0) {
+								return false;
+							}
+						}
+					}
+					return true;
+				}
+			}));
+		}
+		executor.shutdown();
+		for (Future<Boolean> result : results) {
+			assertTrue(result.get());
+		}
+	}
+
+	@Test
+	public void testFeatureIsInterned() {
+		NearDuplicateDetectionRegistry registry = new NearDuplicateDetectionRegistry();
+		assertNotNull(registry.getFeature("FeatureShingles;1;0"));
+		assertSame(registry.getFeature("FeatureShingles;1;0"),
+		        registry.getFeature("FeatureShingles;1;0"));
+		assertNull(registry.getFeature("FeatureUnknown;1;0"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFeature() {
+		new NearDuplicateDetectionRegistry().getFeature("FeatureShingles;1");
+	}
+}
@@ -0,0 +1,78 @@
+package suite.crawljax;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestOutputStore {
+
+	private static final File TEST_DIR = new File("TestDir");
+	private static final String PIN = "upload.pending";
+
+	@After
+	public void removeTestDir() throws IOException {
+		FileUtils.deleteDirectory(TEST_DIR);
+	}
+
+	@Test
+	public void testOpenIndexesExistingOutput() throws IOException {
+		makeOutput("a.com-1", 100);
+		makeOutput("b.com-2", 100);
+		OutputStore store = new OutputStore(TEST_DIR, OutputStore.UNLIMITED, false, PIN);
+		store.open();
+		assertEquals(2, store.getCount());
+		assertEquals(200, store.getSize());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsedOverBudget() throws IOException {
+		File oldest = makeOutput("a.com-1", 100);
+		oldest.setLastModified(1000);
+		File newest = makeOutput("b.com-2", 100);
+		newest.setLastModified(2000);
+		OutputStore store = new OutputStore(TEST_DIR, 150, false, PIN);
+		store.open();
+		assertFalse(oldest.exists());
+		assertTrue(newest.exists());
+		assertEquals(100, store.getSize());
+	}
+
+	@Test
+	public void testKeepsActiveAndPendingOutput() throws IOException {
+		File pending = makeOutput("a.com-1", 100);
+		FileUtils.write(new File(pending, PIN), "");
+		OutputStore store = new OutputStore(TEST_DIR, 1, false, PIN);
+		store.open();
+		File crawling = new File(TEST_DIR, "b.com-2");
+		store.crawling(crawling);
+		makeOutput("b.com-2", 100);
+		store.compact();
+		assertTrue(pending.exists());
+		assertTrue(crawling.exists());
+
+		store.finished(crawling);
+		assertFalse(crawling.exists());
+		assertTrue(pending.exists());
+	}
+
+	@Test
+	public void testArchivesReleasedOutput() throws IOException {
+		File dir = makeOutput("a.com-1", 100);
+		OutputStore store = new OutputStore(TEST_DIR, OutputStore.UNLIMITED, true, PIN);
+		store.open();
+		assertFalse(dir.exists());
+		assertTrue(new File(TEST_DIR, "a.com-1" + OutputStore.ARCHIVE_EXTENSION).isFile());
+		assertEquals(1, store.getCount());
+	}
+
+	private File makeOutput(String name, int size) throws IOException {
+		File dir = new File(TEST_DIR, name);
+		FileUtils.writeByteArrayToFile(new File(dir, "doms/state0.html"), new byte[size]);
+		return dir;
+	}
+}
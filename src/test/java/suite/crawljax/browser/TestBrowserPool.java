@@ -0,0 +1,86 @@
+package suite.crawljax.browser;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import com.crawljax.browser.EmbeddedBrowser.BrowserType;
+
+public class TestBrowserPool {
+
+	/**
+	 * BrowserPool which launches mocked browsers.
+	 */
+	private static class MockBrowserPool extends BrowserPool {
+		private int launched = 0;
+
+		@Override
+		protected WebDriver createDriver(BrowserType type) {
+			launched++;
+			WebDriver driver = mock(WebDriver.class, RETURNS_DEEP_STUBS);
+			Set<String> handles = new HashSet<String>();
+			handles.add("window");
+			when(driver.getWindowHandles()).thenReturn(handles);
+			return driver;
+		}
+	}
+
+	@Test
+	public void testBrowserIsReused() {
+		MockBrowserPool pool = new MockBrowserPool();
+		pool.warmUp(BrowserType.FIREFOX, 1);
+		assertEquals(1, pool.idleCount(BrowserType.FIREFOX));
+		WebDriver first = pool.borrow(BrowserType.FIREFOX);
+		assertEquals(0, pool.idleCount(BrowserType.FIREFOX));
+		first.quit();
+		assertEquals(1, pool.idleCount(BrowserType.FIREFOX));
+		pool.borrow(BrowserType.FIREFOX).quit();
+		assertEquals(1, pool.launched);
+	}
+
+	@Test
+	public void testBrowserIsRecycledAfterMaxUses() {
+		MockBrowserPool pool = new MockBrowserPool();
+		pool.setMaxUses(2);
+		pool.borrow(BrowserType.FIREFOX).quit();
+		pool.borrow(BrowserType.FIREFOX).quit();
+		assertEquals(0, pool.idleCount(BrowserType.FIREFOX));
+		pool.borrow(BrowserType.FIREFOX).quit();
+		assertEquals(2, pool.launched);
+	}
+
+	@Test
+	public void testUnhealthyBrowserIsReplaced() {
+		MockBrowserPool pool = new MockBrowserPool();
+		pool.warmUp(BrowserType.CHROME, 1);
+		WebDriver borrowed = pool.borrow(BrowserType.CHROME);
+		when(borrowed.getWindowHandles()).thenThrow(new WebDriverException("MOCK CRASH"));
+		borrowed.quit();
+		pool.borrow(BrowserType.CHROME);
+		assertEquals(2, pool.launched);
+	}
+
+	@Test(expected = WebDriverException.class)
+	public void testReturnedBrowserCannotBeUsed() {
+		MockBrowserPool pool = new MockBrowserPool();
+		WebDriver borrowed = pool.borrow(BrowserType.FIREFOX);
+		borrowed.quit();
+		borrowed.getCurrentUrl();
+	}
+
+	@Test
+	public void testCloseQuitsIdleBrowsers() {
+		MockBrowserPool pool = new MockBrowserPool();
+		pool.warmUp(BrowserType.FIREFOX, 2);
+		pool.close();
+		assertEquals(0, pool.idleCount(BrowserType.FIREFOX));
+		assertTrue(pool.supports(BrowserType.PHANTOMJS));
+		assertFalse(pool.supports(BrowserType.REMOTE));
+	}
+}
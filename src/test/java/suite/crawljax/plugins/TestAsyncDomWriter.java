@@ -0,0 +1,62 @@
+package suite.crawljax.plugins;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import suite.distributed.results.DomStore;
+
+import com.crawljax.core.state.duplicatedetection.XxHashGenerator;
+
+public class TestAsyncDomWriter {
+
+	private final File dir = new File("TestDir", "doms");
+
+	@After
+	public void removeTestDir() throws IOException {
+		FileUtils.deleteDirectory(new File("TestDir"));
+	}
+
+	@Test
+	public void testStartCreatesDirectory() {
+		AsyncDomWriter writer = new AsyncDomWriter(dir, new XxHashGenerator());
+		writer.start();
+		assertTrue(dir.isDirectory());
+		writer.close();
+	}
+
+	@Test
+	public void testCloseWritesQueuedDoms() throws Exception {
+		AsyncDomWriter writer = new AsyncDomWriter(dir, new XxHashGenerator(), 2);
+		writer.start();
+		for (int i = 0; i < 20; i++) {
+			writer.submit("state" + i, "<html>" + i + "</html>");
+		}
+		writer.close();
+
+		assertEquals(20, writer.getWritten());
+		assertEquals(0, writer.getFailed());
+		Map<String, String> index = DomStore.loadIndex(dir);
+		for (int i = 0; i < 20; i++) {
+			assertEquals("<html>" + i + "</html>", DomStore.read(dir, index.get("state" + i)));
+		}
+	}
+
+	@Test
+	public void testWriteFailsWithoutDirectory() throws Exception {
+		AsyncDomWriter writer = new AsyncDomWriter(dir, new XxHashGenerator());
+		writer.start();
+		FileUtils.deleteDirectory(dir);
+		writer.submit("state", "<html/>");
+		writer.close();
+
+		assertEquals(0, writer.getWritten());
+		assertEquals(1, writer.getFailed());
+	}
+}
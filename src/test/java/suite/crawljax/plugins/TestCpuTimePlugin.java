@@ -0,0 +1,66 @@
+package suite.crawljax.plugins;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import suite.distributed.results.CrawlProfile;
+
+import com.crawljax.core.CrawlerContext;
+import com.crawljax.core.state.StateVertex;
+
+public class TestCpuTimePlugin {
+
+	private static final long NANOS_PER_MILLI = 1000000;
+
+	@Test
+	public void testCpuTimePluginToString() {
+		assertEquals("CpuTime plugin", new CpuTimePlugin(new CrawlProfile()).toString());
+	}
+
+	@Test
+	public void testThreadIsCountedOnce() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isCurrentThreadCpuTimeSupported());
+		CrawlProfile profile = new CrawlProfile();
+		CpuTimePlugin plugin = new CpuTimePlugin(profile);
+		CrawlerContext context = mock(CrawlerContext.class);
+
+		plugin.onUrlLoad(context);
+		plugin.onNewState(context, mock(StateVertex.class));
+		plugin.onRevisitState(context, mock(StateVertex.class));
+
+		long used = threads.getCurrentThreadCpuTime() / NANOS_PER_MILLI;
+		assertTrue(profile.getCpuTime() >= 0);
+		assertTrue(profile.getCpuTime() <= used);
+	}
+
+	@Test
+	public void testCpuTimeIsRecorded() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported());
+		CrawlProfile profile = mock(CrawlProfile.class);
+		CpuTimePlugin plugin = new CpuTimePlugin(profile);
+
+		plugin.onUrlLoad(mock(CrawlerContext.class));
+
+		verify(profile).addCpuNanos(anyLong());
+	}
+
+	@Test
+	public void testBrowserStartIsRecorded() {
+		CrawlProfile profile = mock(CrawlProfile.class);
+		CpuTimePlugin plugin = new CpuTimePlugin(profile);
+
+		plugin.onBrowserCreated(null);
+		verify(profile, never()).addBrowserStartNanos(anyLong());
+
+		plugin.preCrawling(null);
+		plugin.onBrowserCreated(null);
+		verify(profile).addBrowserStartNanos(anyLong());
+	}
+}
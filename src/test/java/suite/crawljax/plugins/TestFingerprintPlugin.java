@@ -0,0 +1,82 @@
+package suite.crawljax.plugins;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import suite.distributed.results.DomStore;
+import suite.distributed.results.StateFingerprint;
+
+import com.crawljax.core.CrawlSession;
+import com.crawljax.core.CrawlerContext;
+import com.crawljax.core.ExitNotifier.ExitStatus;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.duplicatedetection.Fingerprint;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetection;
+import com.crawljax.core.state.duplicatedetection.XxHashGenerator;
+
+public class TestFingerprintPlugin {
+
+	private final File testDir = new File("TestDir");
+
+	@After
+	public void removeTestDir() throws IOException {
+		FileUtils.deleteDirectory(testDir);
+	}
+
+	private CrawlerContext mockContext() {
+		CrawlerContext context = mock(CrawlerContext.class);
+		CrawljaxConfiguration config = mock(CrawljaxConfiguration.class);
+		when(context.getConfig()).thenReturn(config);
+		when(config.getOutputDir()).thenReturn(testDir);
+		return context;
+	}
+
+	private StateVertex mockState(String name, String dom, String strippedDom) {
+		StateVertex state = mock(StateVertex.class);
+		when(state.getName()).thenReturn(name);
+		when(state.getDom()).thenReturn(dom);
+		when(state.getStrippedDom()).thenReturn(strippedDom);
+		return state;
+	}
+
+	@Test
+	public void testFingerprintPluginToString() {
+		assertEquals("Fingerprint plugin",
+		        new FingerprintPlugin(null, new XxHashGenerator()).toString());
+	}
+
+	@Test
+	public void testStoresHashesAfterCrawling() {
+		FingerprintPlugin plugin = new FingerprintPlugin(null, new XxHashGenerator());
+		CrawlerContext context = mockContext();
+		plugin.onNewState(context, mockState("index", "<html>a</html>", "a"));
+		plugin.onNewState(context, mockState("state1", "<html>b</html>", "a"));
+		plugin.postCrawling(mock(CrawlSession.class), ExitStatus.EXHAUSTED);
+
+		Map<String, StateFingerprint> fingerprints = StateFingerprint.load(testDir);
+		assertEquals(2, fingerprints.size());
+		assertEquals(DomStore.keyOf(new XxHashGenerator(), "a"), fingerprints.get("index")
+		        .getContentHash());
+		assertEquals(fingerprints.get("index"), fingerprints.get("state1"));
+	}
+
+	@Test
+	public void testFingerprintsTheDom() {
+		NearDuplicateDetection detection = mock(NearDuplicateDetection.class);
+		Fingerprint fingerprint = mock(Fingerprint.class);
+		when(detection.generateFingerprint(anyString())).thenReturn(fingerprint);
+		FingerprintPlugin plugin = new FingerprintPlugin(detection, new XxHashGenerator());
+		plugin.onNewState(mockContext(), mockState("index", "<html>a</html>", "a"));
+
+		verify(detection).generateFingerprint("<html>a</html>");
+	}
+}
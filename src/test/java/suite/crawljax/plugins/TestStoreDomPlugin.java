@@ -3,22 +3,24 @@ package suite.crawljax.plugins;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Test;
 
 import lombok.extern.slf4j.Slf4j;
+import suite.distributed.results.DomStore;
 
+import com.crawljax.core.CrawlSession;
 import com.crawljax.core.CrawlerContext;
+import com.crawljax.core.ExitNotifier.ExitStatus;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
 import com.crawljax.core.plugin.OnNewStatePlugin;
 import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.duplicatedetection.XxHashGenerator;
 
 @Slf4j
 public class TestStoreDomPlugin {
@@ -41,7 +43,7 @@ public class TestStoreDomPlugin {
 
 	@Test
 	public void testStoreDomPluginOnNewState() {
-		OnNewStatePlugin domPlugin = new StoreDomPlugin();
+		StoreDomPlugin domPlugin = new StoreDomPlugin();
 
 		// Mock the context and its methods that are called in the onNewState method
 		CrawlerContext context = mock(CrawlerContext.class);
@@ -57,23 +59,42 @@ public class TestStoreDomPlugin {
 
 		// Call the method we want to test
 		domPlugin.onNewState(context, newState);
+		domPlugin.postCrawling(mock(CrawlSession.class), ExitStatus.EXHAUSTED);
 
-		// Make sure the strippedDom is written correctly to the file
+		// Make sure the strippedDom is written correctly to the store
 		File strippedDom = testDir.listFiles()[0];
-		StringBuffer fileContent = new StringBuffer((int) strippedDom.length());
-		for (File file : strippedDom.listFiles()) {
-			if (file.getName().equals("TestState.html")) {
-				try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-					String line = br.readLine();
-					while (line != null) {
-						fileContent.append(line);
-						line = br.readLine();
-					}
-				} catch (IOException e) {
-					fail(e.getMessage());
-				}
-			}
+		try {
+			String key = DomStore.loadIndex(strippedDom).get("TestState");
+			assertEquals("This represents the StrippedDom", DomStore.read(strippedDom, key));
+		} catch (IOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testStoreDomPluginWritesAllStatesOnPostCrawling() throws IOException {
+		StoreDomPlugin domPlugin = new StoreDomPlugin(null, new XxHashGenerator(), 1);
+		CrawlerContext context = mock(CrawlerContext.class);
+		CrawljaxConfiguration config = mock(CrawljaxConfiguration.class);
+		when(context.getConfig()).thenReturn(config);
+		File testDir = new File("TestDir");
+		when(config.getOutputDir()).thenReturn(testDir);
+
+		for (int i = 0; i < 10; i++) {
+			StateVertex state = mock(StateVertex.class);
+			when(state.getName()).thenReturn("state" + i);
+			when(state.getStrippedDom()).thenReturn("dom" + (i % 2));
+			domPlugin.onNewState(context, state);
+		}
+		domPlugin.postCrawling(mock(CrawlSession.class), ExitStatus.EXHAUSTED);
+
+		File strippedDom = new File(testDir, "strippedDOM");
+		Map<String, String> index = DomStore.loadIndex(strippedDom);
+		assertEquals(10, index.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals("dom" + (i % 2), DomStore.read(strippedDom, index.get("state" + i)));
 		}
-		assertEquals("This represents the StrippedDom", fileContent.toString());
+		// equal doms are stored once, next to the index
+		assertEquals(3, strippedDom.listFiles().length);
 	}
 }
@@ -0,0 +1,33 @@
+package suite.crawljax.plugins;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+
+import suite.distributed.results.StateStreamer;
+
+import com.crawljax.core.CrawlerContext;
+import com.crawljax.core.state.StateVertex;
+
+public class TestStreamStatePlugin {
+
+	@Test
+	public void testStreamStatePluginToString() {
+		assertEquals("StreamState plugin",
+		        new StreamStatePlugin(mock(StateStreamer.class)).toString());
+	}
+
+	@Test
+	public void testOnNewStateSubmitsState() throws InterruptedException {
+		StateStreamer streamer = mock(StateStreamer.class);
+		StateVertex state = mock(StateVertex.class);
+		when(state.getName()).thenReturn("state1");
+		when(state.getDom()).thenReturn("<html>dom</html>");
+		when(state.getStrippedDom()).thenReturn("dom");
+
+		new StreamStatePlugin(streamer).onNewState(mock(CrawlerContext.class), state);
+
+		verify(streamer).submit("state1", "<html>dom</html>", "dom");
+	}
+}
@@ -0,0 +1,264 @@
+package suite.distributed;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestConnectionPool {
+
+	private final List<Connection> created = new ArrayList<Connection>();
+
+	private final ConnectionPool.ConnectionFactory factory = new ConnectionPool.ConnectionFactory() {
+		@Override
+		public Connection create() throws SQLException {
+			Connection connection = mock(Connection.class);
+			when(connection.getAutoCommit()).thenReturn(true);
+			when(connection.prepareStatement(anyString())).thenAnswer(
+			        new Answer<PreparedStatement>() {
+				        @Override
+				        public PreparedStatement answer(InvocationOnMock invocation) {
+					        return mock(PreparedStatement.class);
+				        }
+			        });
+			Statement statement = mock(Statement.class);
+			when(connection.createStatement()).thenReturn(statement);
+			created.add(connection);
+			return connection;
+		}
+	};
+
+	@Test
+	public void testReuseReturnedConnection() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 2, 60000, 0);
+		Connection first = pool.borrow();
+		first.close();
+		assertTrue(first.isClosed());
+		Connection second = pool.borrow();
+		assertFalse(second.isClosed());
+		second.createStatement();
+		assertEquals(1, created.size());
+		verify(created.get(0)).createStatement();
+		verify(created.get(0), never()).close();
+	}
+
+	@Test(expected = SQLException.class)
+	public void testReturnedConnectionCannotBeUsed() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 2, 60000, 0);
+		Connection connection = pool.borrow();
+		connection.close();
+		connection.createStatement();
+	}
+
+	@Test
+	public void testPoolIsBounded() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 2, 60000, 0);
+		pool.setBorrowTimeout(50);
+		pool.borrow();
+		pool.borrow();
+		try {
+			pool.borrow();
+			fail("Borrowed more connections than the size of the pool");
+		} catch (SQLException e) {
+			assertEquals(2, pool.size());
+			assertEquals(2, created.size());
+		}
+	}
+
+	@Test
+	public void testWaitForReturnedConnection() throws Exception {
+		ConnectionPool pool = new ConnectionPool(factory, 1, 60000, 0);
+		final Connection borrowed = pool.borrow();
+		Thread returner = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+					borrowed.close();
+				} catch (InterruptedException | SQLException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		returner.start();
+		Connection connection = pool.borrow();
+		assertFalse(connection.isClosed());
+		assertEquals(1, created.size());
+		returner.join();
+	}
+
+	@Test
+	public void testExpiredConnectionIsClosed() throws Exception {
+		ConnectionPool pool = new ConnectionPool(factory, 2, 60000, 1);
+		pool.borrow().close();
+		Thread.sleep(5);
+		pool.borrow();
+		assertEquals(2, created.size());
+		verify(created.get(0)).close();
+		assertEquals(1, pool.size());
+	}
+
+	@Test
+	public void testInvalidConnectionIsReplaced() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 2, 0, 0);
+		pool.borrow().close();
+		when(created.get(0).isValid(anyInt())).thenReturn(false);
+		pool.borrow();
+		assertEquals(2, created.size());
+		verify(created.get(0)).close();
+	}
+
+	@Test
+	public void testValidConnectionIsReused() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 2, 0, 0);
+		pool.borrow().close();
+		when(created.get(0).isValid(anyInt())).thenReturn(true);
+		pool.borrow();
+		assertEquals(1, created.size());
+	}
+
+	@Test
+	public void testUncommittedWorkIsRolledBack() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 2, 60000, 0);
+		Connection connection = pool.borrow();
+		when(created.get(0).getAutoCommit()).thenReturn(false);
+		connection.close();
+		verify(created.get(0)).rollback();
+		verify(created.get(0)).setAutoCommit(true);
+	}
+
+	@Test
+	public void testReclaimFromDeadThread() throws Exception {
+		final ConnectionPool pool = new ConnectionPool(factory, 1, 60000, 0);
+		pool.setBorrowTimeout(50);
+		final Connection[] abandoned = new Connection[1];
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					abandoned[0] = pool.borrow();
+				} catch (SQLException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		thread.start();
+		thread.join();
+		Connection connection = pool.borrow();
+		assertFalse(connection.isClosed());
+		assertTrue(abandoned[0].isClosed());
+		assertEquals(1, created.size());
+	}
+
+	@Test
+	public void testCloseClosesIdleConnections() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 2, 60000, 0);
+		Connection borrowed = pool.borrow();
+		pool.borrow().close();
+		pool.close();
+		verify(created.get(1)).close();
+		verify(created.get(0), never()).close();
+		borrowed.close();
+		verify(created.get(0)).close();
+	}
+
+	@Test
+	public void testManagerBorrowsPerThread() throws Exception {
+		ConnectionPool pool = new ConnectionPool(factory, 2, 60000, 0);
+		final ConnectionManager connMgr = new PooledConnectionManager(pool, "jdbc:mysql://");
+		Connection conn = connMgr.getConnection();
+		assertSame(conn, connMgr.getConnection());
+		final Connection[] other = new Connection[1];
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				other[0] = connMgr.getConnection();
+				connMgr.closeConnection();
+			}
+		});
+		thread.start();
+		thread.join();
+		assertNotSame(conn, other[0]);
+		assertTrue(other[0].isClosed());
+		assertFalse(conn.isClosed());
+		assertEquals(2, created.size());
+		assertEquals(1, pool.getIdleCount());
+
+		connMgr.closeConnection();
+		assertTrue(conn.isClosed());
+		assertEquals(2, pool.getIdleCount());
+	}
+
+	@Test
+	public void testPreparedStatementIsCached() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 1, 60000, 0);
+		Connection connection = pool.borrow();
+		PreparedStatement first = connection.prepareStatement("SELECT 1");
+		first.setInt(1, 42);
+		first.executeQuery();
+		first.close();
+		connection.close();
+
+		connection = pool.borrow();
+		PreparedStatement second = connection.prepareStatement("SELECT 1");
+		second.executeQuery();
+		assertSame(connection, second.getConnection());
+		verify(created.get(0), times(1)).prepareStatement("SELECT 1");
+		assertEquals(1, pool.getStatementCacheHits());
+		assertEquals(1, pool.getStatementCacheMisses());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedStatementIsClosed() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 1, 60000, 0);
+		pool.setStatementCacheSize(1);
+		Connection connection = pool.borrow();
+		PreparedStatement first = connection.prepareStatement("SELECT 1");
+		first.executeQuery();
+		connection.prepareStatement("SELECT 2");
+		first.close();
+		// closing the handle keeps the statement prepared, eviction closes it
+		assertEquals(2, pool.getStatementCacheMisses());
+		connection.prepareStatement("SELECT 1");
+		assertEquals(3, pool.getStatementCacheMisses());
+	}
+
+	@Test(expected = SQLException.class)
+	public void testCachedStatementCannotBeUsedAfterReturn() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 1, 60000, 0);
+		Connection connection = pool.borrow();
+		PreparedStatement statement = connection.prepareStatement("SELECT 1");
+		connection.close();
+		assertTrue(statement.isClosed());
+		statement.executeQuery();
+	}
+
+	@Test
+	public void testOtherStatementsAreClosedOnReturn() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 1, 60000, 0);
+		Connection connection = pool.borrow();
+		Statement statement = connection.createStatement();
+		connection.close();
+		verify(statement).close();
+	}
+
+	@Test
+	public void testStatementCacheDisabled() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(factory, 1, 60000, 0);
+		pool.setStatementCacheSize(0);
+		Connection connection = pool.borrow();
+		connection.prepareStatement("SELECT 1");
+		connection.prepareStatement("SELECT 1");
+		verify(created.get(0), times(2)).prepareStatement("SELECT 1");
+		assertEquals(0, pool.getStatementCacheHits());
+	}
+}
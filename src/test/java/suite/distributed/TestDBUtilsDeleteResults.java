@@ -61,7 +61,7 @@ public class TestDBUtilsDeleteResults {
 	}
 
 	public void deleteAndCheck(String sql, int expected) throws SQLException {
-		DatabaseUtils dbutils = new DatabaseUtils(con, null, null, null);
+		DatabaseUtils dbutils = new DatabaseUtils(con, null, null);
 
 		boolean deleted = dbutils.deleteAllResultsById(-2);
 		assertTrue(deleted);
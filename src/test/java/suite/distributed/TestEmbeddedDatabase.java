@@ -0,0 +1,187 @@
+package suite.distributed;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import suite.distributed.configuration.ConfigurationDaoImpl;
+import suite.distributed.results.ResultProcessorException;
+import suite.distributed.results.ResultUpload;
+import suite.distributed.results.WebsiteResult;
+import suite.distributed.workload.RetryPolicy;
+import suite.distributed.workload.WorkTask;
+import suite.distributed.workload.WorkloadDaoImpl;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+
+public class TestEmbeddedDatabase {
+
+	private static int databases = 0;
+
+	private ConnectionPool pool;
+	private PooledConnectionManager connMgr;
+
+	@Before
+	public void setup() {
+		EmbeddedDatabase.loadDriver();
+		final String url = EmbeddedDatabase.memoryUrl("test" + databases++);
+		pool = new ConnectionPool(new ConnectionPool.ConnectionFactory() {
+			@Override
+			public Connection create() throws SQLException {
+				return DriverManager.getConnection(url, EmbeddedDatabase.USERNAME,
+				        EmbeddedDatabase.PASSWORD);
+			}
+		}, 2, 60000, 0);
+		connMgr = new PooledConnectionManager(pool, url);
+		connMgr.createSchema();
+	}
+
+	@After
+	public void tearDown() {
+		pool.close();
+	}
+
+	@Test
+	public void testSchemaIsCreated() throws SQLException {
+		connMgr.createSchema();
+		Connection conn = connMgr.getConnection();
+		for (String table : Arrays.asList("workload", "configuration", "WebsiteResults",
+		        "DomResults", "benchmarkSite")) {
+			ResultSet tables = conn.getMetaData().getTables(null, null, table, null);
+			assertTrue(table, tables.next());
+		}
+		connMgr.closeConnection();
+	}
+
+	@Test
+	public void testWorkload() throws MalformedURLException {
+		WorkloadDaoImpl workload = new WorkloadDaoImpl(connMgr, "test");
+		assertEquals(2, workload.submitWork(Arrays.asList(new URL("http://demo.crawljax.com"),
+		        new URL("http://example.com"))));
+		List<WorkTask> claimed = workload.retrieveWork(2);
+		assertEquals(2, claimed.size());
+		assertTrue(workload.checkoutWork(claimed.get(0)));
+		assertTrue(workload.failWork(claimed.get(1).getId(), "MOCK ERROR", new RetryPolicy()));
+		assertEquals(2, workload.listWork(0, 10).size());
+		assertTrue(workload.getWorkloadVersion() > 0);
+	}
+
+	@Test
+	public void testRetrieveWorkReclaimsClaimsWithoutLease() throws MalformedURLException,
+	        SQLException {
+		WorkloadDaoImpl workload = new WorkloadDaoImpl(connMgr, "test");
+		workload.submitWork(Arrays.asList(new URL("http://example.com")));
+		Connection conn = connMgr.getConnection();
+		conn.createStatement().executeUpdate(
+		        "UPDATE workload SET worker='old-worker', leaseExpiry=NULL");
+		connMgr.closeConnection();
+		assertEquals(1, workload.retrieveWork(1).size());
+	}
+
+	@Test
+	public void testFailWorkQuarantinesAfterTheLastAttempt() throws MalformedURLException,
+	        SQLException {
+		WorkloadDaoImpl workload = new WorkloadDaoImpl(connMgr, "test");
+		workload.submitWork(Arrays.asList(new URL("http://example.com")));
+		int id = workload.listWork(0, 1).get(0).getId();
+		RetryPolicy policy = new RetryPolicy(2);
+		assertTrue(workload.failWork(id, "MOCK ERROR", policy));
+		assertArrayEquals(new int[] { 1, 0 }, attemptsAndQuarantined(id));
+		assertTrue(workload.failWork(id, "MOCK ERROR", policy));
+		assertArrayEquals(new int[] { 2, 1 }, attemptsAndQuarantined(id));
+	}
+
+	private int[] attemptsAndQuarantined(int id) throws SQLException {
+		Connection conn = connMgr.getConnection();
+		ResultSet res =
+		        conn.createStatement().executeQuery(
+		                "SELECT attempts, quarantined FROM workload WHERE id = " + id);
+		assertTrue(res.next());
+		int[] values = { res.getInt(1), res.getInt(2) };
+		connMgr.closeConnection();
+		return values;
+	}
+
+	@Test
+	public void testConfiguration() {
+		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
+		config.updateConfiguration("common", "depth", "3");
+		config.updateConfiguration("common", "depth", "4");
+		assertEquals("4", config.getConfiguration("common").get("depth"));
+		assertTrue(config.getConfigurationVersion(Arrays.asList("common")) > 0);
+		config.deleteConfiguration("common");
+		assertTrue(config.getConfiguration("common").isEmpty());
+	}
+
+	@Test
+	public void testWebsiteResultsThroughOrm() throws SQLException {
+		Dao<WebsiteResult, String> dao =
+		        DaoManager.createDao(connMgr.getConnectionORM(), WebsiteResult.class);
+		assertTrue(dao.queryForAll().isEmpty());
+	}
+
+	@Test
+	public void testResultUploadRoundTrip() throws ResultProcessorException, SQLException,
+	        IOException {
+		ResultUpload upload = new ResultUpload(connMgr);
+		int id = upload.openWebsiteResult(7);
+		assertEquals(id, upload.openWebsiteResult(7));
+
+		upload.uploadDom(id, "<html><body>dom</body></html>", "index");
+		upload.uploadStrippedDom(id, "<body>dom</body>", "index");
+		upload.copyStrippedDom(id, "index", "state1");
+
+		byte[] png = { (byte) 0x89, 'P', 'N', 'G', 0, 1, 2 };
+		File screenshot = File.createTempFile("screenshot", ".png");
+		try {
+			try (FileOutputStream out = new FileOutputStream(screenshot)) {
+				out.write(png);
+			}
+			try (FileInputStream in = new FileInputStream(screenshot)) {
+				upload.uploadScreenshot(id, in, "index");
+			}
+		} finally {
+			screenshot.delete();
+		}
+		upload.finishWebsiteResult(id, 1000, 2);
+
+		Connection conn = connMgr.getConnection();
+		PreparedStatement select = conn.prepareStatement("SELECT stateId, dom, strippedDom, "
+		        + "screenshot FROM DomResults WHERE websiteResult_id = ? ORDER BY stateId");
+		select.setInt(1, id);
+		ResultSet states = select.executeQuery();
+		assertTrue(states.next());
+		assertEquals("index", states.getString(1));
+		assertEquals("<html><body>dom</body></html>", states.getString(2));
+		assertEquals("<body>dom</body>", states.getString(3));
+		assertArrayEquals(png, states.getBytes(4));
+		assertTrue(states.next());
+		assertEquals("state1", states.getString(1));
+		assertEquals("<body>dom</body>", states.getString(3));
+		assertFalse(states.next());
+
+		ResultSet website = conn.createStatement().executeQuery(
+		        "SELECT workTask_id, browsers FROM WebsiteResults WHERE id = " + id);
+		assertTrue(website.next());
+		assertEquals(7, website.getInt(1));
+		assertEquals(2, website.getInt(2));
+		connMgr.closeConnection();
+	}
+}
@@ -0,0 +1,68 @@
+package suite.distributed;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import org.junit.Test;
+
+public class TestSqlStatement {
+
+	@Test
+	public void testPlaceholders() {
+		assertEquals("", SqlStatement.placeholders(0));
+		assertEquals("?", SqlStatement.placeholders(1));
+		assertEquals("?,?,?", SqlStatement.placeholders(3));
+	}
+
+	@Test
+	public void testParametersAreBound() throws SQLException {
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		new SqlStatement("test.bind", "UPDATE t SET a = ?, b = ?, c = ?, d = ? WHERE e = ?")
+		        .executeUpdate(conn, "a", 1, 2L, null, 1.5f);
+		verify(statement).setString(1, "a");
+		verify(statement).setInt(2, 1);
+		verify(statement).setLong(3, 2L);
+		verify(statement).setNull(4, Types.NULL);
+		verify(statement).setFloat(5, 1.5f);
+		verify(statement).executeUpdate();
+	}
+
+	@Test
+	public void testGeneratedKeysAreRequested() throws SQLException {
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		when(conn.prepareStatement(anyString(), anyInt())).thenReturn(statement);
+		new SqlStatement("test.keys", "INSERT INTO t (a) VALUES (?)", true).prepare(conn, "a");
+		verify(conn).prepareStatement("INSERT INTO t (a) VALUES (?)",
+		        Statement.RETURN_GENERATED_KEYS);
+	}
+
+	@Test
+	public void testMetricsAreSharedByName() throws SQLException {
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(1).thenThrow(new SQLException("failed"));
+		SqlStatement first = new SqlStatement("test.metrics", "DELETE FROM t WHERE a = ?");
+		SqlStatement second = new SqlStatement("test.metrics", "DELETE FROM t WHERE a = ?");
+		first.executeUpdate(conn, 1);
+		try {
+			second.executeUpdate(conn, 2);
+			fail("Expected SQLException");
+		} catch (SQLException e) {
+			// recorded as failure
+		}
+		assertSame(first.getMetrics(), second.getMetrics());
+		assertEquals(2, first.getMetrics().getExecutions());
+		assertEquals(1, first.getMetrics().getFailures());
+		assertTrue(SqlStatement.getAllMetrics().containsKey("test.metrics"));
+	}
+}
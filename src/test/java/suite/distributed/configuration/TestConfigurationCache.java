@@ -0,0 +1,83 @@
+package suite.distributed.configuration;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TestConfigurationCache {
+
+	@Test
+	public void testSections() {
+		assertEquals(Arrays.asList("common", "a.com"), ConfigurationCache.sections("a.com", null));
+		assertEquals(Arrays.asList("common", "a.com"), ConfigurationCache.sections("a.com", ""));
+		assertEquals(Arrays.asList("common", "a.com", "test"),
+		        ConfigurationCache.sections("a.com", "test"));
+	}
+
+	@Test
+	public void testResolveIsCached() {
+		ConfigurationDao config = mock(ConfigurationDao.class);
+		Map<String, String> settings = new HashMap<String, String>();
+		settings.put("depth", "2");
+		when(config.getConfigurationVersion(anyList())).thenReturn(1L);
+		when(config.getConfiguration(anyList())).thenReturn(settings);
+
+		ConfigurationCache cache = new ConfigurationCache(config);
+		ResolvedConfiguration first = cache.resolve("a.com", "test");
+		assertSame(first, cache.resolve("a.com", "test"));
+		assertEquals(settings, first.getSettings());
+		verify(config, times(1)).getConfiguration(anyList());
+
+		cache.resolve("b.com", "test");
+		verify(config, times(2)).getConfiguration(anyList());
+	}
+
+	@Test
+	public void testResolveAfterChange() {
+		ConfigurationDao config = mock(ConfigurationDao.class);
+		when(config.getConfigurationVersion(anyList())).thenReturn(1L, 2L);
+		when(config.getConfiguration(anyList())).thenReturn(
+		        new HashMap<String, String>());
+
+		ConfigurationCache cache = new ConfigurationCache(config);
+		ResolvedConfiguration first = cache.resolve("a.com", null);
+		ResolvedConfiguration second = cache.resolve("a.com", null);
+		assertNotSame(first, second);
+		assertEquals(2, second.getVersion());
+	}
+
+	@Test
+	public void testUnknownVersionIsNotCached() {
+		ConfigurationDao config = mock(ConfigurationDao.class);
+		when(config.getConfigurationVersion(anyList())).thenReturn(-1L);
+		when(config.getConfiguration(anyList())).thenReturn(
+		        new HashMap<String, String>());
+
+		ConfigurationCache cache = new ConfigurationCache(config);
+		cache.resolve("a.com", null);
+		cache.resolve("a.com", null);
+		verify(config, times(2)).getConfiguration(anyList());
+	}
+
+	@Test
+	public void testTypedValues() {
+		Map<String, String> settings = new HashMap<String, String>();
+		settings.put("depth", " 3");
+		settings.put("threshold", "0.5");
+		ResolvedConfiguration configuration = new ResolvedConfiguration(1, settings);
+		assertEquals(Integer.valueOf(3), configuration.getInt("depth"));
+		assertEquals(Long.valueOf(3), configuration.getLong("depth"));
+		assertEquals(Double.valueOf(0.5), configuration.getDouble("threshold"));
+		assertNull(configuration.getInt("timeout"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSettingsAreReadOnly() {
+		new ResolvedConfiguration(1, new HashMap<String, String>()).getSettings().put("a", "b");
+	}
+}
@@ -3,6 +3,7 @@ package suite.distributed.configuration;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -14,7 +15,6 @@ import org.junit.Test;
 import suite.distributed.ConnectionManager;
 
 import com.mysql.jdbc.Connection;
-import com.mysql.jdbc.Statement;
 
 public class TestConfigurationDaoImplTest {
 
@@ -23,11 +23,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 		// Run test
 		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
@@ -47,11 +47,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 		// Run test
 		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
@@ -71,11 +71,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		// result mock
 		when(resultSet.next()).thenReturn(false);
 
@@ -92,11 +92,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		// result mock
 		when(resultSet.next()).thenReturn(false);
 
@@ -111,11 +111,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 		// Run test
 		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
@@ -134,11 +134,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 		// result mock
 
@@ -159,11 +159,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 
 		// Run test
@@ -184,17 +184,19 @@ public class TestConfigurationDaoImplTest {
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
 		ResultSet resultSet = mock(ResultSet.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(1);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(1);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 
 		// Run test
 		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
 		config.updateConfiguration("section", "key", "value");
-		verify(statement).executeUpdate(anyString());
+		// the update and the version
+		verify(statement, times(2)).executeUpdate();
+		verify(conn, never()).prepareStatement(startsWith("INSERT INTO `configuration` ("));
 	}
 
 	@Test
@@ -203,17 +205,19 @@ public class TestConfigurationDaoImplTest {
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
 		ResultSet resultSet = mock(ResultSet.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(0, 1);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(0, 1);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 
 		// Run test
 		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
 		config.updateConfiguration("section", "key", "value");
-		verify(statement, times(2)).executeUpdate(anyString());
+		// the update, the insert and the version
+		verify(statement, times(3)).executeUpdate();
+		verify(conn).prepareStatement(startsWith("INSERT INTO `configuration` ("));
 	}
 
 	@Test
@@ -222,17 +226,18 @@ public class TestConfigurationDaoImplTest {
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
 		ResultSet resultSet = mock(ResultSet.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(1);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(1);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 
 		// Run test
 		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
 		config.deleteConfiguration("section");
-		verify(statement).executeUpdate(anyString());
+		verify(statement, times(2)).executeUpdate();
+		verify(statement, times(2)).setString(1, "section");
 	}
 
 	@Test
@@ -241,26 +246,27 @@ public class TestConfigurationDaoImplTest {
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
 		ResultSet resultSet = mock(ResultSet.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(1);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(1);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 
 		// Run test
 		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
 		config.deleteConfiguration("section", "key");
-		verify(statement).executeUpdate(anyString());
+		verify(statement, times(2)).executeUpdate();
+		verify(statement).setString(2, "key");
 	}
 
 	private void getMockImportances(ConnectionManager connMgr) throws SQLException {
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 	}
 
@@ -269,14 +275,14 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 
-		when(statement.executeUpdate(anyString())).thenReturn(1);
+		when(statement.executeUpdate()).thenReturn(1);
 
 		// Run test
 		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
@@ -289,17 +295,17 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 
 		// Run test
 		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
 
-		when(statement.executeUpdate(anyString())).thenThrow(
+		when(statement.executeUpdate()).thenThrow(
 		        new SQLException("MOCK SQL EXCEPTION #NOSTRESS"));
 		config.setImportance("DEFCON", 42);
 	}
@@ -310,11 +316,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 
 		// Run test
@@ -322,7 +328,7 @@ public class TestConfigurationDaoImplTest {
 		List<String> sections = new ArrayList<String>();
 		sections.add("something");
 
-		when(statement.executeQuery(anyString())).thenThrow(
+		when(statement.executeQuery()).thenThrow(
 		        new SQLException("MOCK SQL EXCEPTION #NOSTRESS"));
 		assertEquals(config.getConfiguration(sections).size(), 0);
 		assertEquals(config.getConfiguration().size(), 0);
@@ -334,11 +340,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 
 		// Run test
@@ -346,7 +352,7 @@ public class TestConfigurationDaoImplTest {
 		List<String> sections = new ArrayList<String>();
 		sections.add("something");
 
-		when(statement.executeUpdate(anyString())).thenThrow(
+		when(statement.executeUpdate()).thenThrow(
 		        new SQLException("MOCK SQL EXCEPTION #NOSTRESS"));
 		config.updateConfiguration("na", "na", "na");
 	}
@@ -357,11 +363,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(false);
 
 		// Run test
@@ -369,7 +375,7 @@ public class TestConfigurationDaoImplTest {
 		List<String> sections = new ArrayList<String>();
 		sections.add("something");
 
-		when(statement.executeUpdate(anyString())).thenThrow(
+		when(statement.executeUpdate()).thenThrow(
 		        new SQLException("MOCK SQL EXCEPTION #NOSTRESS"));
 		config.deleteConfiguration("nooo", "oooo");
 		config.deleteConfiguration("another one");
@@ -380,11 +386,11 @@ public class TestConfigurationDaoImplTest {
 		// Setup mocked Database
 		ConnectionManager connMgr = mock(ConnectionManager.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet resultSet = mock(ResultSet.class);
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
 		when(resultSet.next()).thenReturn(true, false);
 		when(resultSet.getString(anyString())).thenReturn("mock section");
 		when(resultSet.getInt(anyInt())).thenReturn(42);
@@ -393,9 +399,68 @@ public class TestConfigurationDaoImplTest {
 		new ConfigurationDaoImpl(connMgr);
 
 		// Run again with exception
-		when(statement.executeQuery(anyString())).thenThrow(
+		when(statement.executeQuery()).thenThrow(
 		        new SQLException("MOCK SQL EXCEPTION"));
 		new ConfigurationDaoImpl(connMgr);
 	}
 
+
+	@Test
+	public void testGetConfigurationVersion() throws SQLException {
+		// Setup mocked Database
+		ConnectionManager connMgr = mock(ConnectionManager.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		ResultSet resultSet = mock(ResultSet.class);
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
+		when(resultSet.next()).thenReturn(false);
+		// Run test
+		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
+		// result mock
+		when(resultSet.next()).thenReturn(true);
+		when(resultSet.getLong("version")).thenReturn(7L);
+		List<String> sections = new ArrayList<String>();
+		sections.add("common");
+		sections.add("something");
+		assertEquals(7, config.getConfigurationVersion(sections));
+		verify(conn).prepareStatement(contains("IN (?,?)"));
+		verify(statement).setString(1, "common");
+		verify(statement).setString(2, "something");
+	}
+
+	@Test
+	public void testGetConfigurationVersionSQLException() throws SQLException {
+		// Setup mocked Database
+		ConnectionManager connMgr = mock(ConnectionManager.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenThrow(new SQLException());
+		// Run test
+		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
+		List<String> sections = new ArrayList<String>();
+		sections.add("something");
+		assertEquals(-1, config.getConfigurationVersion(sections));
+	}
+
+	@Test
+	public void testUpdateConfigurationIncrementsVersion() throws SQLException {
+		// Setup mocked Database
+		ConnectionManager connMgr = mock(ConnectionManager.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		ResultSet resultSet = mock(ResultSet.class);
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(resultSet);
+		when(statement.executeUpdate()).thenReturn(1);
+		when(resultSet.next()).thenReturn(false);
+		// Run test
+		ConfigurationDaoImpl config = new ConfigurationDaoImpl(connMgr);
+		config.updateConfiguration("something", "depth", "42");
+		verify(conn).prepareStatement(contains("INSERT INTO `configurationVersion`"));
+	}
 }
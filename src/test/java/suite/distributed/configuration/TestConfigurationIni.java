@@ -116,4 +116,15 @@ public class TestConfigurationIni {
 		assertFalse(settings.containsKey("key3b"));
 		assertTrue(settings.containsKey("key3"));
 	}
+
+	@Test
+	public void testConfigurationVersionChangesOnUpdate() {
+		ConfigurationDao config = new ConfigurationIni(file);
+		List<String> sections = new ArrayList<>(1);
+		sections.add("section1");
+		long version = config.getConfigurationVersion(sections);
+		assertEquals(version, config.getConfigurationVersion(sections));
+		config.updateConfiguration("section1", "key1", "value1");
+		assertTrue(config.getConfigurationVersion(sections) > version);
+	}
 }
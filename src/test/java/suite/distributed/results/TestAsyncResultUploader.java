@@ -0,0 +1,94 @@
+package suite.distributed.results;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import suite.distributed.workload.RetryPolicy;
+import suite.distributed.workload.WorkTask;
+import suite.distributed.workload.WorkloadDao;
+
+@Slf4j
+public class TestAsyncResultUploader {
+
+	private File outputDir = new File("TestDir/crawl-1");
+
+	@Before
+	public void makeTestDir() {
+		outputDir.mkdirs();
+	}
+
+	@After
+	public void removeTestDir() {
+		try {
+			FileUtils.deleteDirectory(new File("TestDir"));
+			log.debug("Test directory removed.");
+		} catch (IOException e) {
+			log.error("IOException while removing the TestDir directory: " + e.getMessage());
+		}
+	}
+
+	@Test
+	public void testUploadCheckoutsWork() throws InterruptedException {
+		ResultProcessor resultProcessor = mock(ResultProcessor.class);
+		WorkloadDao workload = mock(WorkloadDao.class);
+		AsyncResultUploader.UploadListener listener =
+		        mock(AsyncResultUploader.UploadListener.class);
+		WorkTask task = new WorkTask(1, "http://demo.crawljax.com");
+
+		AsyncResultUploader uploader = new AsyncResultUploader(resultProcessor, workload, 2);
+		uploader.setListener(listener);
+		uploader.start();
+		uploader.submit(task, outputDir, 42);
+		uploader.close();
+
+		verify(resultProcessor).uploadResults(1, outputDir, 42);
+		verify(workload).checkoutWork(task);
+		verify(listener).uploaded(task, true);
+		assertFalse(new File(outputDir, AsyncResultUploader.PENDING_FILE).exists());
+	}
+
+	@Test
+	public void testFailedUploadFailsWork() throws InterruptedException {
+		ResultProcessor resultProcessor = mock(ResultProcessor.class);
+		WorkloadDao workload = mock(WorkloadDao.class);
+		doThrow(new ResultProcessorException("MOCK UPLOAD ERROR")).when(resultProcessor)
+		        .uploadResults(anyInt(), any(File.class), anyLong());
+		WorkTask task = new WorkTask(1, "http://demo.crawljax.com");
+
+		AsyncResultUploader uploader = new AsyncResultUploader(resultProcessor, workload, 0);
+		uploader.submit(task, outputDir, 42);
+
+		verify(workload).failWork(eq(1), anyString(), any(RetryPolicy.class));
+		verify(workload, never()).checkoutWork(task);
+	}
+
+	@Test
+	public void testRecoverPendingUploads() throws InterruptedException {
+		ResultProcessor resultProcessor = mock(ResultProcessor.class);
+		WorkloadDao workload = mock(WorkloadDao.class);
+		WorkTask task = new WorkTask(7, "http://demo.crawljax.com");
+
+		// Leave an upload pending by never starting the previous uploader
+		AsyncResultUploader previous = new AsyncResultUploader(resultProcessor, workload, 1);
+		previous.submit(task, outputDir, 42);
+		assertTrue(new File(outputDir, AsyncResultUploader.PENDING_FILE).exists());
+
+		AsyncResultUploader uploader = new AsyncResultUploader(resultProcessor, workload, 0);
+		List<WorkTask> recovered = uploader.recover(new File("TestDir"));
+		assertEquals(1, recovered.size());
+		assertEquals(task, recovered.get(0));
+		verify(resultProcessor).uploadResults(7, outputDir, 42);
+		verify(workload).checkoutWork(task);
+	}
+}
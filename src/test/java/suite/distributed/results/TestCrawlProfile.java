@@ -0,0 +1,48 @@
+package suite.distributed.results;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestCrawlProfile {
+
+	private static final File TEST_DIR = new File("TestDir");
+
+	@After
+	public void removeTestDir() throws IOException {
+		FileUtils.deleteDirectory(TEST_DIR);
+	}
+
+	@Test
+	public void testStoreAndLoad() {
+		CrawlProfile profile = new CrawlProfile();
+		profile.setConfigurationTime(1);
+		profile.addBrowserStartNanos(2000000);
+		profile.setCrawlTime(3);
+		profile.addNearDuplicateDetectionNanos(4000000);
+		profile.addDomWriteNanos(5000000);
+		profile.setCpuTime(6);
+		profile.setPeakHeap(7);
+		profile.store(TEST_DIR);
+		assertEquals(profile, CrawlProfile.load(TEST_DIR));
+	}
+
+	@Test
+	public void testLoadMissing() {
+		assertNull(CrawlProfile.load(TEST_DIR));
+	}
+
+	@Test
+	public void testShortPhasesAccumulate() {
+		CrawlProfile profile = new CrawlProfile();
+		for (int i = 0; i < 10; i++) {
+			profile.addNearDuplicateDetectionNanos(300000);
+		}
+		assertEquals(3, profile.getNearDuplicateDetectionTime());
+	}
+}
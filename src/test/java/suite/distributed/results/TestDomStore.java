@@ -0,0 +1,89 @@
+package suite.distributed.results;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.crawljax.core.state.duplicatedetection.HashGenerator;
+import com.crawljax.core.state.duplicatedetection.XxHashGenerator;
+
+public class TestDomStore {
+
+	private final File dir = new File("TestDir");
+
+	@Before
+	public void makeTestDir() {
+		dir.mkdir();
+	}
+
+	@After
+	public void removeTestDir() throws IOException {
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@Test
+	public void testEqualDomsAreStoredOnce() throws IOException {
+		DomStore store = new DomStore(dir, new XxHashGenerator());
+		assertTrue(store.put("index", "<html>a</html>"));
+		assertFalse(store.put("state1", "<html>a</html>"));
+		assertTrue(store.put("state2", "<html>b</html>"));
+		store.close();
+
+		assertEquals(2, store.getStoredCount());
+		Map<String, String> index = DomStore.loadIndex(dir);
+		assertEquals(3, index.size());
+		assertEquals(index.get("index"), index.get("state1"));
+		assertFalse(index.get("index").equals(index.get("state2")));
+		assertEquals("<html>b</html>", DomStore.read(dir, index.get("state2")));
+	}
+
+	@Test
+	public void testCollidingDomsAreStoredSeparately() throws IOException {
+		HashGenerator hasher = mock(HashGenerator.class);
+		when(hasher.generateHash(anyString())).thenReturn(42);
+		DomStore store = new DomStore(dir, hasher);
+		assertTrue(store.put("index", "<html>a</html>"));
+		assertTrue(store.put("state1", "<html>b</html>"));
+		assertFalse(store.put("state2", "<html>b</html>"));
+		store.close();
+
+		assertEquals(2, store.getStoredCount());
+		Map<String, String> index = DomStore.loadIndex(dir);
+		assertFalse(index.get("index").equals(index.get("state1")));
+		assertEquals(index.get("state1"), index.get("state2"));
+		assertEquals("<html>a</html>", DomStore.read(dir, index.get("index")));
+		assertEquals("<html>b</html>", DomStore.read(dir, index.get("state1")));
+		assertEquals(14, DomStore.sizeOf(index.get("state1")));
+	}
+
+	@Test
+	public void testReadsLargeDoms() throws IOException {
+		StringBuilder dom = new StringBuilder();
+		while (dom.length() < 200 * 1024) {
+			dom.append("<p>café 中文</p>");
+		}
+		DomStore store = new DomStore(dir, new XxHashGenerator());
+		store.put("state", dom.toString());
+		store.close();
+
+		String key = DomStore.loadIndex(dir).get("state");
+		assertEquals(dom.toString(), DomStore.read(dir, key));
+		assertEquals(dom.toString().getBytes("UTF-8").length, DomStore.sizeOf(key));
+		assertTrue(new File(dir, key + DomStore.OBJECT_EXTENSION).length() < dom.length());
+	}
+
+	@Test
+	public void testIsStore() throws IOException {
+		assertFalse(DomStore.isStore(dir));
+		new DomStore(dir, new XxHashGenerator()).close();
+		assertTrue(DomStore.isStore(dir));
+	}
+}
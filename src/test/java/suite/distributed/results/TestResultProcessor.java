@@ -14,6 +14,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -21,9 +23,12 @@ import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import suite.distributed.ConnectionManagerImpl;
 
+import com.crawljax.core.state.duplicatedetection.XxHashGenerator;
+
 @Slf4j
 public class TestResultProcessor {
 
@@ -60,6 +65,7 @@ public class TestResultProcessor {
 		ResultSet resultset = mock(ResultSet.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
 		when(conn.prepareStatement(anyString(), anyInt())).thenReturn(statement);
 		assertEquals(statement, conn.prepareStatement("SELECT * FROM workload", 5));
 
@@ -201,6 +207,7 @@ public class TestResultProcessor {
 		ResultSet resultset = mock(ResultSet.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenThrow(new SQLException("MOCK sql-exception"));
 		when(conn.prepareStatement(anyString(), anyInt())).thenThrow(
 		        new SQLException("MOCK sql-exception"));
 
@@ -215,4 +222,106 @@ public class TestResultProcessor {
 		ResultProcessorImpl resProc = new ResultProcessorImpl(upload);
 		resProc.uploadResults(1, new File("TestDir"), 10);
 	}
+
+	/**
+	 * Test if the profile of the crawl is uploaded along with the results
+	 */
+	@Test
+	public void testUploadProfile() {
+		makeFileStructure();
+		CrawlProfile stored = new CrawlProfile();
+		stored.setCrawlTime(42);
+		stored.store(new File("TestDir"));
+
+		ResultUpload upload = mock(ResultUpload.class);
+		when(upload.uploadJson(anyInt(), anyString(), anyLong(), anyInt())).thenReturn(5);
+		ResultProcessorImpl resProc = new ResultProcessorImpl(upload);
+		resProc.uploadResults(1, new File("TestDir"), 10);
+
+		ArgumentCaptor<CrawlProfile> profile = ArgumentCaptor.forClass(CrawlProfile.class);
+		verify(upload).uploadProfile(eq(5), profile.capture());
+		assertEquals(42, profile.getValue().getCrawlTime());
+		// two dom stubs and a screenshot of 4 bytes
+		assertEquals(new File("TestDir/doms/state1.html").length()
+		        + new File("TestDir/strippedDOM/state1.html").length() + 4, profile.getValue()
+		        .getBytesUploaded());
+	}
+
+	/**
+	 * Test if each distinct stripped dom in a DomStore is uploaded once and copied to the others
+	 */
+	@Test
+	public void testUploadStrippedDomStore() throws IOException {
+		makeJsonStub();
+		makeScreenshotStub();
+		makeDomStub("doms");
+		File strippedDoms = new File("TestDir/strippedDOM");
+		strippedDoms.mkdir();
+		DomStore store = new DomStore(strippedDoms, new XxHashGenerator());
+		store.put("state1", "Just a test");
+		store.put("state2", "Just a test");
+		store.put("state3", "Another test");
+		store.close();
+
+		ResultUpload upload = mock(ResultUpload.class);
+		ResultProcessorImpl resProc = new ResultProcessorImpl(upload);
+		resProc.uploadStrippedDom(5, new File("TestDir"));
+
+		verify(upload).uploadStrippedDom(eq(5), eq("Just a test"), anyString());
+		verify(upload).uploadStrippedDom(5, "Another test", "state3");
+		verify(upload, times(1)).copyStrippedDom(eq(5), anyString(), anyString());
+	}
+
+	/**
+	 * Test if a streamed crawl only finishes its website-result
+	 */
+	@Test
+	public void testUploadStreamedResults() throws IOException {
+		makeFileStructure();
+		FileUtils.writeStringToFile(new File("TestDir/" + StateStreamer.STREAM_FILE),
+		        "websiteResult=5\nstreamed=1\nfailed=0\n");
+
+		ResultUpload upload = mock(ResultUpload.class);
+		ResultProcessorImpl resProc = new ResultProcessorImpl(upload);
+		resProc.uploadResults(1, new File("TestDir"), 10);
+
+		verify(upload).finishWebsiteResult(5, 10, 1);
+		verify(upload, never()).uploadJson(anyInt(), anyString(), anyLong(), anyInt());
+		verify(upload, never()).uploadDom(anyInt(), anyString(), anyString());
+	}
+
+	/**
+	 * Test if the states are uploaded again when some of them failed to stream
+	 */
+	@Test
+	public void testUploadPartiallyStreamedResults() throws IOException {
+		makeFileStructure();
+		FileUtils.writeStringToFile(new File("TestDir/" + StateStreamer.STREAM_FILE),
+		        "websiteResult=5\nstreamed=0\nfailed=1\n");
+
+		ResultUpload upload = mock(ResultUpload.class);
+		ResultProcessorImpl resProc = new ResultProcessorImpl(upload);
+		resProc.uploadResults(1, new File("TestDir"), 10);
+
+		verify(upload).finishWebsiteResult(5, 10, 1);
+		verify(upload).uploadDom(eq(5), anyString(), eq("state1"));
+	}
+
+	/**
+	 * Test if the fingerprints computed during the crawl are uploaded with the states
+	 */
+	@Test
+	public void testUploadFingerprints() {
+		makeFileStructure();
+		Map<String, StateFingerprint> fingerprints = new HashMap<String, StateFingerprint>();
+		fingerprints.put("state1", new StateFingerprint("1a2b-10", null));
+		StateFingerprint.store(new File("TestDir"), fingerprints);
+
+		ResultUpload upload = mock(ResultUpload.class);
+		when(upload.uploadJson(anyInt(), anyString(), anyLong(), anyInt())).thenReturn(5);
+		ResultProcessorImpl resProc = new ResultProcessorImpl(upload);
+		resProc.uploadResults(1, new File("TestDir"), 10);
+
+		verify(upload).uploadFingerprints(5, fingerprints);
+	}
 }
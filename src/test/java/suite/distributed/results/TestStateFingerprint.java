@@ -0,0 +1,65 @@
+package suite.distributed.results;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import com.crawljax.core.state.duplicatedetection.Fingerprint;
+import com.crawljax.core.state.duplicatedetection.NearDuplicateDetection;
+
+public class TestStateFingerprint {
+
+	private final File dir = new File("TestDir");
+
+	@After
+	public void removeTestDir() throws IOException {
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@Test
+	public void testStoreAndLoad() {
+		Map<String, StateFingerprint> fingerprints = new HashMap<String, StateFingerprint>();
+		fingerprints.put("index", new StateFingerprint("1a2b-10", "3c:AAEC"));
+		fingerprints.put("state1", new StateFingerprint("1a2b-10", null));
+		StateFingerprint.store(dir, fingerprints);
+
+		assertEquals(fingerprints, StateFingerprint.load(dir));
+	}
+
+	@Test
+	public void testLoadWithoutFingerprints() {
+		assertTrue(StateFingerprint.load(dir).isEmpty());
+	}
+
+	@Test
+	public void testEncodeUnserializableFingerprint() {
+		NearDuplicateDetection detection = mock(NearDuplicateDetection.class);
+		assertNull(StateFingerprint.encode(detection, mock(Fingerprint.class)));
+	}
+
+	@Test
+	public void testDecodeOtherDetection() {
+		NearDuplicateDetection detection = mock(NearDuplicateDetection.class);
+		assertNull(StateFingerprint.decode(detection, null));
+		assertNull(StateFingerprint.decode(detection, "0:AAEC"));
+		assertNull(StateFingerprint.decode(detection, StateFingerprint.signature(detection)
+		        + ":not base64!"));
+	}
+
+	@Test
+	public void testSignatureIgnoresThreshold() {
+		NearDuplicateDetection strict = mock(NearDuplicateDetection.class);
+		when(strict.getDefaultThreshold()).thenReturn(0.0);
+		NearDuplicateDetection loose = mock(NearDuplicateDetection.class);
+		when(loose.getDefaultThreshold()).thenReturn(0.5);
+		assertEquals(StateFingerprint.signature(strict), StateFingerprint.signature(loose));
+	}
+}
@@ -0,0 +1,107 @@
+package suite.distributed.results;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.crawljax.core.state.duplicatedetection.HashGenerator;
+import com.crawljax.core.state.duplicatedetection.XxHashGenerator;
+
+public class TestStateStreamer {
+
+	private final File dir = new File("TestDir");
+	private ResultUpload upload;
+
+	@Before
+	public void setUp() throws IOException {
+		new File(dir, "screenshots").mkdirs();
+		upload = mock(ResultUpload.class);
+		when(upload.openWebsiteResult(7)).thenReturn(3);
+	}
+
+	@After
+	public void removeTestDir() throws IOException {
+		FileUtils.deleteDirectory(dir);
+	}
+
+	private void makeScreenshot(String stateId) throws IOException {
+		FileUtils.writeByteArrayToFile(new File(dir, "screenshots/" + stateId + ".png"),
+		        new byte[] { 0, 1, 0, 0 });
+	}
+
+	@Test
+	public void testStreamsStates() throws Exception {
+		makeScreenshot("index");
+		makeScreenshot("state1");
+		makeScreenshot("state2");
+		StateStreamer streamer = new StateStreamer(upload, 7, dir, new XxHashGenerator(), 1);
+		streamer.start();
+		streamer.submit("index", "<html>a</html>", "a");
+		streamer.submit("state1", "<html>b</html>", "a");
+		streamer.submit("state2", "<html>c</html>", "c");
+		streamer.close();
+
+		verify(upload, times(1)).openWebsiteResult(7);
+		verify(upload).uploadDom(3, "<html>a</html>", "index");
+		verify(upload).uploadDom(3, "<html>b</html>", "state1");
+		verify(upload).uploadStrippedDom(3, "a", "index");
+		verify(upload).copyStrippedDom(3, "index", "state1");
+		verify(upload).uploadStrippedDom(3, "c", "state2");
+		verify(upload, times(3)).uploadScreenshot(eq(3), any(FileInputStream.class), anyString());
+		verify(upload).closeConnection();
+		assertEquals(new StateStreamer.Streamed(3, 3, 0), StateStreamer.load(dir));
+	}
+
+	@Test
+	public void testCollidingStrippedDomsAreUploaded() throws Exception {
+		makeScreenshot("index");
+		makeScreenshot("state1");
+		HashGenerator hasher = mock(HashGenerator.class);
+		when(hasher.generateHash(anyString())).thenReturn(42);
+		StateStreamer streamer = new StateStreamer(upload, 7, dir, hasher);
+		streamer.start();
+		streamer.submit("index", "<html>a</html>", "a");
+		streamer.submit("state1", "<html>b</html>", "b");
+		streamer.close();
+
+		verify(upload).uploadStrippedDom(3, "a", "index");
+		verify(upload).uploadStrippedDom(3, "b", "state1");
+		verify(upload, never()).copyStrippedDom(anyInt(), anyString(), anyString());
+	}
+
+	@Test
+	public void testMissingScreenshotFails() throws Exception {
+		StateStreamer streamer = new StateStreamer(upload, 7, dir, new XxHashGenerator());
+		streamer.start();
+		streamer.submit("index", "<html>a</html>", "a");
+		streamer.close();
+
+		assertEquals(new StateStreamer.Streamed(3, 0, 1), StateStreamer.load(dir));
+	}
+
+	@Test
+	public void testDiscardRemovesWebsiteResult() throws Exception {
+		makeScreenshot("index");
+		StateStreamer streamer = new StateStreamer(upload, 7, dir, new XxHashGenerator());
+		streamer.start();
+		streamer.submit("index", "<html>a</html>", "a");
+		streamer.close();
+		streamer.discard();
+
+		verify(upload).deleteWebsiteResult(3);
+		assertNull(StateStreamer.load(dir));
+	}
+
+	@Test
+	public void testLoadWithoutStreaming() {
+		assertNull(StateStreamer.load(dir));
+	}
+}
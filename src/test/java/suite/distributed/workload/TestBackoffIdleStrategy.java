@@ -0,0 +1,69 @@
+package suite.distributed.workload;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+
+public class TestBackoffIdleStrategy {
+
+	@Test
+	public void testDelayGrowsExponentially() throws InterruptedException {
+		BackoffIdleStrategy idle = new BackoffIdleStrategy(null, 1, 1000, 0);
+		long first = idle.nextDelay();
+		assertTrue(first >= 1 && first <= 2);
+		for (int i = 0; i < 5; i++) {
+			idle.idle();
+		}
+		long sixth = idle.nextDelay();
+		assertTrue(sixth >= 24 && sixth <= 40);
+	}
+
+	@Test
+	public void testDelayIsCapped() throws InterruptedException {
+		BackoffIdleStrategy idle = new BackoffIdleStrategy(null, 1, 8, 0);
+		for (int i = 0; i < 40; i++) {
+			idle.idle();
+		}
+		assertTrue(idle.nextDelay() <= 8);
+	}
+
+	@Test
+	public void testDelayIsCappedAtHostInterval() {
+		assertTrue(new BackoffIdleStrategy(null, new HostPolicy(0, 5)).toString().contains(
+		        "maxInterval=5000"));
+		assertTrue(new BackoffIdleStrategy(null, new HostPolicy(2, 0)).toString().contains(
+		        "maxInterval=60000"));
+		assertTrue(new BackoffIdleStrategy(null, null).toString().contains("maxInterval=60000"));
+	}
+
+	@Test
+	public void testReset() throws InterruptedException {
+		BackoffIdleStrategy idle = new BackoffIdleStrategy(null, 1, 1000, 0);
+		for (int i = 0; i < 5; i++) {
+			idle.idle();
+		}
+		idle.reset();
+		assertTrue(idle.nextDelay() <= 2);
+	}
+
+	@Test
+	public void testWakeUpOnNewWork() throws InterruptedException {
+		WorkloadDao workload = mock(WorkloadDao.class);
+		when(workload.getWorkloadVersion()).thenReturn(1L, 1L, 2L);
+		BackoffIdleStrategy idle = new BackoffIdleStrategy(workload, 60000, 60000, 10);
+		long start = System.currentTimeMillis();
+		idle.idle();
+		assertTrue(System.currentTimeMillis() - start < 10000);
+		verify(workload, times(3)).getWorkloadVersion();
+	}
+
+	@Test
+	public void testNoWakeUpWithoutVersion() throws InterruptedException {
+		WorkloadDao workload = mock(WorkloadDao.class);
+		when(workload.getWorkloadVersion()).thenReturn(-1L);
+		BackoffIdleStrategy idle = new BackoffIdleStrategy(workload, 5, 5, 1);
+		idle.idle();
+		verify(workload, times(1)).getWorkloadVersion();
+	}
+}
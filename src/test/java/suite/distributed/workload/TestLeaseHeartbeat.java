@@ -0,0 +1,61 @@
+package suite.distributed.workload;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestLeaseHeartbeat {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBeatRenewsClaimed() {
+		WorkloadDao workload = mock(WorkloadDao.class);
+		when(workload.renewLeases(anyCollection())).thenReturn(2);
+		Set<Integer> claimed = new HashSet<Integer>();
+		claimed.add(1);
+		claimed.add(2);
+		LeaseHeartbeat heartbeat = new LeaseHeartbeat(workload, claimed);
+		assertEquals(2, heartbeat.beat());
+		verify(workload).renewLeases(anyCollection());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBeatNothingClaimed() {
+		WorkloadDao workload = mock(WorkloadDao.class);
+		LeaseHeartbeat heartbeat = new LeaseHeartbeat(workload, new HashSet<Integer>());
+		assertEquals(0, heartbeat.beat());
+		verify(workload, never()).renewLeases(anyCollection());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBeatSurvivesFailure() {
+		WorkloadDao workload = mock(WorkloadDao.class);
+		when(workload.renewLeases(anyCollection())).thenThrow(new RuntimeException("MOCK ERROR"));
+		List<Integer> claimed = new ArrayList<Integer>();
+		claimed.add(1);
+		LeaseHeartbeat heartbeat = new LeaseHeartbeat(workload, claimed);
+		assertEquals(0, heartbeat.beat());
+	}
+
+	@Test(timeout = 5000)
+	@SuppressWarnings("unchecked")
+	public void testStartRenewsPeriodically() throws InterruptedException {
+		WorkloadDao workload = mock(WorkloadDao.class);
+		Collection<Integer> claimed = new HashSet<Integer>();
+		claimed.add(1);
+		LeaseHeartbeat heartbeat = new LeaseHeartbeat(workload, claimed, 10);
+		heartbeat.start();
+		Thread.sleep(200);
+		heartbeat.stop();
+		verify(workload, atLeast(2)).renewLeases(anyCollection());
+	}
+}
@@ -0,0 +1,30 @@
+package suite.distributed.workload;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestRetryPolicy {
+
+	@Test
+	public void testRetryDelayDoubles() {
+		RetryPolicy policy = new RetryPolicy(5, 10, 1000);
+		assertEquals(10, policy.retryDelay(1));
+		assertEquals(20, policy.retryDelay(2));
+		assertEquals(40, policy.retryDelay(3));
+	}
+
+	@Test
+	public void testRetryDelayIsCapped() {
+		RetryPolicy policy = new RetryPolicy(5, 10, 25);
+		assertEquals(25, policy.retryDelay(3));
+		assertEquals(25, policy.retryDelay(100));
+	}
+
+	@Test
+	public void testIsExhausted() {
+		RetryPolicy policy = new RetryPolicy(2);
+		assertFalse(policy.isExhausted(1));
+		assertTrue(policy.isExhausted(2));
+	}
+}
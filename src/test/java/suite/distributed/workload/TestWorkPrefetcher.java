@@ -0,0 +1,78 @@
+package suite.distributed.workload;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import suite.distributed.configuration.ConfigurationDao;
+
+public class TestWorkPrefetcher {
+
+	@Test
+	public void testTakeResolvesConfiguration() throws InterruptedException {
+		WorkloadDao workload = mock(WorkloadDao.class);
+		ConfigurationDao config = mock(ConfigurationDao.class);
+		WorkTask task = new WorkTask(1, "http://demo.crawljax.com");
+		Map<String, String> settings = new HashMap<String, String>();
+		settings.put("depth", "2");
+		when(workload.retrieveWork(anyInt())).thenReturn(asList(task), new ArrayList<WorkTask>());
+		when(config.getConfiguration(anyList())).thenReturn(settings);
+
+		WorkPrefetcher prefetcher = new WorkPrefetcher(workload, config, "test", 1, true);
+		prefetcher.start();
+		PrefetchedWork work = prefetcher.take();
+		assertEquals(task, work.getTask());
+		assertEquals(settings, work.getConfiguration());
+		assertNull(prefetcher.take());
+		assertNull(prefetcher.take());
+		prefetcher.close();
+		verify(workload, never()).revertWork(anyInt());
+	}
+
+	@Test
+	public void testTakeSkipsClaimedTasks() throws InterruptedException {
+		WorkloadDao workload = mock(WorkloadDao.class);
+		ConfigurationDao config = mock(ConfigurationDao.class);
+		WorkTask task1 = new WorkTask(1, "http://demo.crawljax.com");
+		WorkTask task2 = new WorkTask(2, "http://www.crawljax.com");
+		when(workload.retrieveWork(anyInt())).thenReturn(asList(task1, task2));
+
+		WorkPrefetcher prefetcher = new WorkPrefetcher(workload, config, null, 0, true);
+		assertEquals(task1, prefetcher.take().getTask());
+		assertEquals(task2, prefetcher.take().getTask());
+		assertNull(prefetcher.take());
+		prefetcher.finished(task1);
+		assertEquals(task1, prefetcher.take().getTask());
+	}
+
+	@Test
+	public void testCloseRevertsPrefetchedTasks() throws InterruptedException {
+		WorkloadDao workload = mock(WorkloadDao.class);
+		ConfigurationDao config = mock(ConfigurationDao.class);
+		WorkTask task1 = new WorkTask(1, "http://demo.crawljax.com");
+		WorkTask task2 = new WorkTask(2, "http://www.crawljax.com");
+		when(workload.retrieveWork(anyInt())).thenReturn(asList(task1, task2));
+
+		WorkPrefetcher prefetcher = new WorkPrefetcher(workload, config, null, 2, true);
+		prefetcher.start();
+		assertEquals(task1, prefetcher.take().getTask());
+		Thread.sleep(200);
+		prefetcher.close();
+		verify(workload).revertWork(task2.getId());
+		verify(workload, never()).revertWork(task1.getId());
+	}
+
+	private List<WorkTask> asList(WorkTask... tasks) {
+		List<WorkTask> list = new ArrayList<WorkTask>(tasks.length);
+		for (WorkTask task : tasks) {
+			list.add(task);
+		}
+		return list;
+	}
+}
@@ -6,10 +6,11 @@ import static org.junit.Assert.*;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
@@ -25,13 +26,13 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet results = mock(ResultSet.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(expected.size());
-		when(statement.executeQuery(anyString())).thenReturn(results);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(expected.size());
+		when(statement.executeQuery()).thenReturn(results);
 		when(results.next()).thenReturn(false);
 		// Run method under inspection
 		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
@@ -48,13 +49,13 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet results = mock(ResultSet.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(expected.size());
-		when(statement.executeQuery(anyString())).thenReturn(results);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(expected.size());
+		when(statement.executeQuery()).thenReturn(results);
 		when(results.next()).thenReturn(true, false);
 		when(results.getInt("id")).thenReturn(wt1.getId());
 		when(results.getString("url")).thenReturn(wt1.getURL().toString());
@@ -75,13 +76,13 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet results = mock(ResultSet.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(expected.size());
-		when(statement.executeQuery(anyString())).thenReturn(results);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(expected.size());
+		when(statement.executeQuery()).thenReturn(results);
 		when(results.next()).thenReturn(true, true, false);
 		when(results.getInt("id")).thenReturn(wt1.getId(), wt2.getId());
 		when(results.getString("url")).thenReturn(wt1.getURL().toString(),
@@ -100,12 +101,12 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(expectedSize);
-		when(statement.executeQuery(anyString())).thenThrow(new SQLException("MOCK SQL ERROR"));
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(expectedSize);
+		when(statement.executeQuery()).thenThrow(new SQLException("MOCK SQL ERROR"));
 		// Run method under inspection
 		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
 		List<WorkTask> finalReturn = wldao.retrieveWork(expectedSize);
@@ -120,13 +121,13 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet results = mock(ResultSet.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenThrow(new SQLException("MOCK SQL ERROR"));
-		when(statement.executeQuery(anyString())).thenReturn(results);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenThrow(new SQLException("MOCK SQL ERROR"));
+		when(statement.executeQuery()).thenReturn(results);
 		// Run method under inspection
 		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
 		List<WorkTask> finalReturn = wldao.retrieveWork(expectedSize);
@@ -142,13 +143,13 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		ResultSet results = mock(ResultSet.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(expected.size());
-		when(statement.executeQuery(anyString())).thenReturn(results);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(expected.size());
+		when(statement.executeQuery()).thenReturn(results);
 		when(results.next()).thenReturn(true, false);
 		when(results.getInt("id")).thenReturn(wt1.getId());
 		when(results.getString("url")).thenReturn(wt1.getURL().toString());
@@ -173,15 +174,15 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(expected);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(expected);
 		// Run method under inspection
 		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
 		assertEquals(wldao.checkoutWork(wt1), true);
-		verify(statement).executeUpdate(anyString());
+		verify(statement).executeUpdate();
 	}
 
 	@Test
@@ -190,15 +191,15 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenThrow(new SQLException("MOCK SQL ERROR"));
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenThrow(new SQLException("MOCK SQL ERROR"));
 		// Run method under inspection
 		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
 		assertEquals(wldao.checkoutWork(wt1), false);
-		verify(statement).executeUpdate(anyString());
+		verify(statement).executeUpdate();
 	}
 
 	@Test
@@ -218,14 +219,15 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString(), anyInt())).thenReturn(expected);
+		when(conn.prepareStatement(anyString(), anyInt())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(expected);
 		// Run method under inspection
 		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
 		assertEquals(wldao.submitWork(url1, true), expected);
+		verify(statement).setString(1, url1.toString());
 	}
 
 	@Test
@@ -234,12 +236,11 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString(), anyInt())).thenThrow(
-		        new SQLException("MOCK SQL ERROR"));
+		when(conn.prepareStatement(anyString(), anyInt())).thenReturn(statement);
+		when(statement.executeUpdate()).thenThrow(new SQLException("MOCK SQL ERROR"));
 		// Run method under inspection
 		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
 		assertEquals(wldao.submitWork(url1, true), -1);
@@ -260,11 +261,11 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(1);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(1);
 		// Run method under inspection
 		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
 		assertTrue(wldao.revertWork(42));
@@ -275,11 +276,11 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenReturn(0);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(0);
 		// Run method under inspection
 		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
 		assertFalse(wldao.revertWork(42));
@@ -291,14 +292,265 @@ public class TestWorkloadDao {
 		// Mock objects
 		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
 		Connection conn = mock(Connection.class);
-		Statement statement = mock(Statement.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
 		// Mock methods
 		when(connMgr.getConnection()).thenReturn(conn);
-		when(conn.createStatement()).thenReturn(statement);
-		when(statement.executeUpdate(anyString())).thenThrow(new SQLException("MOCK SQL ERROR"));
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenThrow(new SQLException("MOCK SQL ERROR"));
 		// Run method under inspection
 		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
 		assertNotNull(wldao.toString());
 		assertFalse(wldao.revertWork(id));
 	}
+
+	@Test
+	public void testGetWorkloadVersion() throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		ResultSet results = mock(ResultSet.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(results);
+		when(results.next()).thenReturn(true);
+		when(results.getLong("version")).thenReturn(42L);
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		assertEquals(42L, wldao.getWorkloadVersion());
+	}
+
+	@Test
+	public void testGetWorkloadVersionSQLException() throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenThrow(new SQLException("MOCK SQL ERROR"));
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		assertEquals(-1L, wldao.getWorkloadVersion());
+	}
+
+	@Test
+	public void testRetrieveWorkReclaimsExpiredLeases() throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		ResultSet results = mock(ResultSet.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(0);
+		when(statement.executeQuery()).thenReturn(results);
+		when(results.next()).thenReturn(false);
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		wldao.retrieveWork(1);
+		verify(conn).prepareStatement(
+		        contains("leaseExpiry IS NULL OR leaseExpiry < NOW()"));
+	}
+
+	@Test
+	public void testRenewLeases() throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(2);
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		assertEquals(2, wldao.renewLeases(Arrays.asList(1, 2)));
+		verify(conn).prepareStatement(contains("IN (?,?)"));
+		verify(statement).setInt(2, 1);
+		verify(statement).setInt(3, 2);
+	}
+
+	@Test
+	public void testRenewLeasesNone() throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		assertEquals(0, wldao.renewLeases(new ArrayList<Integer>()));
+		verify(connMgr, never()).getConnection();
+	}
+
+	@Test
+	public void testRenewLeasesSQLException() throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenThrow(new SQLException("MOCK SQL ERROR"));
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		assertEquals(0, wldao.renewLeases(Arrays.asList(1)));
+		verify(connMgr).closeConnection();
+	}
+
+	@Test
+	public void testRetrieveWorkSkipsQuarantined() throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		ResultSet results = mock(ResultSet.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(0);
+		when(statement.executeQuery()).thenReturn(results);
+		when(results.next()).thenReturn(false);
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		wldao.retrieveWork(1);
+		verify(conn).prepareStatement(contains("quarantined = 0"));
+	}
+
+	@Test
+	public void testFailWorkCountsTheAttemptInTheUpdate() throws SQLException {
+		PreparedStatement update = mock(PreparedStatement.class);
+		Connection conn = mockFailWork(update);
+		verify(conn).prepareStatement(contains("attempts=attempts + 1 WHERE"));
+		verify(update).setString(1, "error");
+		verify(update).setLong(2, RetryPolicy.DEFAULT_BASE_DELAY);
+		verify(update).setLong(3, RetryPolicy.DEFAULT_MAX_DELAY);
+		verify(update).setInt(4, RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+		verify(update).setInt(5, 1);
+	}
+
+	@Test
+	public void testFailWorkQuarantinesInTheUpdate() throws SQLException {
+		Connection conn = mockFailWork(mock(PreparedStatement.class));
+		verify(conn).prepareStatement(contains("quarantined=CASE WHEN attempts + 1 >= ?"));
+	}
+
+	@Test
+	public void testFailWorkSQLException() throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenThrow(new SQLException("MOCK SQL ERROR"));
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		assertFalse(wldao.failWork(1, "error", new RetryPolicy()));
+		verify(connMgr).closeConnection();
+	}
+
+	private Connection mockFailWork(PreparedStatement update) throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		ResultSet results = mock(ResultSet.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(update);
+		when(conn.prepareStatement(startsWith("SELECT"))).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(results);
+		when(results.next()).thenReturn(true);
+		when(results.getInt("attempts")).thenReturn(1);
+		when(update.executeUpdate()).thenReturn(1);
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		assertTrue(wldao.failWork(1, "error", new RetryPolicy()));
+		return conn;
+	}
+
+	@Test
+	public void testRetrieveWorkSkipsBusyHosts() throws SQLException {
+		Connection conn = mockRetrieveWork(new HostPolicy(2, 10));
+		verify(conn).prepareStatement(contains("HAVING COUNT(*) >= 2"));
+		verify(conn).prepareStatement(contains("TIMESTAMPADD(SECOND, -10, NOW())"));
+	}
+
+	@Test
+	public void testRetrieveWorkUnrestrictedHosts() throws SQLException {
+		Connection conn = mockRetrieveWork(new HostPolicy(0, 0));
+		verify(conn, never()).prepareStatement(contains("busyHosts"));
+	}
+
+	@Test
+	public void testRetrieveWorkUnrestrictedByDefault() throws SQLException {
+		Connection conn = mockRetrieveWork(null);
+		verify(conn, never()).prepareStatement(contains("busyHosts"));
+	}
+
+	@Test
+	public void testRetrieveWorkLongestExpectedFirst() throws SQLException {
+		Connection conn = mockRetrieveWork(new HostPolicy(0, 0));
+		verify(conn).prepareStatement(contains("ORDER BY expectedDuration DESC, id LIMIT"));
+	}
+
+	@Test
+	public void testUpdateExpectedDurations() throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(3);
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		assertEquals(3, wldao.updateExpectedDurations());
+		// Check if expected behavior
+		verify(conn).prepareStatement(contains("AVG(result.duration)"));
+		verify(conn).prepareStatement(contains("COALESCE("));
+		verify(connMgr).closeConnection();
+	}
+
+	@Test
+	public void testUpdateExpectedDurationsSQLException() throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenThrow(new SQLException());
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		assertEquals(0, wldao.updateExpectedDurations());
+		verify(connMgr).closeConnection();
+	}
+
+	private Connection mockRetrieveWork(HostPolicy hostPolicy) throws SQLException {
+		// Mock objects
+		ConnectionManagerImpl connMgr = mock(ConnectionManagerImpl.class);
+		Connection conn = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		ResultSet results = mock(ResultSet.class);
+		// Mock methods
+		when(connMgr.getConnection()).thenReturn(conn);
+		when(conn.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeUpdate()).thenReturn(0);
+		when(statement.executeQuery()).thenReturn(results);
+		when(results.next()).thenReturn(false);
+		// Run method under inspection
+		WorkloadDaoImpl wldao = new WorkloadDaoImpl(connMgr);
+		if (hostPolicy != null) {
+			wldao.setHostPolicy(hostPolicy);
+		}
+		wldao.retrieveWork(1);
+		return conn;
+	}
 }
@@ -0,0 +1,113 @@
+package suite.distributed.workload;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestWorkloadIngester {
+
+	private static final File WEBSITES_FILE = new File("testIngestWebsites.txt");
+
+	private WorkloadDao workload;
+	private List<URL> submitted;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void mockWorkload() throws IOException {
+		workload = mock(WorkloadDao.class);
+		submitted = new ArrayList<URL>();
+		List<WorkTask> existing = new ArrayList<WorkTask>();
+		existing.add(new WorkTask(3, "http://existing.com"));
+		existing.add(new WorkTask(4, "http://Legacy.COM:80"));
+		when(workload.listWork(0, 2)).thenReturn(existing);
+		when(workload.listWork(4, 2)).thenReturn(new ArrayList<WorkTask>());
+		when(workload.submitWork(anyCollection())).thenAnswer(new Answer<Integer>() {
+			@Override
+			public Integer answer(InvocationOnMock invocation) {
+				Collection<URL> urls = (Collection<URL>) invocation.getArguments()[0];
+				submitted.addAll(urls);
+				return urls.size();
+			}
+		});
+		when(workload.findExistingUrls(anyCollection())).thenAnswer(new Answer<Set<String>>() {
+			@Override
+			public Set<String> answer(InvocationOnMock invocation) {
+				Set<String> found = new HashSet<String>();
+				for (String url : (Collection<String>) invocation.getArguments()[0]) {
+					if (url.equals("http://existing.com")) {
+						found.add(url);
+					}
+					for (URL done : submitted) {
+						if (done.toString().equals(url)) {
+							found.add(url);
+						}
+					}
+				}
+				return found;
+			}
+		});
+	}
+
+	@After
+	public void deleteFile() {
+		WEBSITES_FILE.delete();
+	}
+
+	@Test
+	public void testIngestDeduplicates() throws IOException {
+		try (PrintWriter out = new PrintWriter(WEBSITES_FILE)) {
+			out.println("http://a.com");
+			out.println("http://existing.com");
+			out.println("not a url");
+			out.println("http://A.COM:80#top");
+			out.println("");
+			out.println("http://b.com/page");
+			out.println("http://a.com");
+		}
+		WorkloadIngester ingester = new WorkloadIngester(workload, 2);
+		assertEquals(2, ingester.ingest(WEBSITES_FILE));
+		assertEquals(2, submitted.size());
+		assertEquals("http://a.com", submitted.get(0).toString());
+		assertEquals("http://b.com/page", submitted.get(1).toString());
+		assertEquals(3, ingester.getDuplicates());
+		assertEquals(1, ingester.getInvalid());
+		assertEquals(7, ingester.getLines());
+	}
+
+	@Test
+	public void testIngestRecognizesUrlsStoredBeforeCanonicalization() throws IOException {
+		try (PrintWriter out = new PrintWriter(WEBSITES_FILE)) {
+			out.println("http://legacy.com");
+			out.println("http://LEGACY.com:80");
+		}
+		WorkloadIngester ingester = new WorkloadIngester(workload, 2);
+		assertEquals(0, ingester.ingest(WEBSITES_FILE));
+		assertTrue(submitted.isEmpty());
+		assertEquals(2, ingester.getDuplicates());
+	}
+
+	@Test
+	public void testCanonicalize() {
+		assertEquals("http://a.com/x?y=1",
+		        UrlCanonicalizer.canonicalize(" http://A.com:80/x?y=1#z ").toString());
+		assertEquals("http://a.com:8080", UrlCanonicalizer.canonicalize("http://a.com:8080")
+		        .toString());
+		assertNull(UrlCanonicalizer.canonicalize("not a url"));
+		assertNull(UrlCanonicalizer.canonicalize(null));
+	}
+}